@@ -0,0 +1,95 @@
+package rbtree;
+
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * This interface represents an associative operation that an AggregateTree 
+ * caches in every node. The combine method must be associative and the 
+ * identity value must not change a value it is combined with.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ * @param <A> the type of the aggregate value
+ * @see AggregateTree
+ */
+public interface Aggregate<E, A> {
+	
+	/**
+	 * Returns the aggregate of an empty set of keys.
+	 * 
+	 * @return the identity value
+	 */
+	A identity();
+	
+	/**
+	 * Returns the aggregate of a single key.
+	 * 
+	 * @param key a key stored in the tree
+	 * @return the aggregate of the key
+	 */
+	A lift(E key);
+	
+	/**
+	 * Combines the aggregates of two adjacent key ranges. 
+	 * Every key of the left range is smaller than every key of the right range.
+	 * 
+	 * @param left the aggregate of the smaller keys
+	 * @param right the aggregate of the larger keys
+	 * @return the aggregate of both ranges
+	 */
+	A combine(A left, A right);
+	
+	/**
+	 * Creates an aggregate from an identity value and two functions.
+	 * 
+	 * @param identity the aggregate of an empty set of keys
+	 * @param lift the function that computes the aggregate of a single key
+	 * @param combine the associative function that combines two aggregates
+	 * @return the aggregate
+	 */
+	static <E, A> Aggregate<E, A> of(A identity, Function<? super E, ? extends A> lift, BinaryOperator<A> combine) {
+		return new Aggregate<E, A>() {
+			public A identity() {
+				return identity;
+			}
+			
+			public A lift(E key) {
+				return lift.apply(key);
+			}
+			
+			public A combine(A left, A right) {
+				return combine.apply(left, right);
+			}
+		};
+	}
+	
+	/**
+	 * Creates an aggregate that sums a value derived from each key.
+	 * 
+	 * @param value the function that derives the value of a key
+	 * @return the sum aggregate
+	 */
+	static <E> Aggregate<E, Long> sum(ToLongFunction<? super E> value) {
+		return of(0L, key -> value.applyAsLong(key), Long::sum);
+	}
+	
+	/**
+	 * Creates an aggregate that returns the smallest key, or null for an empty range.
+	 * 
+	 * @return the minimum aggregate
+	 */
+	static <E extends Comparable<E>> Aggregate<E, E> min() {
+		return of(null, key -> key, (left, right) -> left != null ? left : right);
+	}
+	
+	/**
+	 * Creates an aggregate that returns the largest key, or null for an empty range.
+	 * 
+	 * @return the maximum aggregate
+	 */
+	static <E extends Comparable<E>> Aggregate<E, E> max() {
+		return of(null, key -> key, (left, right) -> right != null ? right : left);
+	}
+}
\ No newline at end of file
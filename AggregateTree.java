@@ -0,0 +1,150 @@
+package rbtree;
+
+/**
+ * This class represents a Red-Black Tree whose nodes cache an aggregate 
+ * of their subtree, such as a sum or a maximum. The cached values are 
+ * kept up to date by insert, delete and the rotations, so the aggregate 
+ * of any key range is computed in O(log n) without visiting the range.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ * @param <A> the type of the aggregate value
+ * @see Aggregate
+ */
+public class AggregateTree<E extends Comparable<E>, A> extends RedBlackTree<E> {
+	
+	/**
+	 * This nested class represents a node that caches the aggregate of its subtree.
+	 */
+	protected static class AggregateNode<E extends Comparable<E>, A> extends RBNode<E> {
+		protected A value;
+		
+		/**
+		 * Constructs a red node holding the given data value.
+		 * 
+		 * @param data the data value stored in the node
+		 */
+		public AggregateNode(E data) {
+			super(data, "R");
+		}
+	}
+	
+	protected final Aggregate<E, A> aggregate;
+	
+	/**
+	 * Constructs an initially empty tree that caches the given aggregate.
+	 * 
+	 * @param aggregate the aggregate cached in every node
+	 */
+	public AggregateTree(Aggregate<E, A> aggregate) {
+		this.aggregate = aggregate;
+		this.augmented = true;
+	}
+	
+	/**
+	 * Initializes a tree that caches the given aggregate with an array.
+	 * 
+	 * @param aggregate the aggregate cached in every node
+	 * @param array an array of data values used to initialize the tree
+	 */
+	public AggregateTree(Aggregate<E, A> aggregate, E[] array) {
+		this(aggregate);
+		for (int i = 0; i < array.length; i++) {
+			insert(array[i]);
+		}
+	}
+	
+	@Override
+	protected RBNode<E> newNode(E key) {
+		return new AggregateNode<E, A>(key);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void update(RBNode<E> node) {
+		A value = aggregate.combine(valueOf(node.left), aggregate.lift(node.getData()));
+		((AggregateNode<E, A>) node).value = aggregate.combine(value, valueOf(node.right));
+	}
+	
+	/**
+	 * Returns the aggregate cached in the given node.
+	 * 
+	 * @param node a node of the tree, or NIL
+	 * @return the aggregate of the subtree rooted at the node
+	 */
+	@SuppressWarnings("unchecked")
+	protected A valueOf(RBNode<E> node) {
+		if (node == NIL || node == null) {
+			return aggregate.identity();
+		}
+		return ((AggregateNode<E, A>) node).value;
+	}
+	
+	/**
+	 * Returns the aggregate of every key in the tree.
+	 * 
+	 * @return the aggregate of every key in the tree
+	 */
+	public A aggregate() {
+		return valueOf(root);
+	}
+	
+	/**
+	 * Returns the aggregate of the keys between lo and hi (inclusive).
+	 * 
+	 * @param lo the smallest key of the range
+	 * @param hi the largest key of the range
+	 * @return the aggregate of the keys in the range
+	 */
+	public A aggregate(E lo, E hi) {
+		if (isEmpty() || lo.compareTo(hi) > 0) {
+			return aggregate.identity();
+		}
+		
+		// Find the highest node inside the range. The range splits at this node.
+		RBNode<E> split = root;
+		while (split != NIL) {
+			if (split.getData().compareTo(lo) < 0) {
+				split = split.right;
+			}
+			else if (split.getData().compareTo(hi) > 0) {
+				split = split.left;
+			}
+			else {
+				break;
+			}
+		}
+		if (split == NIL) {
+			return aggregate.identity();
+		}
+		
+		// Keys between lo and the split node. Each subtree found is smaller than the ones before it.
+		A left = aggregate.identity();
+		RBNode<E> current = split.left;
+		while (current != NIL) {
+			if (current.getData().compareTo(lo) >= 0) {
+				A value = aggregate.combine(aggregate.lift(current.getData()), valueOf(current.right));
+				left = aggregate.combine(value, left);
+				current = current.left;
+			}
+			else {
+				current = current.right;
+			}
+		}
+		
+		// Keys between the split node and hi. Each subtree found is larger than the ones before it.
+		A right = aggregate.identity();
+		current = split.right;
+		while (current != NIL) {
+			if (current.getData().compareTo(hi) <= 0) {
+				A value = aggregate.combine(valueOf(current.left), aggregate.lift(current.getData()));
+				right = aggregate.combine(right, value);
+				current = current.right;
+			}
+			else {
+				current = current.left;
+			}
+		}
+		return aggregate.combine(aggregate.combine(left, aggregate.lift(split.getData())), right);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,239 @@
+package rbtree;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the balancing strategies on a matrix of workloads: random and
+ * sequential inserts, lookups, deleting every key, and churn that deletes
+ * and inserts at a steady size. For each pair it reports the best time per
+ * operation over a few rounds and the
+ * rotations per operation, then the height and average depth of the trees
+ * the inserts leave behind. The untimed counting pass also checks after
+ * every deletion that the NIL sentinel was reset.
+ * 
+ * Usage: BalancingBenchmark [number of keys]
+ * 
+ * @author Richard Shu
+ */
+public class BalancingBenchmark {
+	private static final String[] STRATEGIES = {"red-black", "AVL", "WAVL"};
+	private static final String[] WORKLOADS = {"random insert", "sequential insert", "lookup", "random delete",
+			"churn"};
+	
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		Integer[] keys = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = i * 2; // Even keys, so odd keys are misses
+		}
+		for (int i = count - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Integer swap = keys[i];
+			keys[i] = keys[j];
+			keys[j] = swap;
+		}
+		Integer[] probes = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			probes[i] = random.nextInt(count * 2);
+		}
+		
+		System.out.println("---------- Balancing strategy benchmark ----------");
+		System.out.printf("%,d keys%n", count);
+		double[][] times = new double[WORKLOADS.length][STRATEGIES.length];
+		double[][] rotations = new double[WORKLOADS.length][STRATEGIES.length];
+		int[][] heights = new int[2][STRATEGIES.length]; // After the random and the sequential inserts
+		double[][] depths = new double[2][STRATEGIES.length];
+		for (double[] row : times) {
+			Arrays.fill(row, Double.MAX_VALUE);
+		}
+		for (int round = 0; round < 4; round++) { // The first round warms up the JIT
+			double[][] roundTimes = round == 0 ? new double[WORKLOADS.length][STRATEGIES.length] : times;
+			for (int s = 0; s < STRATEGIES.length; s++) {
+				for (int w = 0; w < WORKLOADS.length; w++) {
+					RedBlackTree<Integer> tree = run(s, w, keys, probes, roundTimes, null);
+					if (w < 2) {
+						heights[w][s] = tree.height(tree.root);
+						depths[w][s] = averageDepth(tree);
+					}
+				}
+			}
+		}
+		for (int s = 0; s < STRATEGIES.length; s++) { // Counted apart so the listener does not skew the times
+			for (int w = 0; w < WORKLOADS.length; w++) {
+				double[][] ignored = new double[WORKLOADS.length][STRATEGIES.length];
+				run(s, w, keys, probes, ignored, rotations);
+			}
+		}
+		
+		System.out.printf("%n%-24s", "ns/op");
+		for (String strategy : STRATEGIES) {
+			System.out.printf(" %12s", strategy);
+		}
+		System.out.println();
+		print(times, "%12.0f");
+		System.out.printf("%n%-24s", "rotations/op");
+		for (String strategy : STRATEGIES) {
+			System.out.printf(" %12s", strategy);
+		}
+		System.out.println();
+		print(rotations, "%12.3f");
+		for (int w = 0; w < 2; w++) {
+			System.out.printf("%n%-24s", "after " + WORKLOADS[w]);
+			for (String strategy : STRATEGIES) {
+				System.out.printf(" %12s", strategy);
+			}
+			System.out.printf("%n%-24s", "height");
+			for (int height : heights[w]) {
+				System.out.printf(" %12d", height);
+			}
+			System.out.printf("%n%-24s", "average depth");
+			for (double depth : depths[w]) {
+				System.out.printf(" %12.2f", depth);
+			}
+			System.out.println();
+		}
+	}
+	
+	/**
+	 * Runs one workload against a tree balanced by one strategy.
+	 * 
+	 * @param s the index of the strategy
+	 * @param w the index of the workload
+	 * @param keys the keys in random order
+	 * @param probes the keys looked up
+	 * @param times keeps the best time per operation in nanoseconds
+	 * @param rotations receives the rotations per operation, or null to skip counting
+	 * @return the tree the workload leaves behind
+	 */
+	private static RedBlackTree<Integer> run(int s, int w, Integer[] keys, Integer[] probes, double[][] times,
+			double[][] rotations) {
+		RedBlackTree<Integer> tree = new RedBlackTree<>(strategy(s).get());
+		long[] rotated = new long[1];
+		if (rotations != null) {
+			tree.addTreeListener(new TreeListener<Integer>() {
+				@Override
+				public void rotated(RBNode<Integer> node) {
+					rotated[0]++;
+				}
+			});
+		}
+		if (w >= 2) {
+			for (Integer key : keys) {
+				tree.insert(key); // The other workloads start from a randomly built tree
+			}
+			rotated[0] = 0;
+		}
+		int operations = keys.length;
+		long checksum = 0;
+		long start = System.nanoTime();
+		switch (w) {
+		case 0:
+			for (Integer key : keys) {
+				tree.insert(key);
+			}
+			break;
+		case 1:
+			for (int i = 0; i < keys.length; i++) {
+				tree.insert(i * 2);
+			}
+			break;
+		case 2:
+			for (Integer probe : probes) {
+				if (tree.find(probe)) {
+					checksum++;
+				}
+			}
+			break;
+		case 3:
+			for (Integer key : keys) {
+				tree.delete(key);
+				if (rotations != null) {
+					checkSentinel(tree);
+				}
+			}
+			break;
+		default:
+			for (int i = 0; i < keys.length; i++) {
+				tree.delete(keys[i]);
+				if (rotations != null) {
+					checkSentinel(tree);
+				}
+				tree.insert(keys[i] + 1); // Odd keys take the place of the deleted even ones
+			}
+			operations *= 2;
+		}
+		long elapsed = System.nanoTime() - start;
+		if (checksum == 42) {
+			System.out.println(); // Keeps the lookups from being optimized away
+		}
+		times[w][s] = Math.min(times[w][s], (double) elapsed / operations);
+		if (rotations != null) {
+			rotations[w][s] = (double) rotated[0] / operations;
+		}
+		return tree;
+	}
+	
+	/**
+	 * Throws if the NIL sentinel still points at a node or is not black
+	 * after a deletion, which would keep removed nodes reachable.
+	 * 
+	 * @param tree the tree
+	 * @throws IllegalStateException if the sentinel was not reset
+	 */
+	private static void checkSentinel(RedBlackTree<Integer> tree) {
+		if (tree.NIL.parent != null || !tree.NIL.color.equals("B")) {
+			throw new IllegalStateException("NIL.parent=" + tree.NIL.parent + " NIL.color=" + tree.NIL.color + " with "
+					+ tree.getBalancingStrategy().getClass().getSimpleName());
+		}
+	}
+	
+	/**
+	 * Returns a supplier of the strategy with the given index.
+	 * 
+	 * @param s the index of the strategy
+	 * @return a supplier of new instances of the strategy
+	 */
+	private static Supplier<BalancingStrategy<Integer>> strategy(int s) {
+		switch (s) {
+		case 0:
+			return RedBlackBalancing::new;
+		case 1:
+			return AVLBalancing::new;
+		default:
+			return WAVLBalancing::new;
+		}
+	}
+	
+	/**
+	 * Returns the average depth of the nodes of a tree.
+	 * 
+	 * @param tree the tree
+	 * @return the average number of edges from the root to a node
+	 */
+	private static double averageDepth(RedBlackTree<Integer> tree) {
+		long total = 0;
+		for (RBNode<Integer> node : tree.inorder()) {
+			total += tree.depth(node);
+		}
+		return (double) total / tree.size();
+	}
+	
+	/**
+	 * Prints one row per workload.
+	 * 
+	 * @param values the values by workload and strategy
+	 * @param format the format of a value
+	 */
+	private static void print(double[][] values, String format) {
+		for (int w = 0; w < WORKLOADS.length; w++) {
+			System.out.printf("%-24s", WORKLOADS[w]);
+			for (int s = 0; s < STRATEGIES.length; s++) {
+				System.out.printf(" " + format, values[w][s]);
+			}
+			System.out.println();
+		}
+	}
+}
\ No newline at end of file
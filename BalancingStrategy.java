@@ -0,0 +1,50 @@
+package rbtree;
+
+/**
+ * This interface represents the rules a RedBlackTree follows to stay
+ * balanced. The tree links and unlinks nodes as in any binary search tree
+ * and then hands the changed spot to its strategy, which restores its own
+ * invariant with the tree's rotations and recoloring, so listeners,
+ * augmented subtrees and the relink hooks see the same events whichever
+ * strategy is used.
+ * 
+ * Only the red-black strategy keeps the colors and the black height; the
+ * others leave the colors as the nodes were created and keep a rank in
+ * every node instead.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ * @see RedBlackBalancing
+ * @see AVLBalancing
+ * @see WAVLBalancing
+ */
+public interface BalancingStrategy<E extends Comparable<E>> {
+	
+	/**
+	 * Rebalances the tree after a node has been linked in as a leaf. The node
+	 * is red and has a rank of 0.
+	 * 
+	 * @param tree the tree that changed
+	 * @param node the node that was inserted
+	 */
+	void inserted(RedBlackTree<E> tree, RBNode<E> node);
+	
+	/**
+	 * Rebalances the tree after a node with at most one child has been
+	 * unlinked and its child has taken its place. The child's parent
+	 * reference points to its new parent, even when the child is NIL.
+	 * 
+	 * @param tree the tree that changed
+	 * @param node the node that was removed, which still has its color and rank
+	 * @param child the node that took its place, or NIL
+	 */
+	void removed(RedBlackTree<E> tree, RBNode<E> node, RBNode<E> child);
+	
+	/**
+	 * Returns an upper bound on the height of the tree in constant time.
+	 * 
+	 * @param tree the tree
+	 * @return an upper bound on the height of the tree, or -1 for an empty tree
+	 */
+	int heightBound(RedBlackTree<E> tree);
+}
\ No newline at end of file
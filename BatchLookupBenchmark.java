@@ -0,0 +1,108 @@
+package rbtree;
+
+import java.util.Random;
+
+/**
+ * Measures the time per key of looking up batches of random keys with
+ * findAll, against a loop that calls find for each key.
+ * 
+ * Usage: BatchLookupBenchmark [number of keys in the tree]
+ * 
+ * @author Richard Shu
+ */
+public class BatchLookupBenchmark {
+	private static final int[] BATCHES = {16, 256, 4_096, 65_536};
+	private static final int LOOKUPS = 2_000_000; // Keys looked up per measurement
+	
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		while (tree.size() < size) {
+			try {
+				tree.insert(random.nextInt(size * 2)); // Random order scatters the nodes over the heap
+			} catch (DuplicateItemException e) {
+				// Try another key
+			}
+		}
+		Integer[] keys = new Integer[LOOKUPS];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextInt(size * 2); // About half of the keys are in the tree
+		}
+		
+		System.out.println("---------- Batched lookup benchmark ----------");
+		System.out.printf("%,d keys in the tree, %,d lookups%n", size, LOOKUPS);
+		System.out.printf("%-10s %15s %15s %10s%n", "Batch", "find ns/key", "findAll ns/key", "speedup");
+		for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+			for (int batch : BATCHES) {
+				double single = single(tree, keys, batch);
+				double batched = batched(tree, keys, batch);
+				if (round == 1) {
+					System.out.printf("%-10d %15.0f %15.0f %9.2fx%n", batch, single, batched, single / batched);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Looks up the keys one at a time, a batch at a time.
+	 * 
+	 * @param tree the tree searched
+	 * @param keys the keys looked up
+	 * @param batch the number of keys per batch
+	 * @return the time per key in nanoseconds
+	 */
+	private static double single(RedBlackTree<Integer> tree, Integer[] keys, int batch) {
+		boolean[] out = new boolean[batch];
+		Integer[] slice = new Integer[batch];
+		int found = 0;
+		long start = System.nanoTime();
+		for (int from = 0; from + batch <= keys.length; from += batch) {
+			System.arraycopy(keys, from, slice, 0, batch);
+			for (int i = 0; i < batch; i++) {
+				out[i] = tree.find(slice[i]);
+				if (out[i]) {
+					found++;
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		return report(elapsed, keys.length / batch * batch, found);
+	}
+	
+	/**
+	 * Looks up the keys with findAll, a batch at a time.
+	 * 
+	 * @param tree the tree searched
+	 * @param keys the keys looked up
+	 * @param batch the number of keys per batch
+	 * @return the time per key in nanoseconds
+	 */
+	private static double batched(RedBlackTree<Integer> tree, Integer[] keys, int batch) {
+		boolean[] out = new boolean[batch];
+		Integer[] slice = new Integer[batch];
+		int found = 0;
+		long start = System.nanoTime();
+		for (int from = 0; from + batch <= keys.length; from += batch) {
+			System.arraycopy(keys, from, slice, 0, batch);
+			found += tree.findAll(slice, out);
+		}
+		long elapsed = System.nanoTime() - start;
+		return report(elapsed, keys.length / batch * batch, found);
+	}
+	
+	/**
+	 * Returns the time per key.
+	 * 
+	 * @param elapsed the time of the measurement in nanoseconds
+	 * @param lookups the number of keys looked up
+	 * @param found the number of keys found, which keeps the lookups from being optimized away
+	 * @return the time per key in nanoseconds
+	 */
+	private static double report(long elapsed, int lookups, int found) {
+		if (found == 42) {
+			System.out.println();
+		}
+		return (double) elapsed / lookups;
+	}
+}
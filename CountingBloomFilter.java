@@ -0,0 +1,379 @@
+package rbtree;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a counting Bloom filter that answers whether a key
+ * might be in a set. A "no" is always right, while a "yes" is wrong for a
+ * small fraction of the keys that are absent. Each key increments several
+ * 4-bit counters, so keys can be removed as well as added. A counter that
+ * reaches 15 sticks there, which can only cause false positives.
+ * 
+ * The filter is sized for an expected number of keys. Once it holds more,
+ * the owner hands it an iterator over a snapshot of its keys, and a filter
+ * twice as large is filled from it, either on a background thread or a few
+ * keys at a time as the owner calls step. Additions and removals made
+ * meanwhile are applied to the old filter, which keeps answering lookups,
+ * and queued for the new one, which replaces it when it is ready.
+ * 
+ * Keys must have a hashCode that is consistent with equals.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of the keys
+ */
+public class CountingBloomFilter<E> {
+	private static final int MIN_CAPACITY = 1024;
+	private static final int COUNTERS_PER_KEY = 10; // About 1% false positives at capacity
+	private static final int MAX_COUNT = 15;
+	private static final int STEP = 64; // Keys counted per call to step
+	
+	/**
+	 * This nested class holds the 4-bit counters, sixteen to a long.
+	 */
+	private static class Counters {
+		private final long[] words;
+		private final int mask; // The number of counters minus one
+		private final int hashes;
+		private final int capacity;
+		
+		/**
+		 * Allocates counters for the given number of keys.
+		 * 
+		 * @param capacity the number of keys the counters are sized for
+		 */
+		private Counters(int capacity) {
+			this.capacity = capacity;
+			long wanted = (long) capacity * COUNTERS_PER_KEY;
+			int counters = (int) Math.min(1 << 30, Long.highestOneBit(wanted - 1) << 1); // A power of two
+			mask = counters - 1;
+			words = new long[counters / 16];
+			hashes = Math.max(1, Math.min(8, (int) Math.round((double) counters / capacity * Math.log(2))));
+		}
+		
+		/**
+		 * Adds one to or subtracts one from the counters of a key.
+		 * 
+		 * @param hash the hash of the key
+		 * @param delta 1 or -1
+		 */
+		private void update(long hash, int delta) {
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32) | 1;
+			for (int i = 0; i < hashes; i++) {
+				int index = (h1 + i * h2) & mask;
+				int shift = (index & 15) << 2;
+				long count = (words[index >>> 4] >>> shift) & 0xF;
+				if (count == MAX_COUNT || (delta < 0 && count == 0)) {
+					continue; // Saturated counters are never changed again
+				}
+				words[index >>> 4] += (long) delta << shift;
+			}
+		}
+		
+		/**
+		 * Returns true if every counter of a key is above zero.
+		 * 
+		 * @param hash the hash of the key
+		 * @return false if the key was never added
+		 */
+		private boolean contains(long hash) {
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32) | 1;
+			for (int i = 0; i < hashes; i++) {
+				int index = (h1 + i * h2) & mask;
+				if (((words[index >>> 4] >>> ((index & 15) << 2)) & 0xF) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	private volatile Counters current;
+	private Counters next; // Being filled from a snapshot of the keys, or null
+	private ArrayList<E> pending = new ArrayList<>(); // Changes made while the next counters are filled
+	private BitSet pendingRemovals = new BitSet(); // Set for removals, clear for additions
+	private Iterator<E> source; // Keys a rebuild driven by step has yet to count, or null
+	private Runnable done; // Releases the keys of a rebuild driven by step, or null
+	private int generation = 0; // Incremented by clear so an old background fill is thrown away
+	private int size = 0;
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder definiteMisses = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+	private final LongAdder rebuilds = new LongAdder();
+	
+	/**
+	 * Constructs an empty filter sized for the given number of keys.
+	 * 
+	 * @param expected the number of keys the filter is expected to hold
+	 */
+	public CountingBloomFilter(int expected) {
+		current = new Counters(Math.max(MIN_CAPACITY, expected));
+	}
+	
+	/**
+	 * Adds a key to the filter.
+	 * 
+	 * @param key the key that was added to the set
+	 */
+	public synchronized void add(E key) {
+		current.update(hash(key), 1);
+		if (next != null) {
+			pendingRemovals.clear(pending.size());
+			pending.add(key);
+		}
+		size++;
+	}
+	
+	/**
+	 * Removes a key from the filter. The key must have been added before.
+	 * 
+	 * @param key the key that was removed from the set
+	 */
+	public synchronized void remove(E key) {
+		current.update(hash(key), -1);
+		if (next != null) {
+			pendingRemovals.set(pending.size());
+			pending.add(key);
+		}
+		size--;
+	}
+	
+	/**
+	 * Returns false if the key is definitely not in the set.
+	 * 
+	 * @param key the key being looked up
+	 * @return false if the key is absent and true if it might be present
+	 */
+	public boolean mightContain(E key) {
+		lookups.increment();
+		if (!current.contains(hash(key))) {
+			definiteMisses.increment();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Records that a key the filter let through turned out to be absent.
+	 */
+	public void falsePositive() {
+		falsePositives.increment();
+	}
+	
+	/**
+	 * Returns true when the filter holds more keys than it was sized for
+	 * and no larger filter is being built.
+	 * 
+	 * @return true if the owner should call rebuild
+	 */
+	public synchronized boolean needsRebuild() {
+		return size > current.capacity && next == null;
+	}
+	
+	/**
+	 * Starts filling a filter sized for twice the given number of keys. The
+	 * iterator must return exactly the keys that have been added and not
+	 * removed when rebuild is called, even while the set changes afterwards,
+	 * as a TreeSnapshot does. On a background thread the keys are read all at
+	 * once, so the iterator must be safe to use from another thread;
+	 * otherwise the owner reads them by calling step after every change.
+	 * 
+	 * @param keys the keys in the set
+	 * @param count the number of keys
+	 * @param background true to read the keys on a background thread
+	 * @param done called once the keys are no longer needed, or null
+	 */
+	public synchronized void rebuild(Iterator<E> keys, int count, boolean background, Runnable done) {
+		if (next != null) {
+			if (done != null) {
+				done.run();
+			}
+			return;
+		}
+		Counters counters = new Counters(Math.max(MIN_CAPACITY, count * 2));
+		next = counters;
+		if (!background) {
+			source = keys;
+			this.done = done;
+			return;
+		}
+		int startGeneration = generation;
+		Thread thread = new Thread(() -> {
+			try {
+				while (keys.hasNext()) {
+					counters.update(hash(keys.next()), 1);
+				}
+				synchronized (this) {
+					if (generation == startGeneration) { // Otherwise the filter was cleared meanwhile
+						replace(counters);
+					}
+				}
+			} finally {
+				if (done != null) {
+					done.run();
+				}
+			}
+		}, "bloom-filter-rebuild");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Counts the next few keys of a rebuild that is not on a background
+	 * thread, and puts the larger filter in place once every key is counted.
+	 * The owner calls it after each change, when its set is consistent again.
+	 */
+	public synchronized void step() {
+		if (source == null) {
+			return;
+		}
+		for (int i = 0; i < STEP && source.hasNext(); i++) {
+			next.update(hash(source.next()), 1);
+		}
+		if (!source.hasNext()) {
+			replace(next);
+			release();
+		}
+	}
+	
+	/**
+	 * Applies the queued changes to filled counters and puts them in place.
+	 * 
+	 * @param counters the counters filled from the keys
+	 */
+	private void replace(Counters counters) {
+		for (int i = 0; i < pending.size(); i++) {
+			counters.update(hash(pending.get(i)), pendingRemovals.get(i) ? -1 : 1);
+		}
+		pending.clear();
+		pendingRemovals.clear();
+		current = counters;
+		next = null;
+		rebuilds.increment();
+	}
+	
+	/**
+	 * Lets go of the keys of a rebuild driven by step.
+	 */
+	private void release() {
+		Runnable finished = done;
+		source = null;
+		done = null;
+		if (finished != null) {
+			finished.run();
+		}
+	}
+	
+	/**
+	 * Removes every key and abandons a rebuild in progress.
+	 */
+	public synchronized void clear() {
+		generation++;
+		next = null;
+		release();
+		pending.clear();
+		pendingRemovals.clear();
+		current = new Counters(MIN_CAPACITY);
+		size = 0;
+	}
+	
+	/**
+	 * Returns the number of keys in the filter.
+	 * 
+	 * @return the number of keys in the filter
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the number of keys the filter is sized for.
+	 * 
+	 * @return the number of keys the filter is sized for
+	 */
+	public int capacity() {
+		return current.capacity;
+	}
+	
+	/**
+	 * Returns the number of lookups.
+	 * 
+	 * @return the number of calls to mightContain
+	 */
+	public long lookups() {
+		return lookups.sum();
+	}
+	
+	/**
+	 * Returns the number of lookups the filter answered on its own.
+	 * 
+	 * @return the number of keys that were definitely absent
+	 */
+	public long definiteMisses() {
+		return definiteMisses.sum();
+	}
+	
+	/**
+	 * Returns the number of absent keys the filter let through.
+	 * 
+	 * @return the number of false positives recorded
+	 */
+	public long falsePositives() {
+		return falsePositives.sum();
+	}
+	
+	/**
+	 * Returns the fraction of absent keys the filter let through.
+	 * 
+	 * @return the observed false-positive rate, or 0 before any miss
+	 */
+	public double falsePositiveRate() {
+		long negatives = definiteMisses.sum() + falsePositives.sum();
+		return negatives == 0 ? 0 : (double) falsePositives.sum() / negatives;
+	}
+	
+	/**
+	 * Returns the false-positive rate predicted from the size of the filter
+	 * and the number of keys it holds.
+	 * 
+	 * @return the expected false-positive rate
+	 */
+	public synchronized double expectedFalsePositiveRate() {
+		Counters counters = current;
+		double fill = 1 - Math.exp(-(double) counters.hashes * size / (counters.mask + 1));
+		return Math.pow(fill, counters.hashes);
+	}
+	
+	/**
+	 * Returns the number of times the filter was replaced by a larger one.
+	 * 
+	 * @return the number of completed rebuilds
+	 */
+	public long rebuilds() {
+		return rebuilds.sum();
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%d keys, capacity %d, %d lookups, %d definite misses, %d false positives "
+				+ "(%.3f%% observed, %.3f%% expected), %d rebuilds", size(), capacity(), lookups(),
+				definiteMisses(), falsePositives(), falsePositiveRate() * 100,
+				expectedFalsePositiveRate() * 100, rebuilds());
+	}
+	
+	/**
+	 * Mixes the hash code of a key into 64 bits, from which the two base hashes are taken.
+	 * 
+	 * @param key the key being hashed
+	 * @return the mixed hash
+	 */
+	private static long hash(Object key) {
+		long z = key.hashCode() * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 32)) * 0xD6E8FEB86659FD93L;
+		return z ^ (z >>> 32);
+	}
+}
\ No newline at end of file
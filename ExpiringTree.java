@@ -0,0 +1,456 @@
+package rbtree;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * This class represents a Red-Black Tree whose keys may expire. A key
+ * inserted with a time to live stores its expiry time in its node and in a
+ * second tree ordered by expiry time, so the keys that expire next are
+ * always at the front of that tree.
+ * 
+ * An expired key reads as absent at once: find, range and iteration skip
+ * it, inserting it again replaces it, and deleting it fails. Its node is
+ * only unlinked later by the sweeper, which removes at most a given number
+ * of expired keys per call, so expiry never causes a long pause. The
+ * sweeper runs piggybacked on every insert and delete, or on a scheduler
+ * thread, or both. Reads never sweep, so they can share a read lock.
+ * 
+ * Times come from a clock, System.nanoTime unless another is given, and a
+ * time to live is in the clock's unit. The size counts expired keys that
+ * have not been swept yet.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class ExpiringTree<E extends Comparable<E>> extends RedBlackTree<E> {
+	private static final long NEVER = Long.MAX_VALUE; // The expiry time of a key without a time to live
+	
+	/**
+	 * This nested class represents a node that remembers when its key expires.
+	 */
+	protected static class ExpiringNode<E extends Comparable<E>> extends RBNode<E> {
+		protected long expiresAt = NEVER;
+		
+		/**
+		 * Constructs a red node holding the given data value.
+		 * 
+		 * @param data the data value stored in the node
+		 */
+		public ExpiringNode(E data) {
+			super(data, "R");
+		}
+	}
+	
+	/**
+	 * This nested class is an entry of the time-ordered tree. Entries are
+	 * ordered by expiry time, and keys break ties.
+	 */
+	private static class Expiry<E extends Comparable<E>> implements Comparable<Expiry<E>> {
+		private final long time;
+		private final E key;
+		
+		private Expiry(long time, E key) {
+			this.time = time;
+			this.key = key;
+		}
+		
+		@Override
+		public int compareTo(Expiry<E> other) {
+			int cmp = Long.compare(time, other.time);
+			return cmp != 0 ? cmp : key.compareTo(other.key);
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean equals(Object other) {
+			return other instanceof Expiry && compareTo((Expiry<E>) other) == 0;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Long.hashCode(time) * 31 + key.hashCode();
+		}
+	}
+	
+	private final RedBlackTree<Expiry<E>> expiries = new RedBlackTree<>();
+	private final LongSupplier clock;
+	private long pendingExpiry = NEVER; // Handed to initNode by insert(key, ttl)
+	private int sweepPerOperation = 4; // Expired keys swept by every insert and delete
+	private long swept = 0;
+	
+	/**
+	 * Constructs an initially empty tree timed by System.nanoTime.
+	 */
+	public ExpiringTree() {
+		this(System::nanoTime);
+	}
+	
+	/**
+	 * Constructs an initially empty tree timed by the given clock.
+	 * 
+	 * @param clock the source of the current time, which never goes backwards
+	 */
+	public ExpiringTree(LongSupplier clock) {
+		this.clock = clock;
+	}
+	
+	@Override
+	protected RBNode<E> newNode(E key) {
+		return new ExpiringNode<>(key);
+	}
+	
+	@Override
+	protected void initNode(RBNode<E> node) {
+		((ExpiringNode<E>) node).expiresAt = pendingExpiry;
+	}
+	
+	@Override
+	protected void moveData(RBNode<E> source, RBNode<E> target) {
+		super.moveData(source, target);
+		((ExpiringNode<E>) target).expiresAt = ((ExpiringNode<E>) source).expiresAt;
+	}
+	
+	/**
+	 * Inserts a key that never expires, replacing the key if it has expired.
+	 * 
+	 * @param key the item that will be inserted into the tree
+	 */
+	@Override
+	public void insert(E key) {
+		insertAt(key, NEVER);
+	}
+	
+	/**
+	 * Inserts a key that expires after the given time to live, replacing the
+	 * key if it has expired.
+	 * 
+	 * @param key the item that will be inserted into the tree
+	 * @param ttl how long the key lives, in the unit of the clock
+	 */
+	public void insert(E key, long ttl) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("The time to live cannot be negative.");
+		}
+		insertAt(key, expiryTime(ttl));
+	}
+	
+	/**
+	 * Inserts a key with the given expiry time, then sweeps.
+	 * 
+	 * @param key the item that will be inserted into the tree
+	 * @param expiresAt when the key expires, or NEVER
+	 */
+	private void insertAt(E key, long expiresAt) {
+		RBNode<E> node = super.search(key);
+		if (node != null && isExpired(node)) {
+			deleteNode(node); // Replaced, so it reads as absent until then
+		}
+		pendingExpiry = expiresAt;
+		try {
+			super.insert(key);
+		} finally {
+			pendingExpiry = NEVER;
+		}
+		if (expiresAt != NEVER) {
+			expiries.insert(new Expiry<>(expiresAt, key));
+		}
+		sweep(sweepPerOperation);
+	}
+	
+	/**
+	 * Gives a live key a new time to live.
+	 * 
+	 * @param key the item whose expiry time is changed
+	 * @param ttl how long the key lives from now, in the unit of the clock
+	 * @return true if the key was found and had not expired
+	 */
+	public boolean setTimeToLive(E key, long ttl) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("The time to live cannot be negative.");
+		}
+		ExpiringNode<E> node = (ExpiringNode<E>) search(key);
+		if (node == null) {
+			return false;
+		}
+		if (node.expiresAt != NEVER) {
+			expiries.delete(new Expiry<>(node.expiresAt, key));
+		}
+		node.expiresAt = expiryTime(ttl);
+		expiries.insert(new Expiry<>(node.expiresAt, key));
+		return true;
+	}
+	
+	/**
+	 * Returns the time left before the key expires.
+	 * 
+	 * @param key the item whose time to live is returned
+	 * @return the time left in the unit of the clock, Long.MAX_VALUE if the key never
+	 *         expires, or -1 if it is absent or has expired
+	 */
+	public long timeToLive(E key) {
+		ExpiringNode<E> node = (ExpiringNode<E>) search(key);
+		if (node == null) {
+			return -1;
+		}
+		return node.expiresAt == NEVER ? Long.MAX_VALUE : node.expiresAt - clock.getAsLong();
+	}
+	
+	/**
+	 * Deletes a live key, then sweeps. An expired key is unlinked but is
+	 * reported as not found, since it already reads as absent.
+	 * 
+	 * @param key the item that will be deleted from the tree
+	 */
+	@Override
+	public void delete(E key) {
+		RBNode<E> node = super.search(key);
+		if (node != null && isExpired(node)) {
+			deleteNode(node);
+			sweep(sweepPerOperation);
+			throw new NullPointerException("The item cannot be found in the tree.");
+		}
+		super.delete(key);
+		sweep(sweepPerOperation);
+	}
+	
+	@Override
+	protected void deleteNode(RBNode<E> node) {
+		long expiresAt = ((ExpiringNode<E>) node).expiresAt;
+		if (expiresAt != NEVER) {
+			expiries.delete(new Expiry<>(expiresAt, node.getData())); // Before removal moves data between nodes
+		}
+		super.deleteNode(node);
+	}
+	
+	/**
+	 * Returns the node that holds the key, or null if the key is absent or has expired.
+	 */
+	@Override
+	protected RBNode<E> search(E key) {
+		RBNode<E> node = super.search(key);
+		return node == null || isExpired(node) ? null : node;
+	}
+	
+	/**
+	 * Returns the nodes that hold a batch of keys, with null for the keys that are absent or have expired.
+	 */
+	@Override
+	protected RBNode<E>[] searchAll(E[] keys) {
+		RBNode<E>[] nodes = super.searchAll(keys);
+		long now = clock.getAsLong();
+		for (int i = 0; i < nodes.length; i++) {
+			if (nodes[i] != null && isExpired(nodes[i], now)) {
+				nodes[i] = null;
+			}
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Returns an ArrayList of the live nodes whose keys are between lo and hi (inclusive), in order.
+	 */
+	@Override
+	public ArrayList<RBNode<E>> range(E lo, E hi) {
+		ArrayList<RBNode<E>> nodes = super.range(lo, hi);
+		long now = clock.getAsLong();
+		nodes.removeIf(node -> isExpired(node, now));
+		return nodes;
+	}
+	
+	/**
+	 * Returns false if the node's key has expired.
+	 */
+	@Override
+	protected boolean isLive(RBNode<E> node) {
+		return !isExpired(node);
+	}
+	
+	/**
+	 * Returns a fail-fast iterator over the live keys in order. It supports removal.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private final long now = clock.getAsLong();
+			private int expectedModCount = modCount;
+			private RBNode<E> next = skipExpired(firstNode());
+			private E lastReturned;
+			
+			private RBNode<E> skipExpired(RBNode<E> node) {
+				while (node != null && isExpired(node, now)) {
+					node = successor(node);
+				}
+				return node;
+			}
+			
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+			
+			@Override
+			public E next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				lastReturned = next.getData();
+				next = skipExpired(successor(next));
+				return lastReturned;
+			}
+			
+			@Override
+			public void remove() {
+				if (lastReturned == null) {
+					throw new IllegalStateException();
+				}
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				deleteNode(ExpiringTree.super.search(lastReturned)); // Even if the key expired since it was returned
+				sweep(sweepPerOperation);
+				next = skipExpired(ceilingNode(lastReturned, false)); // The deletion and the sweep may have moved nodes
+				lastReturned = null;
+				expectedModCount = modCount;
+			}
+		};
+	}
+	
+	@Override
+	public void clear() {
+		super.clear();
+		expiries.clear();
+	}
+	
+	/**
+	 * Unlinks at most max expired keys, the ones that expired first.
+	 * 
+	 * @param max the largest number of keys removed
+	 * @return the number of keys removed
+	 */
+	public int sweep(int max) {
+		int removed = 0;
+		if (expiries.isEmpty()) {
+			return 0;
+		}
+		long now = clock.getAsLong();
+		while (removed < max) {
+			RBNode<Expiry<E>> first = expiries.firstNode();
+			if (first == null || first.getData().time - now > 0) {
+				break; // Nothing else has expired yet
+			}
+			deleteNode(super.search(first.getData().key)); // Also removes the entry of the time-ordered tree
+			removed++;
+		}
+		swept += removed;
+		return removed;
+	}
+	
+	/**
+	 * Sets the number of expired keys swept by every insert and delete.
+	 * 
+	 * @param count the number of keys swept per operation, or 0 to only sweep on demand
+	 */
+	public void setSweepPerOperation(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("The sweep count cannot be negative.");
+		}
+		sweepPerOperation = count;
+	}
+	
+	/**
+	 * Schedules a sweeper at a fixed rate. Each run sweeps batches of at most
+	 * the given size until nothing has expired, taking the write lock for one
+	 * batch at a time so that readers and writers get in between.
+	 * 
+	 * @param executor the scheduler that runs the sweeper
+	 * @param period the time between runs
+	 * @param unit the unit of the period
+	 * @param batch the largest number of keys swept while holding the lock
+	 * @param lock the lock that guards the tree, or null if it is only used by the scheduler
+	 * @return the future that cancels the sweeper
+	 */
+	public ScheduledFuture<?> scheduleSweeper(ScheduledExecutorService executor, long period, TimeUnit unit, int batch,
+			ReadWriteLock lock) {
+		if (batch <= 0) {
+			throw new IllegalArgumentException("The batch must hold at least one key.");
+		}
+		return executor.scheduleAtFixedRate(() -> {
+			int removed;
+			do {
+				if (lock != null) {
+					lock.writeLock().lock();
+				}
+				try {
+					removed = sweep(batch);
+				} finally {
+					if (lock != null) {
+						lock.writeLock().unlock();
+					}
+				}
+			} while (removed == batch);
+		}, period, period, unit);
+	}
+	
+	/**
+	 * Returns the number of keys waiting to expire or waiting to be swept.
+	 * 
+	 * @return the number of keys with a time to live
+	 */
+	public int expiringSize() {
+		return expiries.size();
+	}
+	
+	/**
+	 * Returns the number of expired keys the sweeper has removed.
+	 * 
+	 * @return the number of keys swept so far
+	 */
+	public long sweptCount() {
+		return swept;
+	}
+	
+	/**
+	 * Returns the expiry time of a key that lives for the given time from now.
+	 * 
+	 * @param ttl the time to live
+	 * @return the expiry time, capped below NEVER
+	 */
+	private long expiryTime(long ttl) {
+		long now = clock.getAsLong();
+		long time = now + ttl;
+		return time < now || time == NEVER ? NEVER - 1 : time; // Capped when the sum overflows
+	}
+	
+	/**
+	 * Returns true if the node's key has expired by now.
+	 * 
+	 * @param node a node of the tree
+	 * @return true if the key has expired
+	 */
+	private boolean isExpired(RBNode<E> node) {
+		return ((ExpiringNode<E>) node).expiresAt != NEVER && isExpired(node, clock.getAsLong());
+	}
+	
+	/**
+	 * Returns true if the node's key had expired at the given time.
+	 * 
+	 * @param node a node of the tree
+	 * @param now the time
+	 * @return true if the key had expired
+	 */
+	private boolean isExpired(RBNode<E> node, long now) {
+		long expiresAt = ((ExpiringNode<E>) node).expiresAt;
+		return expiresAt != NEVER && expiresAt - now <= 0;
+	}
+}
\ No newline at end of file
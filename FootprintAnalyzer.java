@@ -0,0 +1,319 @@
+package rbtree;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * Measures the heap retained per entry by RedBlackTree and compares it with
+ * TreeMap and with a few alternative node layouts. The retained size is the
+ * growth of the used heap, after full collections, while the structure is
+ * reachable. Keys are measured separately so the cost of the structure and
+ * the cost of the keys can be told apart. Ends with a capacity-planning
+ * table of the entries that fit in common heap sizes.
+ * 
+ * Run with a fixed heap (-Xms equal to -Xmx) and a serial collector for the
+ * steadiest numbers, for example -Xms2g -Xmx2g -XX:+UseSerialGC.
+ * 
+ * @author Richard Shu
+ */
+public class FootprintAnalyzer {
+	private static final int DEFAULT_ENTRIES = 1_000_000;
+	private static final long[] HEAP_BUDGETS = {256L << 20, 1L << 30, 4L << 30, 16L << 30};
+	private static Object retained; // Keeps the measured structure reachable
+	private static Comparable<?>[] liveKeys; // Keeps the keys reachable while the layouts are measured
+	
+	/**
+	 * This interface builds one layout of a tree from a sorted array of keys.
+	 */
+	private interface Layout {
+		String name();
+		
+		/**
+		 * Returns true if the layout copies the keys into its own storage,
+		 * so the key objects are not part of its footprint.
+		 */
+		default boolean ownsKeys() {
+			return false;
+		}
+		
+		<E extends Comparable<E>> Object build(E[] keys);
+	}
+	
+	/**
+	 * This nested class is the node of a layout that stores the color in a boolean.
+	 */
+	private static class BooleanColorNode {
+		private Object data;
+		private boolean red;
+		private BooleanColorNode left;
+		private BooleanColorNode right;
+		private BooleanColorNode parent;
+	}
+	
+	/**
+	 * This nested class is a layout that stores the links as indices into
+	 * parallel arrays and the colors in a bit set.
+	 */
+	private static class ArrayTree {
+		private Object[] data;
+		private int[] keys; // Used instead of data when the keys are copied as ints
+		private int[] left;
+		private int[] right;
+		private int[] parent;
+		private long[] red;
+	}
+	
+	public static void main(String[] args) {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+		
+		ArrayList<Layout> layouts = new ArrayList<>();
+		layouts.add(new Layout() {
+			public String name() {
+				return "RedBlackTree";
+			}
+			public <E extends Comparable<E>> Object build(E[] keys) {
+				RedBlackTree<E> tree = new RedBlackTree<>();
+				for (E key : keys) {
+					tree.insert(key);
+				}
+				return tree;
+			}
+		});
+		layouts.add(new Layout() {
+			public String name() {
+				return "TreeMap";
+			}
+			public <E extends Comparable<E>> Object build(E[] keys) {
+				TreeMap<E, Boolean> map = new TreeMap<>(); // Used as a set, as TreeSet does
+				for (E key : keys) {
+					map.put(key, Boolean.TRUE);
+				}
+				return map;
+			}
+		});
+		layouts.add(new Layout() {
+			public String name() {
+				return "boolean color";
+			}
+			public <E extends Comparable<E>> Object build(E[] keys) {
+				return booleanColorTree(keys, 0, keys.length - 1, null);
+			}
+		});
+		layouts.add(new Layout() {
+			public String name() {
+				return "top-down tree";
+			}
+			public <E extends Comparable<E>> Object build(E[] keys) {
+				TopDownRedBlackTree<E> tree = new TopDownRedBlackTree<>();
+				for (E key : keys) {
+					tree.insert(key);
+				}
+				return tree;
+			}
+		});
+		layouts.add(new Layout() {
+			public String name() {
+				return "parallel arrays";
+			}
+			public <E extends Comparable<E>> Object build(E[] keys) {
+				ArrayTree tree = arrayTree(keys.length);
+				tree.data = keys.clone();
+				return tree;
+			}
+		});
+		layouts.add(new Layout() {
+			public String name() {
+				return "int arrays";
+			}
+			public boolean ownsKeys() {
+				return true;
+			}
+			public <E extends Comparable<E>> Object build(E[] keys) {
+				if (!(keys[0] instanceof Integer)) {
+					return null; // Only applies to Integer keys
+				}
+				ArrayTree tree = arrayTree(keys.length);
+				tree.keys = new int[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					tree.keys[i] = (Integer) keys[i];
+				}
+				return tree;
+			}
+		});
+		
+		System.out.println("---------- Footprint analyzer ----------");
+		System.out.printf("%,d entries, java %s, compressed oops %s%n", entries,
+				System.getProperty("java.version"), vmOption("UseCompressedOops"));
+		System.out.printf("%-16s %-12s %14s %14s %14s%n", "Layout", "Keys", "structure B/e", "keys B/e", "total B/e");
+		
+		String[] keyNames = {"Integer", "Long", "String(8)", "String(32)"};
+		double[][] totals = new double[layouts.size()][keyNames.length];
+		for (int k = 0; k < keyNames.length; k++) {
+			long before = usedHeap();
+			liveKeys = keys(keyNames[k], entries); // Not held in a local, which would outlive the loop
+			double keyBytes = (double) (usedHeap() - before) / entries;
+			for (int l = 0; l < layouts.size(); l++) {
+				double structureBytes = measure(layouts.get(l), liveKeys);
+				if (Double.isNaN(structureBytes)) {
+					totals[l][k] = Double.NaN;
+					continue;
+				}
+				totals[l][k] = layouts.get(l).ownsKeys() ? structureBytes : structureBytes + keyBytes;
+				System.out.printf("%-16s %-12s %14.1f %14.1f %14.1f%n", layouts.get(l).name(), keyNames[k],
+						structureBytes, layouts.get(l).ownsKeys() ? 0.0 : keyBytes, totals[l][k]);
+			}
+			liveKeys = null;
+		}
+		
+		System.out.println();
+		System.out.println("---------- Capacity planning (entries per heap, keys included) ----------");
+		System.out.printf("%-16s %-12s", "Layout", "Keys");
+		for (long budget : HEAP_BUDGETS) {
+			System.out.printf(" %14s", (budget >> 20) + " MB");
+		}
+		System.out.println();
+		for (int l = 0; l < layouts.size(); l++) {
+			for (int k = 0; k < keyNames.length; k++) {
+				if (Double.isNaN(totals[l][k])) {
+					continue;
+				}
+				System.out.printf("%-16s %-12s", layouts.get(l).name(), keyNames[k]);
+				for (long budget : HEAP_BUDGETS) {
+					System.out.printf(" %,14d", (long) (budget / totals[l][k]));
+				}
+				System.out.println();
+			}
+		}
+	}
+	
+	/**
+	 * Builds a layout and returns the heap it retains per entry. The keys are
+	 * reachable before and after the build, so only the structure is counted.
+	 * Every layout is built from sorted keys; the shape of a tree does not
+	 * change how many objects it holds.
+	 * 
+	 * @param layout the layout being measured
+	 * @param keys the sorted keys stored in the layout
+	 * @return the retained bytes per entry, or NaN if the layout does not apply to the keys
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static double measure(Layout layout, Comparable[] keys) {
+		long before = usedHeap();
+		retained = layout.build(keys);
+		if (retained == null) {
+			return Double.NaN;
+		}
+		long after = usedHeap();
+		retained = null;
+		return (double) (after - before) / keys.length;
+	}
+	
+	/**
+	 * Creates sorted keys of the given type.
+	 * 
+	 * @param type Integer, Long, String(8) or String(32)
+	 * @param entries the number of keys
+	 * @return the sorted keys
+	 */
+	private static Comparable<?>[] keys(String type, int entries) {
+		switch (type) {
+		case "Integer":
+			Integer[] ints = new Integer[entries];
+			for (int i = 0; i < entries; i++) {
+				ints[i] = 1_000 + i; // Outside the Integer cache
+			}
+			return ints;
+		case "Long":
+			Long[] longs = new Long[entries];
+			for (int i = 0; i < entries; i++) {
+				longs[i] = 1_000L + i;
+			}
+			return longs;
+		default:
+			int length = type.equals("String(8)") ? 8 : 32;
+			String[] strings = new String[entries];
+			for (int i = 0; i < entries; i++) {
+				String digits = Integer.toString(i);
+				StringBuilder key = new StringBuilder(length);
+				for (int j = digits.length(); j < length; j++) {
+					key.append('0'); // Zero padding keeps the numeric order
+				}
+				strings[i] = key.append(digits).toString();
+			}
+			return strings;
+		}
+	}
+	
+	/**
+	 * Builds a balanced tree of boolean color nodes over a sorted range of keys.
+	 * 
+	 * @param keys the sorted keys
+	 * @param low the index of the first key in the range
+	 * @param high the index of the last key in the range
+	 * @param parent the parent of the subtree
+	 * @return the root of the subtree
+	 */
+	private static BooleanColorNode booleanColorTree(Object[] keys, int low, int high, BooleanColorNode parent) {
+		if (low > high) {
+			return null;
+		}
+		int middle = (low + high) >>> 1;
+		BooleanColorNode node = new BooleanColorNode();
+		node.data = keys[middle];
+		node.parent = parent;
+		node.left = booleanColorTree(keys, low, middle - 1, node);
+		node.right = booleanColorTree(keys, middle + 1, high, node);
+		return node;
+	}
+	
+	/**
+	 * Allocates the link and color arrays of an array layout.
+	 * 
+	 * @param entries the number of entries
+	 * @return the layout without keys
+	 */
+	private static ArrayTree arrayTree(int entries) {
+		ArrayTree tree = new ArrayTree();
+		tree.left = new int[entries];
+		tree.right = new int[entries];
+		tree.parent = new int[entries];
+		tree.red = new long[(entries + 63) / 64];
+		return tree;
+	}
+	
+	/**
+	 * Returns the used heap after the garbage collector has settled.
+	 * 
+	 * @return the used heap in bytes
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) { // Some collectors need more than one request to free everything
+			System.gc();
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+	
+	/**
+	 * Returns the value of a HotSpot option.
+	 * 
+	 * @param name the name of the option
+	 * @return the value of the option, or "unknown" on other virtual machines
+	 */
+	private static String vmOption(String name) {
+		try {
+			return ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class)
+					.getVMOption(name).getValue();
+		} catch (RuntimeException e) {
+			return "unknown";
+		}
+	}
+}
\ No newline at end of file
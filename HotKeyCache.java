@@ -0,0 +1,195 @@
+package rbtree;
+
+import java.util.HashMap;
+
+/**
+ * This class represents a bounded cache that maps recently looked up keys
+ * to the nodes holding them, so a lookup of a hot key skips the descent.
+ * The tree caches a miss by mapping the key to its NIL sentinel.
+ * Entries are evicted with the CLOCK algorithm: every entry has a
+ * referenced bit that a hit sets, and the clock hand clears bits as it
+ * sweeps until it reaches an entry whose bit is already clear. New entries
+ * start with a clear bit, so keys that are looked up only once are the
+ * first to go.
+ * 
+ * The tree invalidates the entry of every key that is inserted, whose node
+ * is unlinked, or whose data moves to another node. The methods are synchronized because
+ * lookups change the cache and may run concurrently.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class HotKeyCache<E extends Comparable<E>> {
+	private final int capacity;
+	private final HashMap<E, Integer> slots; // Maps a key to its slot in the arrays below
+	private final Object[] keys;
+	private final RBNode<E>[] nodes;
+	private final boolean[] referenced;
+	private final int[] free; // Slots emptied by invalidation
+	private int freeCount = 0;
+	private int used = 0; // Slots handed out at least once
+	private int hand = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	
+	/**
+	 * Constructs an empty cache.
+	 * 
+	 * @param capacity the largest number of keys the cache holds
+	 */
+	@SuppressWarnings("unchecked")
+	public HotKeyCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be at least one.");
+		}
+		this.capacity = capacity;
+		slots = new HashMap<>(capacity * 2);
+		keys = new Object[capacity];
+		nodes = (RBNode<E>[]) new RBNode<?>[capacity];
+		referenced = new boolean[capacity];
+		free = new int[capacity];
+	}
+	
+	/**
+	 * Returns the node cached for a key and marks the entry as referenced.
+	 * 
+	 * @param key the key being looked up
+	 * @return the node holding the key, or null on a miss
+	 */
+	public synchronized RBNode<E> get(E key) {
+		Integer slot = slots.get(key);
+		if (slot == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		referenced[slot] = true;
+		return nodes[slot];
+	}
+	
+	/**
+	 * Caches the node holding a key, evicting another entry if the cache is full.
+	 * 
+	 * @param key the key that was looked up
+	 * @param node the node holding the key
+	 */
+	public synchronized void put(E key, RBNode<E> node) {
+		Integer existing = slots.get(key);
+		if (existing != null) {
+			nodes[existing] = node;
+			return;
+		}
+		int slot;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+		}
+		else if (used < capacity) {
+			slot = used++;
+		}
+		else {
+			while (referenced[hand]) { // Give every referenced entry a second chance
+				referenced[hand] = false;
+				hand = hand + 1 == capacity ? 0 : hand + 1;
+			}
+			slot = hand;
+			hand = hand + 1 == capacity ? 0 : hand + 1;
+			slots.remove(keys[slot]);
+			evictions++;
+		}
+		keys[slot] = key;
+		nodes[slot] = node;
+		referenced[slot] = false;
+		slots.put(key, slot);
+	}
+	
+	/**
+	 * Removes the entry of a key, if there is one.
+	 * 
+	 * @param key the key whose node is no longer valid
+	 */
+	public synchronized void invalidate(E key) {
+		Integer slot = slots.remove(key);
+		if (slot != null) {
+			keys[slot] = null;
+			nodes[slot] = null;
+			referenced[slot] = false;
+			free[freeCount++] = slot;
+		}
+	}
+	
+	/**
+	 * Removes every entry. The metrics are kept.
+	 */
+	public synchronized void clear() {
+		slots.clear();
+		for (int i = 0; i < used; i++) {
+			keys[i] = null;
+			nodes[i] = null;
+			referenced[i] = false;
+		}
+		used = 0;
+		freeCount = 0;
+		hand = 0;
+	}
+	
+	/**
+	 * Returns the number of keys in the cache.
+	 * 
+	 * @return the number of keys in the cache
+	 */
+	public synchronized int size() {
+		return slots.size();
+	}
+	
+	/**
+	 * Returns the largest number of keys the cache holds.
+	 * 
+	 * @return the capacity of the cache
+	 */
+	public int capacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Returns the number of lookups answered by the cache.
+	 * 
+	 * @return the number of hits
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of lookups that had to descend the tree.
+	 * 
+	 * @return the number of misses
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+	
+	/**
+	 * Returns the fraction of lookups answered by the cache.
+	 * 
+	 * @return the hit rate, or 0 before any lookup
+	 */
+	public synchronized double hitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+	
+	/**
+	 * Returns the number of entries evicted to make room for others.
+	 * 
+	 * @return the number of evictions
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return String.format("%d/%d keys, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+				size(), capacity, hits, misses, hitRate() * 100, evictions);
+	}
+}
\ No newline at end of file
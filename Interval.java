@@ -0,0 +1,87 @@
+package rbtree;
+
+/**
+ * This class represents a closed interval [start, end] stored in an IntervalTree. 
+ * Intervals are ordered by their start and then by their end.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of the interval endpoints
+ * @see IntervalTree
+ */
+public class Interval<E extends Comparable<E>> implements Comparable<Interval<E>> {
+	private final E start;
+	private final E end;
+	
+	/**
+	 * Constructs the interval [start, end].
+	 * 
+	 * @param start the smallest point of the interval
+	 * @param end the largest point of the interval
+	 */
+	public Interval(E start, E end) {
+		if (start.compareTo(end) > 0) {
+			throw new IllegalArgumentException("The start of an interval cannot be after its end.");
+		}
+		this.start = start;
+		this.end = end;
+	}
+	
+	/**
+	 * Returns the smallest point of the interval.
+	 * 
+	 * @return the smallest point of the interval
+	 */
+	public E getStart() {
+		return start;
+	}
+	
+	/**
+	 * Returns the largest point of the interval.
+	 * 
+	 * @return the largest point of the interval
+	 */
+	public E getEnd() {
+		return end;
+	}
+	
+	/**
+	 * Returns true if the interval shares at least one point with [lo, hi].
+	 * 
+	 * @param lo the smallest point of the other interval
+	 * @param hi the largest point of the other interval
+	 * @return true if the intervals overlap
+	 */
+	public boolean overlaps(E lo, E hi) {
+		return start.compareTo(hi) <= 0 && end.compareTo(lo) >= 0;
+	}
+	
+	@Override
+	public int compareTo(Interval<E> other) {
+		int result = start.compareTo(other.start);
+		if (result == 0) {
+			result = end.compareTo(other.end);
+		}
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Interval)) {
+			return false;
+		}
+		Interval<?> interval = (Interval<?>) other;
+		return start.equals(interval.start) && end.equals(interval.end);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * start.hashCode() + end.hashCode();
+	}
+	
+	/**
+	 * Returns the interval in the form [start, end].
+	 */
+	public String toString() {
+		return "[" + start + ", " + end + "]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package rbtree;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * This class represents an interval tree built on a Red-Black Tree. 
+ * The intervals are keyed by their start and every node caches the 
+ * largest end point in its subtree, which lets the overlap queries 
+ * skip every subtree that cannot contain a result.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of the interval endpoints
+ * @see Interval
+ */
+public class IntervalTree<E extends Comparable<E>> extends AggregateTree<Interval<E>, E> {
+	
+	/**
+	 * Constructs an initially empty interval tree.
+	 */
+	public IntervalTree() {
+		super(Aggregate.of(null, Interval::getEnd, IntervalTree::maxEnd));
+	}
+	
+	/**
+	 * Initializes an interval tree with an array.
+	 * 
+	 * @param array an array of intervals used to initialize the tree
+	 */
+	public IntervalTree(Interval<E>[] array) {
+		this();
+		for (int i = 0; i < array.length; i++) {
+			insert(array[i]);
+		}
+	}
+	
+	/**
+	 * Returns the larger of two end points. Null stands for an empty subtree.
+	 * 
+	 * @param a an end point, or null
+	 * @param b an end point, or null
+	 * @return the larger end point, or null if both are null
+	 */
+	private static <E extends Comparable<E>> E maxEnd(E a, E b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		return a.compareTo(b) >= 0 ? a : b;
+	}
+	
+	/**
+	 * Adds the interval [start, end] to the tree.
+	 * 
+	 * @param start the smallest point of the interval
+	 * @param end the largest point of the interval
+	 */
+	public void insert(E start, E end) {
+		insert(new Interval<>(start, end));
+	}
+	
+	/**
+	 * Removes the interval [start, end] from the tree.
+	 * 
+	 * @param start the smallest point of the interval
+	 * @param end the largest point of the interval
+	 */
+	public void delete(E start, E end) {
+		delete(new Interval<>(start, end));
+	}
+	
+	/**
+	 * Passes every interval that overlaps [lo, hi] to the action in order of 
+	 * their start. Takes O((k + 1) log n) time for k results and never builds a list. 
+	 * The query is one in-order walk: a subtree is skipped when its largest 
+	 * end is before lo, and the walk stops at the first start after hi, so 
+	 * every node visited is on the path to a result or to the stopping point. 
+	 * A tree keyed by start cannot do better than that in the worst case; 
+	 * O(log n + k) would take a priority search tree or a centered interval 
+	 * tree instead of an augmented red-black tree.
+	 * 
+	 * @param lo the smallest point of the query window
+	 * @param hi the largest point of the query window
+	 * @param action the action performed on each overlapping interval
+	 */
+	public void overlapping(E lo, E hi, Consumer<? super Interval<E>> action) {
+		if (!isEmpty()) {
+			overlapping(root, lo, hi, action);
+		}
+	}
+	
+	/**
+	 * Returns an ArrayList of every interval that overlaps [lo, hi], in order of their start.
+	 * 
+	 * @param lo the smallest point of the query window
+	 * @param hi the largest point of the query window
+	 * @return an ArrayList of the overlapping intervals
+	 */
+	public ArrayList<Interval<E>> overlapping(E lo, E hi) {
+		ArrayList<Interval<E>> list = new ArrayList<>();
+		overlapping(lo, hi, list::add);
+		return list;
+	}
+	
+	/**
+	 * Passes every interval that contains the point to the action in order of their start. 
+	 * Takes O((k + 1) log n) time for k results, like overlapping.
+	 * 
+	 * @param point the point being stabbed
+	 * @param action the action performed on each interval containing the point
+	 */
+	public void stab(E point, Consumer<? super Interval<E>> action) {
+		overlapping(point, point, action);
+	}
+	
+	/**
+	 * Returns an ArrayList of every interval that contains the point, in order of their start.
+	 * 
+	 * @param point the point being stabbed
+	 * @return an ArrayList of the intervals containing the point
+	 */
+	public ArrayList<Interval<E>> stab(E point) {
+		return overlapping(point, point);
+	}
+	
+	/**
+	 * Searches the subtree rooted at the given node for intervals that overlap [lo, hi]. 
+	 * This is a helper method for the overlapping method.
+	 * 
+	 * @param node the root of the subtree
+	 * @param lo the smallest point of the query window
+	 * @param hi the largest point of the query window
+	 * @param action the action performed on each overlapping interval
+	 */
+	private void overlapping(RBNode<Interval<E>> node, E lo, E hi, Consumer<? super Interval<E>> action) {
+		while (node != NIL && valueOf(node).compareTo(lo) >= 0) { // Nothing in the subtree ends at or after lo otherwise
+			overlapping(node.left, lo, hi, action);
+			Interval<E> interval = node.getData();
+			if (interval.getStart().compareTo(hi) > 0) {
+				return; // The interval and everything to its right start after hi
+			}
+			if (interval.getEnd().compareTo(lo) >= 0) {
+				action.accept(interval);
+			}
+			node = node.right; // Loop instead of recursing on the right subtree
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,343 @@
+package rbtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class loads newline-delimited key files into a tree. The file is
+ * split at line boundaries into chunks that are memory-mapped and parsed
+ * on a thread pool. Integer keys are parsed straight from the mapped bytes
+ * into int arrays, so no String is created for them; each key is boxed
+ * only as it goes into the tree. String keys are decoded from the mapped
+ * bytes without a line reader.
+ * 
+ * When the whole file is in strictly increasing order and the tree is
+ * empty, the tree is built in one pass with buildFromSorted. Otherwise the
+ * keys are inserted in file order and duplicates are skipped. Blank lines
+ * are skipped and a trailing carriage return is ignored.
+ * 
+ * @author Richard Shu
+ * @see RedBlackTree#buildFromSorted(Iterator, int)
+ */
+public class KeyFileLoader {
+	private static final long MAX_CHUNK = 1L << 30; // A mapping holds at most Integer.MAX_VALUE bytes
+	private static final long MIN_CHUNK = 1L << 20; // Smaller files are not worth splitting further
+	
+	/**
+	 * This interface parses the lines of one mapped chunk.
+	 */
+	private interface ChunkParser<T> {
+		T parse(MappedByteBuffer buffer, long offset);
+	}
+	
+	/**
+	 * This nested class holds the keys parsed from one chunk.
+	 */
+	private static class IntChunk {
+		private int[] keys = new int[1024];
+		private int count = 0;
+		private boolean sorted = true; // True if the keys are strictly increasing
+		
+		private void add(int key) {
+			if (count > 0 && key <= keys[count - 1]) {
+				sorted = false;
+			}
+			if (count == keys.length) {
+				keys = Arrays.copyOf(keys, count * 2);
+			}
+			keys[count++] = key;
+		}
+	}
+	
+	/**
+	 * This nested class holds the keys parsed from one chunk.
+	 */
+	private static class StringChunk {
+		private ArrayList<String> keys = new ArrayList<>();
+		private boolean sorted = true; // True if the keys are strictly increasing
+		
+		private void add(String key) {
+			if (!keys.isEmpty() && key.compareTo(keys.get(keys.size() - 1)) <= 0) {
+				sorted = false;
+			}
+			keys.add(key);
+		}
+	}
+	
+	/**
+	 * Loads a file with one integer per line into a tree.
+	 * 
+	 * @param file the file that will be read
+	 * @param tree the tree that receives the keys
+	 * @return the number of keys added to the tree
+	 * @throws IOException if the file cannot be read
+	 * @throws NumberFormatException if a line is not an integer
+	 */
+	public static int loadIntegers(Path file, RedBlackTree<Integer> tree) throws IOException {
+		List<IntChunk> chunks = parse(file, KeyFileLoader::parseIntegers);
+		int total = 0;
+		boolean sorted = true;
+		IntChunk previous = null;
+		for (IntChunk chunk : chunks) {
+			total += chunk.count;
+			if (chunk.count == 0) {
+				continue;
+			}
+			sorted &= chunk.sorted && (previous == null || previous.keys[previous.count - 1] < chunk.keys[0]);
+			previous = chunk;
+		}
+		Iterator<Integer> keys = new Iterator<Integer>() {
+			private int chunk = 0;
+			private int index = 0;
+			
+			@Override
+			public boolean hasNext() {
+				while (chunk < chunks.size() && index == chunks.get(chunk).count) {
+					chunk++;
+					index = 0;
+				}
+				return chunk < chunks.size();
+			}
+			
+			@Override
+			public Integer next() {
+				hasNext();
+				return chunks.get(chunk).keys[index++];
+			}
+		};
+		return feed(tree, keys, total, sorted);
+	}
+	
+	/**
+	 * Loads a file with one string per line, encoded in UTF-8, into a tree.
+	 * 
+	 * @param file the file that will be read
+	 * @param tree the tree that receives the keys
+	 * @return the number of keys added to the tree
+	 * @throws IOException if the file cannot be read
+	 */
+	public static int loadStrings(Path file, RedBlackTree<String> tree) throws IOException {
+		List<StringChunk> chunks = parse(file, KeyFileLoader::parseStrings);
+		ArrayList<String> all = new ArrayList<>();
+		boolean sorted = true;
+		for (StringChunk chunk : chunks) {
+			if (chunk.keys.isEmpty()) {
+				continue;
+			}
+			sorted &= chunk.sorted && (all.isEmpty() || all.get(all.size() - 1).compareTo(chunk.keys.get(0)) < 0);
+			all.addAll(chunk.keys);
+			chunk.keys = null; // Lets the chunk's list be collected while the tree is built
+		}
+		return feed(tree, all.iterator(), all.size(), sorted);
+	}
+	
+	/**
+	 * Adds the parsed keys to the tree, with a bulk build when that is possible.
+	 * 
+	 * @param tree the tree that receives the keys
+	 * @param keys the keys in file order
+	 * @param count the number of keys
+	 * @param sorted true if the keys are strictly increasing
+	 * @return the number of keys added to the tree
+	 */
+	private static <E extends Comparable<E>> int feed(RedBlackTree<E> tree, Iterator<E> keys, int count,
+			boolean sorted) {
+		if (sorted && tree.isEmpty()) {
+			tree.buildFromSorted(keys, count);
+			return count;
+		}
+		int added = 0;
+		while (keys.hasNext()) {
+			try {
+				tree.insert(keys.next());
+				added++;
+			} catch (DuplicateItemException e) {
+				// Duplicates are skipped
+			}
+		}
+		return added;
+	}
+	
+	/**
+	 * Splits the file at line boundaries, maps every chunk and parses the
+	 * chunks on a thread pool.
+	 * 
+	 * @param file the file that will be read
+	 * @param parser the parser applied to every chunk
+	 * @return the parsed chunks in file order
+	 * @throws IOException if the file cannot be read
+	 */
+	private static <T> List<T> parse(Path file, ChunkParser<T> parser) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			int threads = Runtime.getRuntime().availableProcessors();
+			long chunkSize = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, (size + threads - 1) / threads));
+			ArrayList<Long> bounds = new ArrayList<>();
+			bounds.add(0L);
+			long start = 0;
+			while (start < size) {
+				long end = nextLine(channel, Math.min(size, start + chunkSize), size);
+				bounds.add(end);
+				start = end;
+			}
+			
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, bounds.size() - 1)));
+			try {
+				ArrayList<Future<T>> futures = new ArrayList<>();
+				for (int i = 0; i + 1 < bounds.size(); i++) {
+					long offset = bounds.get(i);
+					long length = bounds.get(i + 1) - offset;
+					if (length > Integer.MAX_VALUE) {
+						throw new IOException("A line near byte " + offset + " is too long.");
+					}
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+					Callable<T> task = () -> parser.parse(buffer, offset);
+					futures.add(executor.submit(task));
+				}
+				ArrayList<T> chunks = new ArrayList<>();
+				for (Future<T> future : futures) {
+					chunks.add(future.get());
+				}
+				return chunks;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while parsing " + file, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the position just after the first newline at or after the given position.
+	 * 
+	 * @param channel the file
+	 * @param position where the search starts
+	 * @param size the size of the file
+	 * @return the start of the next line, or the size of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+	
+	/**
+	 * Parses one integer per line from the mapped bytes.
+	 * 
+	 * @param buffer the mapped chunk, which starts at a line
+	 * @param offset the position of the chunk in the file
+	 * @return the parsed keys
+	 */
+	private static IntChunk parseIntegers(MappedByteBuffer buffer, long offset) {
+		IntChunk chunk = new IntChunk();
+		int limit = buffer.limit();
+		int i = 0;
+		while (i < limit) {
+			int lineStart = i;
+			boolean sign = false;
+			boolean negative = false;
+			boolean digits = false;
+			long value = 0;
+			byte b = buffer.get(i);
+			if (b == '-' || b == '+') {
+				sign = true;
+				negative = b == '-';
+				i++;
+			}
+			while (i < limit && (b = buffer.get(i)) >= '0' && b <= '9') {
+				value = value * 10 + (b - '0');
+				if (value > 1L + Integer.MAX_VALUE) {
+					throw new NumberFormatException("Integer out of range at byte " + (offset + lineStart));
+				}
+				digits = true;
+				i++;
+			}
+			while (i < limit && ((b = buffer.get(i)) == '\r' || b == ' ' || b == '\t')) {
+				i++;
+			}
+			if (i < limit && buffer.get(i) != '\n') {
+				throw new NumberFormatException("Not an integer at byte " + (offset + lineStart));
+			}
+			i++; // Skips the newline
+			if (digits) {
+				value = negative ? -value : value;
+				if (value > Integer.MAX_VALUE) {
+					throw new NumberFormatException("Integer out of range at byte " + (offset + lineStart));
+				}
+				chunk.add((int) value);
+			}
+			else if (sign) { // Blank lines are skipped, but a lone sign is not
+				throw new NumberFormatException("Not an integer at byte " + (offset + lineStart));
+			}
+		}
+		return chunk;
+	}
+	
+	/**
+	 * Decodes one string per line from the mapped bytes.
+	 * 
+	 * @param buffer the mapped chunk, which starts at a line
+	 * @param offset the position of the chunk in the file
+	 * @return the parsed keys
+	 */
+	private static StringChunk parseStrings(MappedByteBuffer buffer, long offset) {
+		StringChunk chunk = new StringChunk();
+		byte[] line = new byte[256];
+		int limit = buffer.limit();
+		int i = 0;
+		while (i < limit) {
+			int lineStart = i;
+			while (i < limit && buffer.get(i) != '\n') {
+				i++;
+			}
+			int end = i;
+			if (end > lineStart && buffer.get(end - 1) == '\r') {
+				end--;
+			}
+			i++; // Skips the newline
+			int length = end - lineStart;
+			if (length == 0) {
+				continue;
+			}
+			if (length > line.length) {
+				line = new byte[Math.max(length, line.length * 2)];
+			}
+			buffer.get(lineStart, line, 0, length);
+			chunk.add(new String(line, 0, length, StandardCharsets.UTF_8));
+		}
+		return chunk;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package rbtree;
+
+/**
+ * This class represents a histogram of latencies in nanoseconds with 
+ * HDR-style log-linear buckets. Values below 128 are counted exactly and 
+ * larger values fall into one of 64 buckets per power of two, so every 
+ * reported value is within 1.6% of the recorded one. Recording a value 
+ * only increments an array element and never allocates.
+ * 
+ * A histogram is not thread-safe. Each thread records into its own 
+ * histogram and the histograms are merged afterwards.
+ * 
+ * @author Richard Shu
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKETS = 128; // Values below this are counted exactly
+	private static final int HALF = SUB_BUCKETS / 2; // Buckets per power of two above that
+	private static final int SUB_BUCKET_BITS = 7;
+	private final long[] counts = new long[SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF];
+	private long total = 0;
+	private long max = 0;
+	private long sum = 0;
+	
+	/**
+	 * Constructs an initially empty histogram.
+	 */
+	public LatencyHistogram() {}
+	
+	/**
+	 * Counts one value.
+	 * 
+	 * @param value the value in nanoseconds
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts[index(value)]++;
+		total++;
+		sum += value;
+		if (value > max) {
+			max = value;
+		}
+	}
+	
+	/**
+	 * Adds every value counted by another histogram to this one.
+	 * 
+	 * @param other the histogram whose values are added
+	 */
+	public void merge(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+	
+	/**
+	 * Returns the number of values counted.
+	 * 
+	 * @return the number of values counted
+	 */
+	public long count() {
+		return total;
+	}
+	
+	/**
+	 * Returns the largest value counted.
+	 * 
+	 * @return the largest value counted
+	 */
+	public long max() {
+		return max;
+	}
+	
+	/**
+	 * Returns the mean of the values counted.
+	 * 
+	 * @return the mean of the values counted, or 0 if the histogram is empty
+	 */
+	public double mean() {
+		return total == 0 ? 0 : (double) sum / total;
+	}
+	
+	/**
+	 * Returns the value below which the given percentage of the values fall.
+	 * 
+	 * @param percentile a percentage between 0 and 100
+	 * @return the highest value of the bucket holding the percentile
+	 */
+	public long percentile(double percentile) {
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(highestValue(i), max);
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * Returns the bucket that counts the given value.
+	 * 
+	 * @param value a value that is not negative
+	 * @return the index of the bucket
+	 */
+	private static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1); // value >> shift is in [64, 128)
+		return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >> shift) - HALF;
+	}
+	
+	/**
+	 * Returns the largest value counted by the given bucket.
+	 * 
+	 * @param index the index of the bucket
+	 * @return the largest value of the bucket
+	 */
+	private static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF + 1;
+		long mantissa = (index - SUB_BUCKETS) % HALF + HALF;
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
\ No newline at end of file
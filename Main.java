@@ -1,147 +1,83 @@
 package rbtree;
 
+/**
+ * This class is the command line entry point. It parses the options of a
+ * workload and hands them to a WorkloadDriver.
+ * 
+ * @author Richard Shu
+ * @see WorkloadDriver
+ */
 public class Main {
-	public static void main(String[] args) {
-		
-		// Testing constructors
-		System.out.println("---------- Testing constructors ----------");
-		Integer[] array1 = {20, 10, 30};
-		RedBlackTree<Integer> tree1 = new RedBlackTree<>(array1);
-		tree1.printTree();
-		System.out.println();
-		
-		Integer[] array2 = {40, 15, 20, 85, 45, 60, 10, 30, 35, 75, 70, 90, 25, 50, 55};
-		RedBlackTree<Integer> tree2 = new RedBlackTree<>(array2);
-		tree2.printTree();
-		System.out.println();
-		tree2.printLeavePaths();
-		
-		// Testing insert
-		System.out.println("---------- Testing insertion ----------");
-		tree1.printTree();
-		System.out.println();
-		System.out.println("Inserting 35:"); // Case 2
-		tree1.insert(35);
-		tree1.printTree();
-		System.out.println();
-		System.out.println("Inserting 5"); // Case 2
-		tree1.insert(5);
-		tree1.printTree();
-		System.out.println();
-		System.out.println("Inserting 25"); // Case 2
-		tree1.insert(25);
-		tree1.printTree();
-		System.out.println();
-		System.out.println("Inserting 1"); // Case 4
-		tree1.insert(1);
-		tree1.printTree();
-		System.out.println();
-			
-		// Testing delete
-		System.out.println("---------- Testing delete ----------");
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 55:");
-		tree2.delete(55);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 40:");
-		tree2.delete(40);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 15:");
-		tree2.delete(15);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 20:");
-		tree2.delete(20);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		/* Now start deleting from the root */
-		
-		System.out.println("Deleting 45:");
-		tree2.delete(45);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 35:");
-		tree2.delete(35);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 60:");
-		tree2.delete(60);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 50:");
-		tree2.delete(50);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 30:");
-		tree2.delete(30);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 25:");
-		tree2.delete(25);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 75:");
-		tree2.delete(75);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 70:");
-		tree2.delete(70);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 85:");
-		tree2.delete(85);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
-		
-		System.out.println("Deleting 10:");
-		tree2.delete(10);
-		tree2.printTree();
-		System.out.println();
-		System.out.println();
-		System.out.println();
+	public static void main(String[] args) throws InterruptedException {
+		WorkloadDriver driver = new WorkloadDriver();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String option = args[i];
+				if (option.equals("-h") || option.equals("--help")) {
+					usage();
+					return;
+				}
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("Missing value for " + option);
+				}
+				String value = args[++i];
+				switch (option) {
+				case "--threads":
+					driver.setThreads(Integer.parseInt(value));
+					break;
+				case "--duration":
+					driver.setDuration(Long.parseLong(value) * 1000);
+					break;
+				case "--warmup":
+					driver.setWarmup(Long.parseLong(value) * 1000);
+					break;
+				case "--keys":
+					driver.setKeyRange(Integer.parseInt(value));
+					break;
+				case "--range-width":
+					driver.setRangeWidth(Integer.parseInt(value));
+					break;
+				case "--mix":
+					driver.setMix(value);
+					break;
+				case "--distribution":
+					driver.setDistribution(value);
+					break;
+				case "--seed":
+					driver.setSeed(Long.parseLong(value));
+					break;
+				case "--filter":
+					driver.setFilter(value.equals("on"));
+					break;
+				case "--cache":
+					driver.setCacheSize(Integer.parseInt(value));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + option);
+				}
+			}
+		} catch (IllegalArgumentException e) { // Includes NumberFormatException
+			System.err.println(e.getMessage());
+			usage();
+			System.exit(2);
+		}
+		driver.run();
+	}
+	
+	/**
+	 * Prints the options.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java rbtree.Main [options]");
+		System.err.println("  --threads n          worker threads (default 1)");
+		System.err.println("  --duration s         measured seconds (default 10)");
+		System.err.println("  --warmup s           seconds before measuring starts (default 2)");
+		System.err.println("  --keys n             distinct keys, half inserted up front (default 1000000)");
+		System.err.println("  --range-width n      keys covered by a range scan (default 100)");
+		System.err.println("  --mix list           e.g. find=70,insert=10,delete=10,range=10");
+		System.err.println("  --distribution name  uniform, zipf, sequential or zigzag (default uniform)");
+		System.err.println("  --seed n             seed of the random number generators (default 42)");
+		System.err.println("  --filter on|off      check a membership filter before each find (default off)");
+		System.err.println("  --cache n            hot keys whose nodes are cached for find (default 0)");
 	}
 }
\ No newline at end of file
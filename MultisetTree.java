@@ -0,0 +1,250 @@
+package rbtree;
+
+import java.util.Iterator;
+
+/**
+ * This class represents a Red-Black Tree that allows duplicate items. 
+ * Each distinct key is stored in a single node together with the 
+ * number of times it was inserted, so inserting a duplicate only 
+ * increments the count and never allocates or rebalances.
+ * 
+ * Every node also caches the number of items in its subtree, counting 
+ * duplicates, so the item at any rank is found in O(log n) by select.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class MultisetTree<E extends Comparable<E>> extends RedBlackTree<E> {
+	
+	/**
+	 * This nested class represents a node that counts the copies of its key.
+	 */
+	protected static class CountedNode<E extends Comparable<E>> extends RBNode<E> {
+		protected int count;
+		protected long total; // Items in the subtree, counting duplicates
+		
+		/**
+		 * Constructs a red node holding a single copy of the given data value.
+		 * 
+		 * @param data the data value stored in the node
+		 */
+		public CountedNode(E data) {
+			super(data, "R");
+			count = 1;
+			total = 1;
+		}
+		
+		/**
+		 * Returns the data value, the count if it is above one, and the color of the node.
+		 */
+		public String toString() {
+			if (count > 1) {
+				return data + " x" + count + " (" + color + ")";
+			}
+			return super.toString();
+		}
+	}
+	
+	private long totalSize = 0; // Number of items including duplicates
+	
+	/**
+	 * Constructs an initially empty multiset.
+	 */
+	public MultisetTree() {
+		augmented = true;
+	}
+	
+	/**
+	 * Initializes a multiset with an array that may contain duplicates.
+	 * 
+	 * @param array an array of data values used to initialize the tree
+	 */
+	public MultisetTree(E[] array) {
+		this();
+		for (int i = 0; i < array.length; i++) {
+			insert(array[i]);
+		}
+	}
+	
+	@Override
+	protected RBNode<E> newNode(E key) {
+		return new CountedNode<>(key);
+	}
+	
+	@Override
+	protected void initNode(RBNode<E> node) {
+		((CountedNode<E>) node).count = 1;
+		((CountedNode<E>) node).total = 1;
+	}
+	
+	@Override
+	protected void moveData(RBNode<E> source, RBNode<E> target) {
+		super.moveData(source, target);
+		((CountedNode<E>) target).count = ((CountedNode<E>) source).count;
+	}
+	
+	@Override
+	protected void update(RBNode<E> node) {
+		CountedNode<E> counted = (CountedNode<E>) node;
+		counted.total = totalOf(node.left) + counted.count + totalOf(node.right);
+	}
+	
+	/**
+	 * Returns the number of items in the subtree rooted at the given node.
+	 * 
+	 * @param node a node of the tree, or NIL
+	 * @return the number of items in the subtree, counting duplicates
+	 */
+	protected long totalOf(RBNode<E> node) {
+		if (node == NIL || node == null) {
+			return 0;
+		}
+		return ((CountedNode<E>) node).total;
+	}
+	
+	/**
+	 * Adds a copy of the key to the multiset. A duplicate only increments 
+	 * the count of the existing node.
+	 * 
+	 * @param key the item that will be inserted into the tree
+	 */
+	@Override
+	public void insert(E key) {
+		CountedNode<E> node = (CountedNode<E>) search(key);
+		if (node != null) {
+			node.count++;
+			updatePath(node);
+		}
+		else {
+			super.insert(key);
+		}
+		totalSize++;
+	}
+	
+	/**
+	 * Builds the multiset from distinct keys in strictly increasing order, 
+	 * with one copy of each.
+	 * 
+	 * @param keys the keys in strictly increasing order
+	 * @param count the number of keys the iterator returns
+	 */
+	@Override
+	public void buildFromSorted(Iterator<? extends E> keys, int count) {
+		super.buildFromSorted(keys, count);
+		totalSize = count;
+	}
+	
+	/**
+	 * Removes one copy of the key from the multiset. The node is only 
+	 * removed from the tree when its count drops to zero.
+	 * 
+	 * @param key the item that will be deleted from the tree
+	 */
+	@Override
+	public void delete(E key) {
+		if (isEmpty()) {
+			throw new EmptyTreeException();
+		}
+		CountedNode<E> node = (CountedNode<E>) search(key);
+		if (node == null) {
+			throw new NullPointerException("The item cannot be found in the tree.");
+		}
+		if (node.count > 1) {
+			node.count--;
+			updatePath(node);
+		}
+		else {
+			deleteNode(node);
+		}
+		totalSize--;
+	}
+	
+	/**
+	 * Returns the number of copies of the key in the multiset.
+	 * 
+	 * @param key the item whose copies are counted
+	 * @return the number of copies of the key
+	 */
+	public int count(E key) {
+		CountedNode<E> node = (CountedNode<E>) search(key);
+		if (node == null) {
+			return 0;
+		}
+		return node.count;
+	}
+	
+	/**
+	 * Returns the item at the given rank, counting every copy, where rank 0 
+	 * is the smallest item. Takes O(log n) time using the subtree totals.
+	 * 
+	 * @param rank the number of items before the one returned
+	 * @return the item at the rank
+	 * @throws IndexOutOfBoundsException if the rank is negative or not below the total size
+	 */
+	public E select(long rank) {
+		if (rank < 0 || rank >= totalSize) {
+			throw new IndexOutOfBoundsException("Rank " + rank + " is outside a multiset of " + totalSize + " items.");
+		}
+		RBNode<E> current = root;
+		while (true) {
+			long left = totalOf(current.left);
+			if (rank < left) {
+				current = current.left;
+			}
+			else if (rank < left + ((CountedNode<E>) current).count) {
+				return current.getData();
+			}
+			else {
+				rank -= left + ((CountedNode<E>) current).count;
+				current = current.right;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of items smaller than the key, counting every copy.
+	 * 
+	 * @param key the item whose rank is computed
+	 * @return the number of items smaller than the key
+	 */
+	public long rank(E key) {
+		long rank = 0;
+		RBNode<E> current = isEmpty() ? NIL : root;
+		while (current != NIL) {
+			int cmp = key.compareTo(current.getData());
+			if (cmp <= 0) {
+				current = current.left;
+			}
+			else {
+				rank += totalOf(current.left) + ((CountedNode<E>) current).count;
+				current = current.right;
+			}
+		}
+		return rank;
+	}
+	
+	/**
+	 * Returns the number of items in the multiset, counting every copy. 
+	 * The size method inherited from the tree counts distinct items.
+	 * 
+	 * @return the number of items including duplicates
+	 */
+	public long totalSize() {
+		return totalSize;
+	}
+	
+	/**
+	 * Returns the number of distinct items in the multiset.
+	 * 
+	 * @return the number of nodes in the tree
+	 */
+	public int distinctSize() {
+		return size();
+	}
+	
+	@Override
+	public void clear() {
+		super.clear();
+		totalSize = 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package rbtree;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures the bytes allocated per insert/delete operation
+ * with and without a node pool.
+ * 
+ * @author Richard Shu
+ */
+public class NodePoolBenchmark {
+	private static final int TREE_SIZE = 100_000;
+	private static final int OPERATIONS = 2_000_000;
+	
+	public static void main(String[] args) {
+		Integer[] keys = new Integer[TREE_SIZE * 2]; // Boxed up front so boxing is not measured
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = i;
+		}
+		
+		System.out.println("---------- Node pool benchmark ----------");
+		System.out.printf("%-10s %15s %15s%n", "Mode", "bytes/op", "ns/op");
+		for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+			boolean print = round == 2;
+			run("unpooled", keys, null, print);
+			run("pooled", keys, new RBNodePool<>(), print);
+		}
+	}
+	
+	/**
+	 * Fills a tree and then replaces random keys with keys that are not in the tree.
+	 * 
+	 * @param mode the name printed in the report
+	 * @param keys the boxed keys used by the benchmark
+	 * @param pool the node pool, or null
+	 * @param print whether or not the result is printed
+	 */
+	private static void run(String mode, Integer[] keys, RBNodePool<Integer> pool, boolean print) {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		tree.setNodePool(pool);
+		boolean[] present = new boolean[keys.length];
+		for (int i = 0; i < TREE_SIZE; i++) {
+			tree.insert(keys[i]);
+			present[i] = true;
+		}
+		Random random = new Random(42);
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long bytesBefore = bean.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int i = 0; i < OPERATIONS; i += 2) {
+			int out = random.nextInt(keys.length);
+			while (!present[out]) {
+				out = random.nextInt(keys.length);
+			}
+			int in = random.nextInt(keys.length);
+			while (present[in]) {
+				in = random.nextInt(keys.length);
+			}
+			tree.delete(keys[out]);
+			present[out] = false;
+			tree.insert(keys[in]);
+			present[in] = true;
+		}
+		long elapsed = System.nanoTime() - start;
+		long bytes = bean.getThreadAllocatedBytes(thread) - bytesBefore;
+		if (print) {
+			System.out.printf("%-10s %15.2f %15.1f%n", mode, (double) bytes / OPERATIONS, (double) elapsed / OPERATIONS);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package rbtree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * This class represents a recorded history of insertions and deletions
+ * that can be replayed on a tree one step at a time, forwards or backwards.
+ * 
+ * The position is the number of operations that have been applied to the tree.
+ * Operations that did not change the tree, such as inserting a duplicate,
+ * are remembered so that stepping back over them does nothing.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class OperationLog<E extends Comparable<E>> {
+	private ArrayList<E> keys = new ArrayList<>();
+	private BitSet deletes = new BitSet(); // Set for deletions, clear for insertions
+	private BitSet applied = new BitSet(); // Set when the operation changed the tree
+	private int position = 0;
+	
+	/**
+	 * Constructs an initially empty log.
+	 */
+	public OperationLog() {}
+	
+	/**
+	 * Reads a log from a text file with one operation per line. A line holding
+	 * "+key" or just "key" is an insertion and a line holding "-key" is a deletion.
+	 * Blank lines are skipped.
+	 * 
+	 * @param file the file that will be read
+	 * @param parser the function that turns the text of a key into a key
+	 * @param progress receives the number of bytes read so far, or null
+	 * @return the log read from the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static <E extends Comparable<E>> OperationLog<E> read(Path file, Function<String, E> parser,
+			LongConsumer progress) throws IOException {
+		OperationLog<E> log = new OperationLog<>();
+		long bytes = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				bytes += line.length() + 1;
+				if (line.isEmpty()) {
+					continue;
+				}
+				if (line.charAt(0) == '-' && line.length() > 1) {
+					log.add(parser.apply(line.substring(1)), false);
+				}
+				else if (line.charAt(0) == '+' && line.length() > 1) {
+					log.add(parser.apply(line.substring(1)), true);
+				}
+				else {
+					log.add(parser.apply(line), true);
+				}
+				if (progress != null && (log.size() & 0xFFFF) == 0) {
+					progress.accept(bytes);
+				}
+			}
+		}
+		return log;
+	}
+	
+	/**
+	 * Adds an operation to the end of the log.
+	 * 
+	 * @param key the item that is inserted or deleted
+	 * @param insert true for an insertion and false for a deletion
+	 */
+	public void add(E key, boolean insert) {
+		deletes.set(keys.size(), !insert);
+		keys.add(key);
+	}
+	
+	/**
+	 * Returns the number of operations in the log.
+	 * 
+	 * @return the number of operations in the log
+	 */
+	public int size() {
+		return keys.size();
+	}
+	
+	/**
+	 * Returns the number of operations that have been applied to the tree.
+	 * 
+	 * @return the current position in the log
+	 */
+	public int position() {
+		return position;
+	}
+	
+	/**
+	 * Returns the key of the given operation.
+	 * 
+	 * @param index the index of the operation
+	 * @return the key that is inserted or deleted
+	 */
+	public E key(int index) {
+		return keys.get(index);
+	}
+	
+	/**
+	 * Returns true if the given operation is an insertion.
+	 * 
+	 * @param index the index of the operation
+	 * @return true for an insertion and false for a deletion
+	 */
+	public boolean isInsert(int index) {
+		return !deletes.get(index);
+	}
+	
+	/**
+	 * Applies the operation at the current position to the tree.
+	 * 
+	 * @param tree the tree the log is replayed on
+	 * @return false if the log is already at its end
+	 */
+	public boolean stepForward(RedBlackTree<E> tree) {
+		if (position == keys.size()) {
+			return false;
+		}
+		E key = keys.get(position);
+		boolean changed = false;
+		if (isInsert(position)) {
+			if (!tree.find(key)) {
+				tree.insert(key);
+				changed = true;
+			}
+		}
+		else if (tree.find(key)) {
+			tree.delete(key);
+			changed = true;
+		}
+		applied.set(position, changed);
+		position++;
+		return true;
+	}
+	
+	/**
+	 * Undoes the operation before the current position.
+	 * 
+	 * @param tree the tree the log is replayed on
+	 * @return false if the log is already at its start
+	 */
+	public boolean stepBack(RedBlackTree<E> tree) {
+		if (position == 0) {
+			return false;
+		}
+		position--;
+		if (applied.get(position)) {
+			if (isInsert(position)) {
+				tree.delete(keys.get(position));
+			}
+			else {
+				tree.insert(keys.get(position));
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Steps forwards or backwards until the log reaches the target position.
+	 * 
+	 * @param tree the tree the log is replayed on
+	 * @param target the position to move to
+	 */
+	public void seek(RedBlackTree<E> tree, int target) {
+		target = Math.max(0, Math.min(target, keys.size()));
+		while (position < target) {
+			stepForward(tree);
+		}
+		while (position > target) {
+			stepBack(tree);
+		}
+	}
+	
+	/**
+	 * Removes every operation from the log.
+	 */
+	public void clear() {
+		keys.clear();
+		deletes.clear();
+		applied.clear();
+		position = 0;
+	}
+}
\ No newline at end of file
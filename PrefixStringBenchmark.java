@@ -0,0 +1,98 @@
+package rbtree;
+
+import java.util.Random;
+
+/**
+ * Compares a RedBlackTree of Strings with a PrefixStringTree holding the same
+ * URL-like keys: the heap used per key, and the time per insert and per find.
+ * 
+ * Usage: PrefixStringBenchmark [number of keys]
+ * 
+ * @author Richard Shu
+ */
+public class PrefixStringBenchmark {
+	private static final String[] SECTIONS = {"electronics/phones", "electronics/laptops", "home/kitchen",
+			"home/garden", "books/fiction", "books/science"};
+	private static Object live; // Keeps the measured tree reachable while the heap is measured
+	
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+		Random random = new Random(42);
+		String[] keys = new String[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = "https://shop.example.com/catalog/" + SECTIONS[random.nextInt(SECTIONS.length)] + "/item-"
+					+ random.nextInt(count * 4) + "/reviews?page=" + random.nextInt(20);
+		}
+		String[] probes = new String[count];
+		for (int i = 0; i < count; i++) {
+			probes[i] = new String(keys[random.nextInt(count)]); // Equal but not identical to the stored keys
+		}
+		
+		System.out.println("---------- Prefix-compressed String tree benchmark ----------");
+		System.out.printf("%,d keys, for example %s%n", count, keys[0]);
+		System.out.printf("%-18s %12s %15s %15s%n", "Tree", "bytes/key", "insert ns/op", "find ns/op");
+		for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+			boolean print = round == 2;
+			run("RedBlackTree", new RedBlackTree<>(), keys, probes, print);
+			run("PrefixStringTree", new PrefixStringTree(), keys, probes, print);
+		}
+	}
+	
+	/**
+	 * Fills the tree with copies of the keys, then measures its heap use and
+	 * looks up the probes.
+	 * 
+	 * @param name the name printed in the report
+	 * @param tree an empty tree
+	 * @param keys the keys inserted
+	 * @param probes the keys looked up
+	 * @param print whether or not the result is printed
+	 */
+	private static void run(String name, RedBlackTree<String> tree, String[] keys, String[] probes, boolean print) {
+		long before = usedHeap();
+		long start = System.nanoTime();
+		int inserted = 0;
+		for (String key : keys) {
+			try {
+				tree.insert(new String(key.toCharArray())); // A copy with its own bytes, as if parsed from input
+				inserted++;
+			} catch (DuplicateItemException e) {
+				// Random keys repeat now and then
+			}
+		}
+		long insertTime = System.nanoTime() - start;
+		live = tree;
+		long bytes = usedHeap() - before;
+		start = System.nanoTime();
+		int found = 0;
+		for (String probe : probes) {
+			if (tree.find(probe)) {
+				found++;
+			}
+		}
+		long findTime = System.nanoTime() - start;
+		if (found != probes.length) {
+			throw new IllegalStateException(name + " found " + found + " of " + probes.length + " keys");
+		}
+		live = null;
+		if (print) {
+			System.out.printf("%-18s %12.1f %15.0f %15.0f%n", name, (double) bytes / inserted,
+					(double) insertTime / keys.length, (double) findTime / probes.length);
+		}
+	}
+	
+	/**
+	 * Returns the heap in use after collecting garbage.
+	 * 
+	 * @return the smallest number of used bytes seen over several collections
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
\ No newline at end of file
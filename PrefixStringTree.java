@@ -0,0 +1,368 @@
+package rbtree;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class represents a Red-Black Tree of Strings that stores its keys as
+ * UTF-8 bytes compressed against the parent. A node keeps the length of
+ * the prefix its key shares with its parent's key and only the bytes after
+ * it, so keys such as URLs and paths that share long prefixes cost little
+ * more than their distinct tails. No String is kept per node; getData
+ * rebuilds the key from the suffixes along the path to the root.
+ * 
+ * A search never starts a comparison again from the first byte. It keeps
+ * the length of the prefix the key shares with the current node, and at the
+ * next node compares it with that node's shared length first: when they
+ * differ, the order and the new shared length follow without reading a
+ * byte, and when they are equal, the comparison starts right after the
+ * shared prefix. A search therefore reads each byte of the key at most once
+ * plus one byte per level.
+ * 
+ * When a node gets a new parent, in a rotation or a deletion, its key is
+ * expanded before the links change and compressed against the new parent
+ * after. Keys are ordered like String.compareTo: bytes compare unsigned,
+ * except that the lead bytes of characters from U+E000 to U+FFFF sort after
+ * those of supplementary characters, as their UTF-16 code units do. Keys
+ * with unpaired surrogates cannot be encoded and are rejected.
+ * 
+ * @author Richard Shu
+ * @see PrefixStringBenchmark
+ */
+public class PrefixStringTree extends RedBlackTree<String> {
+	private static final int EXPANDED = -1; // The shared length of a node whose suffix holds its whole key
+	private static final byte[] EMPTY = new byte[0];
+	
+	// Results of a descent, since one loop serves every kind of search
+	private static final int FIND = 0;
+	private static final int PARENT = 1;
+	private static final int CEILING = 2;
+	private static final int HIGHER = 3;
+	
+	/**
+	 * This nested class represents a node that stores the part of its key
+	 * after the prefix it shares with its parent's key.
+	 */
+	protected static class PrefixNode extends RBNode<String> {
+		protected byte[] suffix = EMPTY;
+		protected int shared = EXPANDED; // Bytes shared with the parent's key
+		
+		/**
+		 * Constructs a red node holding the given key.
+		 * 
+		 * @param key the key stored in the node
+		 */
+		public PrefixNode(String key) {
+			super(null, "R");
+			setData(key);
+		}
+		
+		/**
+		 * Returns the key, rebuilt from the suffixes on the path to the root.
+		 */
+		@Override
+		public String getData() {
+			return new String(expand(this), StandardCharsets.UTF_8);
+		}
+		
+		/**
+		 * Stores the whole key until the node is compressed against its parent.
+		 */
+		@Override
+		public void setData(String key) {
+			suffix = key == null ? EMPTY : encode(key);
+			shared = EXPANDED;
+		}
+		
+		/**
+		 * Returns the key and color of the node.
+		 */
+		@Override
+		public String toString() {
+			return getData() + " (" + color + ")";
+		}
+	}
+	
+	/**
+	 * Constructs an initially empty tree.
+	 */
+	public PrefixStringTree() {}
+	
+	/**
+	 * Initializes a tree with an array.
+	 * 
+	 * @param array an array of keys used to initialize the tree
+	 */
+	public PrefixStringTree(String[] array) {
+		for (int i = 0; i < array.length; i++) {
+			insert(array[i]);
+		}
+	}
+	
+	@Override
+	protected RBNode<String> newNode(String key) {
+		return new PrefixNode(key);
+	}
+	
+	@Override
+	protected void beforeRelink(RBNode<String> node) {
+		PrefixNode prefixNode = (PrefixNode) node;
+		prefixNode.suffix = expand(prefixNode);
+		prefixNode.shared = EXPANDED;
+	}
+	
+	@Override
+	protected void afterRelink(RBNode<String> node) {
+		compress((PrefixNode) node);
+	}
+	
+	/**
+	 * Moves the key of the source into the target. The target's children are
+	 * stored relative to the target's old key, so they are expanded first and
+	 * compressed against the new key after.
+	 */
+	@Override
+	protected void moveData(RBNode<String> source, RBNode<String> target) {
+		byte[] key = expand((PrefixNode) source);
+		if (target.left != NIL) {
+			beforeRelink(target.left);
+		}
+		if (target.right != NIL) {
+			beforeRelink(target.right);
+		}
+		PrefixNode prefixTarget = (PrefixNode) target;
+		prefixTarget.suffix = key;
+		prefixTarget.shared = EXPANDED;
+		compress(prefixTarget);
+		if (target.left != NIL) {
+			compress((PrefixNode) target.left);
+		}
+		if (target.right != NIL) {
+			compress((PrefixNode) target.right);
+		}
+	}
+	
+	@Override
+	protected RBNode<String> search(String key) {
+		return descend(encode(key), FIND);
+	}
+	
+	/**
+	 * Looks the keys up one at a time, since every node would otherwise be
+	 * expanded to compare it with each key that reaches it.
+	 */
+	@Override
+	protected RBNode<String>[] searchAll(String[] keys) {
+		@SuppressWarnings("unchecked")
+		RBNode<String>[] nodes = (RBNode<String>[]) new RBNode<?>[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			nodes[i] = search(keys[i]);
+		}
+		return nodes;
+	}
+	
+	@Override
+	protected RBNode<String> insertionPoint(String key) {
+		return descend(encode(key), PARENT);
+	}
+	
+	@Override
+	protected RBNode<String> nodeToDelete(String key) {
+		RBNode<String> node = descend(encode(key), FIND);
+		if (node == null) {
+			throw new NullPointerException(); // Handled by the delete method
+		}
+		return node;
+	}
+	
+	@Override
+	protected RBNode<String> ceilingNode(String key, boolean inclusive) {
+		return descend(encode(key), inclusive ? CEILING : HIGHER);
+	}
+	
+	/**
+	 * Descends from the root toward the key, carrying the length of the prefix
+	 * the key shares with the current node so no byte is compared twice.
+	 * 
+	 * @param key the UTF-8 bytes of the key searched for
+	 * @param goal FIND, PARENT, CEILING or HIGHER
+	 * @return the node holding the key for FIND, the node a new key attaches to for
+	 *         PARENT, or the smallest node above the key for CEILING and HIGHER;
+	 *         null when there is no such node
+	 * @throws DuplicateItemException if the goal is PARENT and the key is in the tree
+	 */
+	private RBNode<String> descend(byte[] key, int goal) {
+		if (isEmpty()) {
+			return null;
+		}
+		RBNode<String> best = null; // The smallest node above the key seen so far
+		PrefixNode current = (PrefixNode) root;
+		int common = matchFrom(key, current.suffix, 0); // Bytes the key shares with the current node
+		int cmp = compareAt(key, current.suffix, common, 0);
+		while (true) {
+			if (cmp == 0) {
+				if (goal == FIND || goal == CEILING) {
+					return current;
+				}
+				if (goal == PARENT) {
+					throw new DuplicateItemException();
+				}
+			}
+			else if (cmp < 0) {
+				best = current;
+			}
+			int direction = cmp < 0 ? -1 : 1; // HIGHER goes right past an equal node
+			RBNode<String> next = direction < 0 ? current.left : current.right;
+			if (next == NIL) {
+				return goal == FIND ? null : goal == PARENT ? current : best;
+			}
+			PrefixNode child = (PrefixNode) next;
+			if (common < child.shared) {
+				cmp = direction; // The child agrees with the current node where the key differs
+			}
+			else if (common > child.shared) {
+				common = child.shared;
+				cmp = -direction; // The key agrees with the current node where the child differs
+			}
+			else {
+				int matched = matchFrom(key, child.suffix, common);
+				cmp = compareAt(key, child.suffix, common + matched, common);
+				common += matched;
+			}
+			current = child;
+		}
+	}
+	
+	/**
+	 * Returns how many bytes of the key from the given position match the suffix.
+	 * 
+	 * @param key the key searched for
+	 * @param suffix the bytes of a node's key from the position on
+	 * @param from the position in the key where the suffix starts
+	 * @return the number of matching bytes
+	 */
+	private static int matchFrom(byte[] key, byte[] suffix, int from) {
+		int length = Math.min(key.length - from, suffix.length);
+		int i = Arrays.mismatch(key, from, from + length, suffix, 0, length);
+		return i < 0 ? length : i;
+	}
+	
+	/**
+	 * Compares the key with a node's key at the first position where they may differ.
+	 * 
+	 * @param key the key searched for
+	 * @param suffix the bytes of the node's key from the offset on
+	 * @param position the length of the prefix the keys share
+	 * @param offset the position in the node's key where the suffix starts
+	 * @return a negative number, zero or a positive number as the key is less than,
+	 *         equal to or greater than the node's key
+	 */
+	private static int compareAt(byte[] key, byte[] suffix, int position, int offset) {
+		boolean keyEnds = position == key.length;
+		boolean nodeEnds = position - offset == suffix.length;
+		if (keyEnds || nodeEnds) {
+			return keyEnds ? (nodeEnds ? 0 : -1) : 1;
+		}
+		return Integer.compare(rank(key[position]), rank(suffix[position - offset]));
+	}
+	
+	/**
+	 * Returns the sort rank of a byte. Lead bytes 0xEE and 0xEF, which start
+	 * the characters from U+E000 to U+FFFF, rank above the lead bytes of
+	 * supplementary characters so the order matches String.compareTo.
+	 * 
+	 * @param b a byte of a UTF-8 key
+	 * @return the rank of the byte
+	 */
+	private static int rank(byte b) {
+		int value = b & 0xFF;
+		return value == 0xEE || value == 0xEF ? value + 0x10 : value;
+	}
+	
+	/**
+	 * Stores a node's key relative to its parent's key. The node must be expanded.
+	 * 
+	 * @param node the node that will be compressed
+	 */
+	private static void compress(PrefixNode node) {
+		byte[] key = node.suffix;
+		if (node.parent == null) {
+			node.shared = 0;
+			return; // The root keeps its whole key
+		}
+		byte[] parentKey = expand((PrefixNode) node.parent);
+		int shared = matchFrom(key, parentKey, 0);
+		node.suffix = shared == 0 ? key : Arrays.copyOfRange(key, shared, key.length);
+		node.shared = shared;
+	}
+	
+	/**
+	 * Rebuilds the whole key of a node. The bytes are filled in from the end:
+	 * each ancestor supplies the part of the key between its own shared length
+	 * and the part already filled in, up to the first expanded node or the root.
+	 * 
+	 * @param node a node of the tree
+	 * @return the UTF-8 bytes of the node's key
+	 */
+	private static byte[] expand(PrefixNode node) {
+		if (node.shared == EXPANDED) {
+			return node.suffix;
+		}
+		byte[] key = new byte[node.shared + node.suffix.length];
+		System.arraycopy(node.suffix, 0, key, node.shared, node.suffix.length);
+		int needed = node.shared; // Bytes at the front of the key still missing
+		PrefixNode current = (PrefixNode) node.parent;
+		while (needed > 0) {
+			if (current.shared == EXPANDED) {
+				System.arraycopy(current.suffix, 0, key, 0, needed);
+				break;
+			}
+			if (current.shared < needed) {
+				System.arraycopy(current.suffix, 0, key, current.shared, needed - current.shared);
+				needed = current.shared;
+			}
+			current = (PrefixNode) current.parent;
+		}
+		return key;
+	}
+	
+	/**
+	 * Encodes a key as UTF-8.
+	 * 
+	 * @param key the key
+	 * @return the UTF-8 bytes of the key
+	 * @throws IllegalArgumentException if the key has an unpaired surrogate
+	 */
+	private static byte[] encode(String key) {
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) >= 0x80) {
+				return encodeStrictly(key); // Only non-ASCII keys can have surrogates
+			}
+		}
+		return key.getBytes(StandardCharsets.ISO_8859_1);
+	}
+	
+	/**
+	 * Encodes a key with non-ASCII characters as UTF-8, reporting unpaired surrogates.
+	 * 
+	 * @param key the key
+	 * @return the UTF-8 bytes of the key
+	 * @throws IllegalArgumentException if the key has an unpaired surrogate
+	 */
+	private static byte[] encodeStrictly(String key) {
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		try {
+			ByteBuffer bytes = encoder.encode(CharBuffer.wrap(key));
+			return Arrays.copyOf(bytes.array(), bytes.limit());
+		} catch (CharacterCodingException e) {
+			throw new IllegalArgumentException("The key has an unpaired surrogate: " + key, e);
+		}
+	}
+}
\ No newline at end of file
@@ -12,6 +12,7 @@ public class RBNode<E extends Comparable<E>> {
 	protected RBNode<E> left;
 	protected RBNode<E> right;
 	protected RBNode<E> parent;
+	protected int rank; // Kept by the AVL and WAVL balancing strategies
 	
 	/**
 	 * Default constructor that initializes an RBNode with a data value.
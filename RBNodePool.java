@@ -0,0 +1,120 @@
+package rbtree;
+
+/**
+ * This class represents a pool of recycled Red-Black Tree nodes.
+ * Nodes deleted from a tree are kept on a free list and handed back
+ * out by later insertions, so insert/delete churn does not allocate.
+ * 
+ * A node must not be used by the caller once it has been deleted from
+ * a pooled tree, since the same object may come back holding a new key.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the nodes
+ * @see RedBlackTree#setNodePool(RBNodePool)
+ */
+public class RBNodePool<E extends Comparable<E>> {
+	private RBNode<E> head; // Top of the free list, linked through the right reference
+	private int size = 0;
+	private final int capacity;
+	private long reused = 0;
+	private long released = 0;
+	
+	/**
+	 * Constructs a pool that keeps an unbounded number of free nodes.
+	 */
+	public RBNodePool() {
+		this(Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Constructs a pool that keeps at most the given number of free nodes.
+	 * 
+	 * @param capacity the maximum number of free nodes held by the pool
+	 */
+	public RBNodePool(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("The capacity cannot be negative.");
+		}
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Removes and returns a node from the free list.
+	 * 
+	 * @return a recycled node, or null if the free list is empty
+	 */
+	public RBNode<E> acquire() {
+		if (head == null) {
+			return null;
+		}
+		RBNode<E> node = head;
+		head = node.right;
+		node.right = null;
+		size--;
+		reused++;
+		return node;
+	}
+	
+	/**
+	 * Adds a node to the free list. The node's data and links are
+	 * cleared so the pool does not keep deleted keys alive.
+	 * 
+	 * @param node the node that is no longer part of a tree
+	 */
+	public void release(RBNode<E> node) {
+		released++;
+		if (size >= capacity) {
+			return; // Let the garbage collector have it
+		}
+		node.data = null;
+		node.parent = null;
+		node.left = null;
+		node.right = head;
+		head = node;
+		size++;
+	}
+	
+	/**
+	 * Drops every node on the free list at once.
+	 */
+	public void reset() {
+		head = null;
+		size = 0;
+	}
+	
+	/**
+	 * Returns the number of nodes on the free list.
+	 * 
+	 * @return the number of nodes on the free list
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the maximum number of nodes held on the free list.
+	 * 
+	 * @return the maximum number of nodes held on the free list
+	 */
+	public int capacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Returns the number of nodes handed out again instead of being allocated.
+	 * 
+	 * @return the number of recycled nodes handed out
+	 */
+	public long reusedCount() {
+		return reused;
+	}
+	
+	/**
+	 * Returns the number of nodes given back to the pool.
+	 * 
+	 * @return the number of nodes given back to the pool
+	 */
+	public long releasedCount() {
+		return released;
+	}
+}
\ No newline at end of file
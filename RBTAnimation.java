@@ -59,7 +59,8 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 		Button btnInsert = new Button("Insert");
 		Button btnDelete = new Button("Delete");
 		Button btnReturn = new Button("Return to Menu");
-		footer.getChildren().addAll(enterText, textField, btnInsert, btnDelete, btnReturn);
+		Button btnCanvas = new Button("Canvas View");
+		footer.getChildren().addAll(enterText, textField, btnInsert, btnDelete, btnCanvas, btnReturn);
 		footer.setAlignment(Pos.CENTER);
 		
 		// Return to menu button
@@ -75,26 +76,37 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 			RedBlackTree<Integer> tree = new RedBlackTree<>();
 			RBTView<Integer> view = new RBTView<>(tree);
 			view.getStyleClass().add("view");
+			RBTCanvasView<Integer> canvasView = new RBTCanvasView<>(tree);
+			canvasView.getStyleClass().add("view");
+			btnCanvas.setText("Canvas View");
+			btnCanvas.setOnAction(event -> switchView(pane, tree, view, canvasView, btnCanvas));
+			ReplayControls<Integer> replay = new ReplayControls<>(tree, Integer::valueOf, status, canvasView, busy -> {
+				if (busy && pane.getCenter() != canvasView) {
+					switchView(pane, tree, view, canvasView, btnCanvas); // Only the canvas view keeps up with a bulk load
+				}
+				footer.setDisable(busy);
+			});
 			pane.setTop(header);
 			pane.setCenter(view);
-			pane.setBottom(footer);
+			pane.setBottom(new VBox(footer, replay));
 			btnInsert.setOnMouseClicked(new EventHandler<Event>() {
 				@Override
 				public void handle(Event event) {
 					try {
 						int key = Integer.parseInt(textField.getText());
 						if (tree.isEmpty()) {
-							tree.insert(key);
-							view.displayTree();
+							synchronized (tree) {
+								tree.insert(key);
+							}
 							status.setText(key + " is inserted into the tree");
 						}
 						else if (tree.find(key)) {
-							view.displayTree();
 							status.setText(key + " is already in the tree");
 						}
 						else {
-							tree.insert(key);
-							view.displayTree();
+							synchronized (tree) {
+								tree.insert(key);
+							}
 							status.setText(key + " is inserted into the tree");
 						}
 					} catch (NumberFormatException e) {
@@ -108,16 +120,15 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 					try {
 						int key = Integer.parseInt(textField.getText());
 						if (tree.isEmpty()) {
-							view.displayTree();
 							status.setText("The tree is empty");
 						}
 						else if (!tree.find(key)) {
-							view.displayTree();
 							status.setText(key + " is not in the tree");
 						}
 						else {
-							tree.delete(key);
-							view.displayTree();
+							synchronized (tree) {
+								tree.delete(key);
+							}
 							status.setText(key + " is deleted from the tree");
 						}
 					} catch (NumberFormatException e) {
@@ -133,9 +144,19 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 			RedBlackTree<Character> tree = new RedBlackTree<>();
 			RBTView<Character> view = new RBTView<>(tree);
 			view.getStyleClass().add("view");
+			RBTCanvasView<Character> canvasView = new RBTCanvasView<>(tree);
+			canvasView.getStyleClass().add("view");
+			btnCanvas.setText("Canvas View");
+			btnCanvas.setOnAction(event -> switchView(pane, tree, view, canvasView, btnCanvas));
+			ReplayControls<Character> replay = new ReplayControls<>(tree, text -> text.charAt(0), status, canvasView, busy -> {
+				if (busy && pane.getCenter() != canvasView) {
+					switchView(pane, tree, view, canvasView, btnCanvas); // Only the canvas view keeps up with a bulk load
+				}
+				footer.setDisable(busy);
+			});
 			pane.setTop(header);
 			pane.setCenter(view);
-			pane.setBottom(footer);
+			pane.setBottom(new VBox(footer, replay));
 			btnInsert.setOnMouseClicked(new EventHandler<Event>() {
 				@Override
 				public void handle(Event event) {
@@ -145,17 +166,18 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 					else {
 						char key = textField.getText().charAt(0);
 						if (tree.isEmpty()) {
-							tree.insert(key);
-							view.displayTree();
+							synchronized (tree) {
+								tree.insert(key);
+							}
 							status.setText(key + " is inserted into the tree");
 						}
 						else if (tree.find(key)) {
-							view.displayTree();
 							status.setText(key + " is already in the tree");
 						}
 						else {
-							tree.insert(key);
-							view.displayTree();
+							synchronized (tree) {
+								tree.insert(key);
+							}
 							status.setText(key + " is inserted into the tree");
 						}
 					}
@@ -170,16 +192,15 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 					else {
 						char key = textField.getText().charAt(0);
 						if (tree.isEmpty()) {
-							view.displayTree();
 							status.setText("The tree is empty");
 						}
 						else if (!tree.find(key)) {
-							view.displayTree();
 							status.setText(key + " is not in the tree");
 						}
 						else {
-							tree.delete(key);
-							view.displayTree();
+							synchronized (tree) {
+								tree.delete(key);
+							}
 							status.setText(key + " is deleted from the tree");
 						}
 					}
@@ -193,25 +214,36 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 			RedBlackTree<String> tree = new RedBlackTree<>();
 			RBTView<String> view = new RBTView<>(tree);
 			view.getStyleClass().add("view");
+			RBTCanvasView<String> canvasView = new RBTCanvasView<>(tree);
+			canvasView.getStyleClass().add("view");
+			btnCanvas.setText("Canvas View");
+			btnCanvas.setOnAction(event -> switchView(pane, tree, view, canvasView, btnCanvas));
+			ReplayControls<String> replay = new ReplayControls<>(tree, text -> text, status, canvasView, busy -> {
+				if (busy && pane.getCenter() != canvasView) {
+					switchView(pane, tree, view, canvasView, btnCanvas); // Only the canvas view keeps up with a bulk load
+				}
+				footer.setDisable(busy);
+			});
 			pane.setTop(header);
 			pane.setCenter(view);
-			pane.setBottom(footer);
+			pane.setBottom(new VBox(footer, replay));
 			btnInsert.setOnMouseClicked(new EventHandler<Event>() {
 				@Override
 				public void handle(Event event) {
 					String key = textField.getText();
 					if (tree.isEmpty()) {
-						tree.insert(key);
-						view.displayTree();
+						synchronized (tree) {
+							tree.insert(key);
+						}
 						status.setText(key + " is inserted into the tree");
 					}
 					else if (tree.find(key)) {
-						view.displayTree();
 						status.setText(key + " is already in the tree");
 					}
 					else {
-						tree.insert(key);
-						view.displayTree();
+						synchronized (tree) {
+							tree.insert(key);
+						}
 						status.setText(key + " is inserted into the tree");
 					}
 				}
@@ -221,16 +253,15 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 				public void handle(Event event) {
 					String key = textField.getText();
 					if (tree.isEmpty()) {
-						view.displayTree();
 						status.setText("The tree is empty");
 					}
 					else if (!tree.find(key)) {
-						view.displayTree();
 						status.setText(key + " is not in the tree");
 					}
 					else {
-						tree.delete(key);
-						view.displayTree();
+						synchronized (tree) {
+							tree.delete(key);
+						}
 						status.setText(key + " is deleted from the tree");
 					}
 				}
@@ -253,4 +284,31 @@ public class RBTAnimation<E extends Comparable<E>> extends Application {
 		header.getStyleClass().add("header");
 		enterText.getStyleClass().add("enter-text");
 	}
+	
+	/**
+	 * Switches between the shape view and the canvas view of a tree. 
+	 * Only the view on the screen listens to the tree.
+	 * 
+	 * @param pane the pane that shows the view
+	 * @param tree the tree being displayed
+	 * @param view the shape view of the tree
+	 * @param canvasView the canvas view of the tree
+	 * @param btnCanvas the button that switches the views
+	 */
+	private <T extends Comparable<T>> void switchView(BorderPane pane, RedBlackTree<T> tree, 
+			RBTView<T> view, RBTCanvasView<T> canvasView, Button btnCanvas) {
+		if (pane.getCenter() == canvasView) {
+			canvasView.detach();
+			tree.addTreeListener(view);
+			view.displayTree();
+			pane.setCenter(view);
+			btnCanvas.setText("Canvas View");
+		}
+		else {
+			tree.removeTreeListener(view);
+			canvasView.attach();
+			pane.setCenter(canvasView);
+			btnCanvas.setText("Shape View");
+		}
+	}
 }
\ No newline at end of file
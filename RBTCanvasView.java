@@ -0,0 +1,423 @@
+package rbtree;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+/**
+ * This class represents a Red-Black Tree GUI that draws on a canvas.
+ * It is meant for trees that are too big for RBTView: the layout is
+ * computed on a background thread, subtrees outside the viewport are
+ * skipped while drawing, and the tree can be panned by dragging and
+ * zoomed with the scroll wheel. Double-clicking fits the tree to the screen.
+ * 
+ * Nodes are placed by their inorder rank, so deep trees never overlap.
+ * Code that changes the tree while the view is shown must hold the
+ * tree's monitor, since the layout thread reads the tree under that lock.
+ * 
+ * @author Richard Shu
+ */
+public class RBTCanvasView<E extends Comparable<E>> extends BorderPane implements TreeListener<E> {
+	
+	/**
+	 * This nested class holds the positions of every node, stored in preorder.
+	 * The nodes of a subtree are contiguous, so a subtree is skipped by
+	 * jumping from its root i to end[i].
+	 */
+	private static class Layout {
+		private int size = 0;
+		private Object[] keys;
+		private boolean[] red;
+		private int[] parent; // Preorder index of the parent, or -1 for the root
+		private int[] depth;
+		private int[] rank; // Inorder rank, used as the x position
+		private int[] minRank; // Smallest rank in the subtree
+		private int[] maxRank; // Largest rank in the subtree
+		private int[] end; // Preorder index just after the subtree
+		
+		/**
+		 * Constructs an empty layout with room for the given number of nodes.
+		 * 
+		 * @param capacity the initial number of nodes the layout can hold
+		 */
+		private Layout(int capacity) {
+			keys = new Object[capacity];
+			red = new boolean[capacity];
+			parent = new int[capacity];
+			depth = new int[capacity];
+		}
+		
+		/**
+		 * Adds a node in preorder, doubling the arrays when they are full.
+		 * 
+		 * @param key the data value of the node
+		 * @param isRed true if the node is red
+		 * @param parentIndex the preorder index of the parent, or -1
+		 * @param nodeDepth the depth of the node
+		 */
+		private void add(Object key, boolean isRed, int parentIndex, int nodeDepth) {
+			if (size == keys.length) {
+				int capacity = keys.length * 2;
+				keys = Arrays.copyOf(keys, capacity);
+				red = Arrays.copyOf(red, capacity);
+				parent = Arrays.copyOf(parent, capacity);
+				depth = Arrays.copyOf(depth, capacity);
+			}
+			keys[size] = key;
+			red[size] = isRed;
+			parent[size] = parentIndex;
+			depth[size] = nodeDepth;
+			size++;
+		}
+	}
+	
+	private RedBlackTree<E> tree;
+	private Canvas canvas = new Canvas();
+	private double radius = 30; // Tree node radius
+	private double vGap = 75; // Gap between two levels in a tree
+	private double hGap = 70; // Gap between two consecutive keys
+	private double scale = 1; // Screen pixels per layout pixel
+	private double offsetX = 0; // Screen position of the layout origin
+	private double offsetY = 0;
+	private double dragX;
+	private double dragY;
+	private Layout layout; // Only read and replaced on the FX thread
+	private boolean layoutRunning = false;
+	private boolean layoutStale = false; // The tree changed while a layout was running
+	private final AtomicBoolean refreshPending = new AtomicBoolean(); // Set by listeners on any thread, cleared on the FX thread
+	private boolean fitPending = true; // Fit the tree to the screen after the first layout
+	private static final ExecutorService LAYOUT_THREAD = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "rbtree-layout");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * Default constructor.
+	 * 
+	 * @param tree the tree that will be displayed
+	 */
+	public RBTCanvasView(RedBlackTree<E> tree) {
+		this.tree = tree;
+		Pane canvasPane = new Pane();
+		canvas.setManaged(false);
+		canvasPane.getChildren().add(canvas);
+		canvas.widthProperty().bind(canvasPane.widthProperty());
+		canvas.heightProperty().bind(canvasPane.heightProperty());
+		canvas.widthProperty().addListener((observable, oldWidth, newWidth) -> draw());
+		canvas.heightProperty().addListener((observable, oldHeight, newHeight) -> draw());
+		setCenter(canvasPane);
+		
+		// Pan by dragging
+		canvas.setOnMousePressed(event -> {
+			dragX = event.getX();
+			dragY = event.getY();
+		});
+		canvas.setOnMouseDragged(event -> {
+			offsetX += event.getX() - dragX;
+			offsetY += event.getY() - dragY;
+			dragX = event.getX();
+			dragY = event.getY();
+			draw();
+		});
+		
+		// Zoom around the mouse pointer
+		canvas.setOnScroll(event -> {
+			double factor = event.getDeltaY() > 0 ? 1.1 : 1 / 1.1;
+			offsetX = event.getX() - (event.getX() - offsetX) * factor;
+			offsetY = event.getY() - (event.getY() - offsetY) * factor;
+			scale *= factor;
+			draw();
+		});
+		
+		// Fit the tree to the screen
+		canvas.setOnMouseClicked(event -> {
+			if (event.getClickCount() == 2) {
+				fit();
+				draw();
+			}
+		});
+	}
+	
+	/**
+	 * Starts listening to the tree and lays it out again.
+	 */
+	public void attach() {
+		tree.removeTreeListener(this); // Never listen twice
+		tree.addTreeListener(this);
+		displayTree();
+	}
+	
+	/**
+	 * Stops listening to the tree, so changes no longer trigger a layout.
+	 */
+	public void detach() {
+		tree.removeTreeListener(this);
+	}
+	
+	/**
+	 * Lays out the tree on the background thread and redraws it once the layout is done.
+	 */
+	public void displayTree() {
+		if (layoutRunning) {
+			layoutStale = true;
+			return;
+		}
+		layoutRunning = true;
+		layoutStale = false;
+		LAYOUT_THREAD.execute(() -> {
+			Layout result = computeLayout();
+			Platform.runLater(() -> {
+				layout = result;
+				layoutRunning = false;
+				if (fitPending) {
+					fitPending = false;
+					fit();
+				}
+				draw();
+				if (layoutStale) {
+					displayTree();
+				}
+			});
+		});
+	}
+	
+	/**
+	 * Schedules a single layout once the current tree operation is over.
+	 */
+	private void refresh() {
+		if (refreshPending.compareAndSet(false, true)) {
+			Platform.runLater(() -> {
+				refreshPending.set(false);
+				displayTree();
+			});
+		}
+	}
+	
+	@Override
+	public void nodeAdded(RBNode<E> node) {
+		refresh();
+	}
+	
+	@Override
+	public void nodeRemoved(RBNode<E> node) {
+		refresh();
+	}
+	
+	@Override
+	public void recolored(RBNode<E> node) {
+		refresh();
+	}
+	
+	@Override
+	public void rotated(RBNode<E> node) {
+		refresh();
+	}
+	
+	@Override
+	public void dataChanged(RBNode<E> node) {
+		refresh();
+	}
+	
+	@Override
+	public void cleared() {
+		refresh();
+	}
+	
+	/**
+	 * Copies the shape of the tree into a layout and computes the position of
+	 * every node. This runs on the background thread.
+	 * 
+	 * @return the layout of the tree
+	 */
+	private Layout computeLayout() {
+		Layout result = new Layout(1024);
+		boolean[] isLeft;
+		synchronized (tree) {
+			if (tree.isEmpty()) {
+				return result;
+			}
+			
+			// Copy the nodes in preorder. The stack holds nodes and their parent indexes side by side.
+			RBNode<?>[] stack = new RBNode<?>[128];
+			int[] stackParent = new int[128];
+			int[] stackDepth = new int[128];
+			int top = 0;
+			stack[top] = tree.root;
+			stackParent[top] = -1;
+			stackDepth[top] = 0;
+			top++;
+			isLeft = new boolean[1024];
+			while (top > 0) {
+				top--;
+				RBNode<?> node = stack[top];
+				int index = result.size;
+				result.add(node.getData(), node.color.equals("R"), stackParent[top], stackDepth[top]);
+				if (index == isLeft.length) {
+					isLeft = Arrays.copyOf(isLeft, isLeft.length * 2);
+				}
+				isLeft[index] = node.parent != null && node.parent.left == node;
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+					stackParent = Arrays.copyOf(stackParent, stackParent.length * 2);
+					stackDepth = Arrays.copyOf(stackDepth, stackDepth.length * 2);
+				}
+				if (node.right != tree.NIL) { // Pushed first so the left subtree comes first
+					stack[top] = node.right;
+					stackParent[top] = index;
+					stackDepth[top] = result.depth[index] + 1;
+					top++;
+				}
+				if (node.left != tree.NIL) {
+					stack[top] = node.left;
+					stackParent[top] = index;
+					stackDepth[top] = result.depth[index] + 1;
+					top++;
+				}
+			}
+		}
+		
+		// Subtree sizes, computed bottom-up since children come after their parent
+		int n = result.size;
+		int[] size = new int[n];
+		for (int i = n - 1; i >= 0; i--) {
+			size[i]++;
+			if (result.parent[i] >= 0) {
+				size[result.parent[i]] += size[i];
+			}
+		}
+		
+		// Inorder ranks, computed top-down
+		result.rank = new int[n];
+		result.minRank = new int[n];
+		result.maxRank = new int[n];
+		result.end = new int[n];
+		for (int i = 0; i < n; i++) {
+			int p = result.parent[i];
+			if (p < 0) {
+				result.minRank[i] = 0;
+			}
+			else if (isLeft[i]) {
+				result.minRank[i] = result.minRank[p];
+			}
+			else {
+				result.minRank[i] = result.rank[p] + 1;
+			}
+			boolean hasLeft = i + 1 < n && result.parent[i + 1] == i && isLeft[i + 1];
+			result.rank[i] = result.minRank[i] + (hasLeft ? size[i + 1] : 0);
+			result.maxRank[i] = result.minRank[i] + size[i] - 1;
+			result.end[i] = i + size[i];
+		}
+		return result;
+	}
+	
+	/**
+	 * Scales and moves the view so the whole tree fits on the screen.
+	 */
+	private void fit() {
+		if (layout == null || layout.size == 0 || canvas.getWidth() == 0) {
+			return;
+		}
+		double width = layout.size * hGap;
+		scale = Math.min(1, canvas.getWidth() / width);
+		offsetX = (canvas.getWidth() - (width - hGap) * scale) / 2;
+		offsetY = 0;
+	}
+	
+	/**
+	 * Draws the nodes that are inside the viewport.
+	 * Subtrees that are completely outside the viewport are skipped.
+	 */
+	private void draw() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		if (layout == null || layout.size == 0) {
+			return;
+		}
+		
+		// Visible part of the layout
+		double r = radius * scale;
+		long firstRank = (long) Math.floor((-offsetX - r) / scale / hGap);
+		long lastRank = (long) Math.ceil((canvas.getWidth() - offsetX + r) / scale / hGap);
+		long lastDepth = (long) Math.ceil((canvas.getHeight() - offsetY + r) / scale / vGap);
+		boolean labels = r >= 8; // Labels are unreadable on smaller nodes
+		
+		// Lines first, so the circles are drawn on top of them. An edge is drawn when the
+		// box around its two ends meets the viewport, even if the child's subtree is culled.
+		gc.setStroke(Color.BLACK);
+		gc.setLineWidth(Math.max(0.5, scale));
+		int i = 0;
+		while (i < layout.size) {
+			int p = layout.parent[i];
+			if (p >= 0 && Math.min(layout.rank[i], layout.rank[p]) <= lastRank
+					&& Math.max(layout.rank[i], layout.rank[p]) >= firstRank && layout.depth[p] <= lastDepth) {
+				gc.strokeLine(x(layout.rank[i]), y(layout.depth[i]), x(layout.rank[p]), y(layout.depth[p]));
+			}
+			i = visible(i, firstRank, lastRank, lastDepth) ? i + 1 : layout.end[i];
+		}
+		
+		// Nodes
+		i = 0;
+		while (i < layout.size) {
+			if (!visible(i, firstRank, lastRank, lastDepth)) {
+				i = layout.end[i];
+				continue;
+			}
+			if (layout.rank[i] >= firstRank && layout.rank[i] <= lastRank) {
+				double x = x(layout.rank[i]);
+				double y = y(layout.depth[i]);
+				gc.setFill(layout.red[i] ? Color.RED : Color.BLACK);
+				gc.fillOval(x - r, y - r, 2 * r, 2 * r);
+				if (labels) {
+					gc.setStroke(Color.WHITE);
+					gc.setLineWidth(1);
+					gc.strokeText(layout.keys[i] + "", x - 4 * scale, y + 4 * scale);
+					gc.setStroke(Color.BLACK);
+					gc.setLineWidth(Math.max(0.5, scale));
+				}
+			}
+			i++;
+		}
+	}
+	
+	/**
+	 * Returns true if any node of the subtree rooted at the given index can be visible.
+	 * 
+	 * @param i the preorder index of the root of the subtree
+	 * @param firstRank the smallest visible rank
+	 * @param lastRank the largest visible rank
+	 * @param lastDepth the largest visible depth
+	 * @return true if the subtree overlaps the viewport
+	 */
+	private boolean visible(int i, long firstRank, long lastRank, long lastDepth) {
+		return layout.maxRank[i] >= firstRank && layout.minRank[i] <= lastRank && layout.depth[i] <= lastDepth;
+	}
+	
+	/**
+	 * Returns the screen x coordinate of a rank.
+	 * 
+	 * @param rank the inorder rank of a node
+	 * @return the x coordinate on the canvas
+	 */
+	private double x(int rank) {
+		return rank * hGap * scale + offsetX;
+	}
+	
+	/**
+	 * Returns the screen y coordinate of a depth.
+	 * 
+	 * @param depth the depth of a node
+	 * @return the y coordinate on the canvas
+	 */
+	private double y(int depth) {
+		return (depth * vGap + vGap) * scale + offsetY;
+	}
+}
\ No newline at end of file
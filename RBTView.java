@@ -1,5 +1,11 @@
 package rbtree;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import javafx.application.Platform;
+import javafx.scene.Group;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
@@ -8,14 +14,34 @@ import javafx.scene.text.Text;
 
 /**
  * This class represents the Red-Black Tree GUI.
+ * The view listens to the tree and only patches the shapes of the
+ * nodes that an insertion or deletion actually changed.
  * 
  * @author Richard Shu
  * @date Nov 9, 2017
  */
-public class RBTView<E extends Comparable<E>> extends BorderPane {
+public class RBTView<E extends Comparable<E>> extends BorderPane implements TreeListener<E> {
+	
+	/**
+	 * This nested class holds the shapes that draw one node of the tree.
+	 */
+	private static class NodeShape {
+		private Circle circle;
+		private Text text;
+		private Line edge; // The line to the parent, hidden for the root
+		private NodeShape leftNil; // The shapes of a NIL left child, or null
+		private NodeShape rightNil; // The shapes of a NIL right child, or null
+	}
+	
 	private RedBlackTree<E> tree = new RedBlackTree<>();
 	private double radius = 30; // Tree node radius
 	private double vGap = 75; // Gap between two levels in a tree
+	private Group edges = new Group(); // Lines are kept below the circles
+	private Group nodes = new Group();
+	private HashMap<RBNode<E>, NodeShape> shapes = new HashMap<>();
+	private ArrayList<NodeShape> spare = new ArrayList<>(); // Hidden shapes kept for reuse
+	private HashSet<RBNode<E>> dirty = new HashSet<>(); // Roots of subtrees that need to be laid out again
+	private boolean layoutPending = false;
 	
 	/**
 	 * Default constructor.
@@ -24,13 +50,19 @@ public class RBTView<E extends Comparable<E>> extends BorderPane {
 	 */
 	public RBTView(RedBlackTree<E> tree) {
 		this.tree = tree;
+		edges.setManaged(false);
+		nodes.setManaged(false);
+		getChildren().addAll(edges, nodes);
+		tree.addTreeListener(this);
+		widthProperty().addListener((observable, oldWidth, newWidth) -> displayTree());
 	}
 	
 	/**
-	 * Displays the tree on the screen. 
+	 * Displays the tree on the screen.
 	 */
 	public void displayTree() {
-		this.getChildren().clear();
+		dirty.clear();
+		clearShapes();
 		if (tree.root != null) {
 			displayTree(tree.root, getWidth() / 2, vGap, getWidth() / 4);
 		}
@@ -45,25 +77,276 @@ public class RBTView<E extends Comparable<E>> extends BorderPane {
 	 * @param hGap the gap
 	 */
 	public void displayTree(RBNode<E> root, double x, double y, double hGap) {
-		if (root.left != null) {
-			getChildren().add(new Line(x - hGap, y + vGap, x, y ));
+		NodeShape shape = shapes.get(root);
+		if (shape == null) {
+			shape = createShape(root);
+			shapes.put(root, shape);
+		}
+		placeShape(shape, x, y);
+		if (root.parent == null) {
+			removeEdge(shape);
+		}
+		
+		// Lay out the children, drawing NIL children as leaves
+		if (root.left == tree.NIL) {
+			shape.leftNil = placeNil(shape.leftNil, x, y, x - hGap, y + vGap);
+		}
+		else {
+			shape.leftNil = removeShape(shape.leftNil);
 			displayTree(root.left, x - hGap, y + vGap, hGap / 2);
+			placeEdge(shapes.get(root.left), x - hGap, y + vGap, x, y);
+		}
+		if (root.right == tree.NIL) {
+			shape.rightNil = placeNil(shape.rightNil, x, y, x + hGap, y + vGap);
 		}
-		if (root.right != null) {
-			getChildren().add(new Line(x + hGap, y + vGap, x, y ));
+		else {
+			shape.rightNil = removeShape(shape.rightNil);
 			displayTree(root.right, x + hGap, y + vGap, hGap / 2);
+			placeEdge(shapes.get(root.right), x + hGap, y + vGap, x, y);
 		}
-		
-		// Display the node
-		Circle circle = new Circle(x, y, radius);
-		Text text = new Text(x - 4, y + 4, root.getData() + "");
-		text.setStroke(Color.WHITE);
-		if (root.color.equals("B")) {
-			circle.setFill(Color.BLACK);
+	}
+	
+	@Override
+	public void nodeAdded(RBNode<E> node) {
+		shapes.put(node, createShape(node));
+		markDirty(node.parent != null ? node.parent : node);
+	}
+	
+	@Override
+	public void nodeRemoved(RBNode<E> node) {
+		NodeShape shape = shapes.remove(node);
+		removeShape(shape);
+		dirty.remove(node);
+		if (node.parent != null) {
+			markDirty(node.parent);
+		}
+		else if (tree.root != null) {
+			markDirty(tree.root); // The child of the old root took its place
+		}
+	}
+	
+	@Override
+	public void recolored(RBNode<E> node) {
+		NodeShape shape = shapes.get(node);
+		if (shape != null) {
+			shape.circle.setFill(fill(node));
+		}
+	}
+	
+	@Override
+	public void rotated(RBNode<E> node) {
+		markDirty(node);
+	}
+	
+	@Override
+	public void dataChanged(RBNode<E> node) {
+		NodeShape shape = shapes.get(node);
+		if (shape != null) {
+			shape.text.setText(node.getData() + "");
+		}
+	}
+	
+	@Override
+	public void cleared() {
+		dirty.clear();
+		clearShapes();
+	}
+	
+	/**
+	 * Schedules the subtree rooted at the given node to be laid out again once
+	 * the current tree operation is over. Every change made by one operation
+	 * is laid out together.
+	 * 
+	 * @param node the root of the subtree that changed
+	 */
+	private void markDirty(RBNode<E> node) {
+		dirty.add(node);
+		if (!layoutPending) {
+			layoutPending = true;
+			Platform.runLater(this::layoutDirty);
+		}
+	}
+	
+	/**
+	 * Lays out every subtree that changed since the last layout. A subtree
+	 * is skipped when one of its ancestors is laid out anyway.
+	 */
+	private void layoutDirty() {
+		layoutPending = false;
+		ArrayList<RBNode<E>> roots = new ArrayList<>();
+		for (RBNode<E> node : dirty) {
+			if (!shapes.containsKey(node)) {
+				continue; // The node was removed after it was marked
+			}
+			boolean covered = false;
+			for (RBNode<E> ancestor = node.parent; ancestor != null && !covered; ancestor = ancestor.parent) {
+				covered = dirty.contains(ancestor);
+			}
+			if (!covered) {
+				roots.add(node);
+			}
+		}
+		dirty.clear();
+		for (RBNode<E> node : roots) {
+			layoutSubtree(node);
+		}
+	}
+	
+	/**
+	 * Computes the position of the given node from its path to the root
+	 * and lays out the subtree rooted at the node.
+	 * 
+	 * @param node the root of the subtree
+	 */
+	private void layoutSubtree(RBNode<E> node) {
+		ArrayList<RBNode<E>> path = new ArrayList<>(); // From the node up to the root
+		for (RBNode<E> current = node; current != null; current = current.parent) {
+			path.add(current);
+		}
+		double x = getWidth() / 2;
+		double y = vGap;
+		double hGap = getWidth() / 4;
+		double parentX = x;
+		double parentY = y;
+		for (int i = path.size() - 2; i >= 0; i--) {
+			parentX = x;
+			parentY = y;
+			x += path.get(i) == path.get(i + 1).left ? -hGap : hGap;
+			y += vGap;
+			hGap /= 2;
 		}
-		else if (root.color.equals("R")) {
-			circle.setFill(Color.RED);
+		displayTree(node, x, y, hGap);
+		if (node.parent != null) {
+			placeEdge(shapes.get(node), x, y, parentX, parentY);
+		}
+	}
+	
+	/**
+	 * Creates the circle and label of a node.
+	 * 
+	 * @param node the node that will be drawn
+	 * @return the shapes of the node
+	 */
+	private NodeShape createShape(RBNode<E> node) {
+		NodeShape shape;
+		if (!spare.isEmpty()) {
+			shape = spare.remove(spare.size() - 1);
+			shape.circle.setVisible(true);
+			shape.text.setVisible(true);
+		}
+		else {
+			shape = new NodeShape();
+			shape.circle = new Circle(radius);
+			shape.text = new Text();
+			shape.text.setStroke(Color.WHITE);
+			shape.edge = new Line();
+			shape.edge.setVisible(false);
+			nodes.getChildren().addAll(shape.circle, shape.text);
+			edges.getChildren().add(shape.edge);
+		}
+		shape.circle.setFill(fill(node));
+		shape.text.setText(node.getData() + "");
+		return shape;
+	}
+	
+	/**
+	 * Moves the circle and label of a node to the position (x, y).
+	 * 
+	 * @param shape the shapes of the node
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 */
+	private void placeShape(NodeShape shape, double x, double y) {
+		shape.circle.setCenterX(x);
+		shape.circle.setCenterY(y);
+		shape.text.setX(x - 4);
+		shape.text.setY(y + 4);
+	}
+	
+	/**
+	 * Draws the line from a node at (x, y) to its parent at (parentX, parentY).
+	 * 
+	 * @param shape the shapes of the node
+	 * @param x the x coordinate of the node
+	 * @param y the y coordinate of the node
+	 * @param parentX the x coordinate of the parent
+	 * @param parentY the y coordinate of the parent
+	 */
+	private void placeEdge(NodeShape shape, double x, double y, double parentX, double parentY) {
+		shape.edge.setVisible(true);
+		shape.edge.setStartX(x);
+		shape.edge.setStartY(y);
+		shape.edge.setEndX(parentX);
+		shape.edge.setEndY(parentY);
+	}
+	
+	/**
+	 * Draws a NIL leaf at (x, y) below its parent at (parentX, parentY).
+	 * 
+	 * @param shape the shapes of the NIL leaf, or null to create them
+	 * @param parentX the x coordinate of the parent
+	 * @param parentY the y coordinate of the parent
+	 * @param x the x coordinate of the NIL leaf
+	 * @param y the y coordinate of the NIL leaf
+	 * @return the shapes of the NIL leaf
+	 */
+	private NodeShape placeNil(NodeShape shape, double parentX, double parentY, double x, double y) {
+		if (shape == null) {
+			shape = createShape(tree.NIL);
+		}
+		placeShape(shape, x, y);
+		placeEdge(shape, x, y, parentX, parentY);
+		return shape;
+	}
+	
+	/**
+	 * Hides the line from a node to its parent.
+	 * 
+	 * @param shape the shapes of the node
+	 */
+	private void removeEdge(NodeShape shape) {
+		shape.edge.setVisible(false);
+	}
+	
+	/**
+	 * Hides the shapes of a node, including its NIL leaves, and keeps them for reuse. 
+	 * Hiding a shape takes constant time, while removing it from its group does not.
+	 * 
+	 * @param shape the shapes of the node, or null
+	 * @return null, so the caller can clear its reference
+	 */
+	private NodeShape removeShape(NodeShape shape) {
+		if (shape != null) {
+			shape.circle.setVisible(false);
+			shape.text.setVisible(false);
+			removeEdge(shape);
+			shape.leftNil = removeShape(shape.leftNil);
+			shape.rightNil = removeShape(shape.rightNil);
+			spare.add(shape);
+		}
+		return null;
+	}
+	
+	/**
+	 * Removes every shape from the screen.
+	 */
+	private void clearShapes() {
+		edges.getChildren().clear();
+		nodes.getChildren().clear();
+		shapes.clear();
+		spare.clear();
+	}
+	
+	/**
+	 * Returns the fill color of a node.
+	 * 
+	 * @param node the node being drawn
+	 * @return black for black nodes and red for red nodes
+	 */
+	private Color fill(RBNode<E> node) {
+		if (node.color.equals("R")) {
+			return Color.RED;
 		}
-		getChildren().addAll(circle, text);
+		return Color.BLACK;
 	}
 }
\ No newline at end of file
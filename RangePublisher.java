@@ -0,0 +1,208 @@
+package rbtree;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * This class publishes the keys of a RedBlackTree between lo and hi
+ * (inclusive) in order, as a Flow.Publisher. Keys are only read from the
+ * tree when a subscriber requests them, so a slow subscriber never causes
+ * the range to be buffered.
+ * 
+ * A subscription remembers only the last key it emitted. When it needs more
+ * keys it descends from the root to the first key after that one and follows
+ * successor references for at most CHUNK keys, so a scan uses the same
+ * memory for any size of range and may pause for as long as its subscriber
+ * likes. Keys inserted or deleted during a pause are seen, or not, exactly
+ * as if the scan had just reached them.
+ * 
+ * Each subscriber gets its own scan, delivered on the executor. When a lock
+ * is given, chunks are read under its read lock and keys are emitted
+ * without holding it.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class RangePublisher<E extends Comparable<E>> implements Flow.Publisher<E> {
+	private static final int CHUNK = 64; // Keys read from the tree per descent
+	private final RedBlackTree<E> tree;
+	private final E lo;
+	private final E hi;
+	private final ReadWriteLock lock;
+	private final Executor executor;
+	
+	/**
+	 * Constructs a publisher of the keys between lo and hi that delivers them
+	 * on the common fork/join pool. The tree must not change while a chunk is
+	 * read unless it is guarded by a lock.
+	 * 
+	 * @param tree the tree that will be scanned
+	 * @param lo the smallest key of the range
+	 * @param hi the largest key of the range
+	 */
+	public RangePublisher(RedBlackTree<E> tree, E lo, E hi) {
+		this(tree, lo, hi, null, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Constructs a publisher of the keys between lo and hi.
+	 * 
+	 * @param tree the tree that will be scanned
+	 * @param lo the smallest key of the range
+	 * @param hi the largest key of the range
+	 * @param lock the lock that guards the tree, or null if there is none
+	 * @param executor where keys are delivered to subscribers
+	 */
+	public RangePublisher(RedBlackTree<E> tree, E lo, E hi, ReadWriteLock lock, Executor executor) {
+		if (tree == null || lo == null || hi == null || executor == null) {
+			throw new NullPointerException();
+		}
+		this.tree = tree;
+		this.lo = lo;
+		this.hi = hi;
+		this.lock = lock;
+		this.executor = executor;
+	}
+	
+	@Override
+	public void subscribe(Flow.Subscriber<? super E> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException();
+		}
+		Scan scan = new Scan(subscriber);
+		subscriber.onSubscribe(scan);
+	}
+	
+	/**
+	 * This nested class is the subscription of one subscriber. Requests and
+	 * cancellation only update atomic fields and schedule a drain; at most one
+	 * drain runs at a time, so the subscriber is never called concurrently or
+	 * recursively.
+	 */
+	private class Scan implements Flow.Subscription, Runnable {
+		private final Flow.Subscriber<? super E> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger pending = new AtomicInteger(); // Signals not yet handled by a drain
+		@SuppressWarnings("unchecked")
+		private final E[] chunk = (E[]) new Comparable<?>[CHUNK];
+		private volatile boolean cancelled = false;
+		private volatile Throwable error; // A request that broke the rules, reported by the drain
+		private E last; // The last key emitted, or null before the first
+		private boolean done = false;
+		
+		private Scan(Flow.Subscriber<? super E> subscriber) {
+			this.subscriber = subscriber;
+		}
+		
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException("The number of keys requested must be positive.");
+			}
+			else {
+				demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			}
+			signal();
+		}
+		
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+		
+		/**
+		 * Schedules a drain unless one is already running or scheduled.
+		 */
+		private void signal() {
+			if (pending.getAndIncrement() == 0) {
+				executor.execute(this);
+			}
+		}
+		
+		/**
+		 * Emits keys while there is demand, then completes the subscriber
+		 * when the range is exhausted.
+		 */
+		@Override
+		public void run() {
+			int missed = 1;
+			while (true) {
+				if (!done && !cancelled) {
+					try {
+						drain();
+					} catch (RuntimeException e) {
+						done = true;
+						subscriber.onError(e);
+					}
+				}
+				missed = pending.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+		
+		/**
+		 * Reads and emits chunks until the demand or the range runs out.
+		 */
+		private void drain() {
+			if (error != null) {
+				done = true;
+				subscriber.onError(error);
+				return;
+			}
+			while (!cancelled) {
+				long wanted = demand.get();
+				int count = read((int) Math.min(wanted, CHUNK)); // With no demand, only checks for the end
+				if (count < 0) {
+					done = true;
+					subscriber.onComplete();
+					return;
+				}
+				if (count == 0) {
+					return; // Wait for more demand
+				}
+				for (int i = 0; i < count; i++) {
+					E key = chunk[i];
+					chunk[i] = null;
+					if (cancelled) {
+						continue;
+					}
+					last = key;
+					demand.decrementAndGet();
+					subscriber.onNext(key);
+				}
+			}
+		}
+		
+		/**
+		 * Copies up to max keys that follow the last key emitted into the chunk.
+		 * 
+		 * @param max the largest number of keys copied, or 0 to only look for more keys
+		 * @return the number of keys copied, or -1 if none were copied and the range is exhausted
+		 */
+		private int read(int max) {
+			if (lock != null) {
+				lock.readLock().lock();
+			}
+			try {
+				RBNode<E> node = last == null ? tree.ceilingNode(lo, true) : tree.ceilingNode(last, false);
+				int count = 0;
+				while (count < max && node != null && node.getData().compareTo(hi) <= 0) {
+					chunk[count++] = node.getData();
+					node = tree.successor(node);
+				}
+				boolean exhausted = node == null || node.getData().compareTo(hi) > 0;
+				return count == 0 && exhausted ? -1 : count;
+			} finally {
+				if (lock != null) {
+					lock.readLock().unlock();
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
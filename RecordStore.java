@@ -0,0 +1,499 @@
+package rbtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * This class stores records indexed by several keys, such as an id, a
+ * timestamp and an owner, with one RedBlackTree per index. The store is
+ * created with its primary index, whose keys are unique and identify the
+ * records; secondary indexes are added by name with the function that
+ * extracts their key from a record, and may allow duplicate keys.
+ * 
+ * Every record is held once, in a row that the entries of all its indexes
+ * point to, so a query on any index returns the records themselves and an
+ * update that leaves a key alone does not touch that index. A row also
+ * keeps the entry of each index, so a record is removed by the keys it was
+ * indexed under even if it has changed since.
+ * 
+ * Insert, update and delete apply to every index in one call, under the
+ * write lock of the store: every key is extracted and every unique index
+ * checked before the first tree changes, so a call that fails changes
+ * nothing and readers, which take the read lock, never see a record in
+ * some indexes and not in others.
+ * 
+ * @author Richard Shu
+ * @param <K> the type of the primary key
+ * @param <R> the type of the records
+ */
+public class RecordStore<K extends Comparable<K>, R> {
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ArrayList<Index<?, R>> indexes = new ArrayList<>();
+	private final Index<K, R> primary;
+	private long nextSequence = Long.MIN_VALUE + 1; // Leaves Long.MIN_VALUE to the lower bounds of ranges
+	
+	/**
+	 * This nested class represents a stored record and the entries that index it.
+	 */
+	static final class Row<R> {
+		R record;
+		final long sequence; // Tells apart records with equal keys in an index that allows them
+		Entry<?, R>[] entries; // The entry of each index, by position
+		
+		Row(R record, long sequence, Entry<?, R>[] entries) {
+			this.record = record;
+			this.sequence = sequence;
+			this.entries = entries;
+		}
+	}
+	
+	/**
+	 * This nested class represents the data of a node in an index: a key and
+	 * the row it belongs to. Entries are ordered by key, then by the row's
+	 * sequence number when the index allows duplicate keys.
+	 */
+	static final class Entry<S extends Comparable<S>, R> implements Comparable<Entry<S, R>> {
+		final S key;
+		final long sequence; // 0 in a unique index, so equal keys collide
+		final Row<R> row;
+		
+		Entry(S key, long sequence, Row<R> row) {
+			this.key = key;
+			this.sequence = sequence;
+			this.row = row;
+		}
+		
+		@Override
+		public int compareTo(Entry<S, R> other) {
+			int cmp = key.compareTo(other.key);
+			return cmp != 0 ? cmp : Long.compare(sequence, other.sequence);
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> entry = (Entry<?, ?>) other;
+			return sequence == entry.sequence && key.equals(entry.key);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * key.hashCode() + Long.hashCode(sequence);
+		}
+		
+		@Override
+		public String toString() {
+			return String.valueOf(key);
+		}
+	}
+	
+	/**
+	 * This nested class represents one index of the store. Its queries take
+	 * the read lock of the store and return the records themselves.
+	 * 
+	 * @param <S> the type of the key of the index
+	 * @param <R> the type of the records
+	 */
+	public static final class Index<S extends Comparable<S>, R> {
+		private final String name;
+		private final Function<? super R, ? extends S> extractor;
+		private final boolean unique;
+		private final int position; // Position of the index's entries in every row
+		private final ReadWriteLock lock;
+		private final RedBlackTree<Entry<S, R>> tree = new RedBlackTree<>();
+		
+		private Index(String name, Function<? super R, ? extends S> extractor, boolean unique, int position,
+				ReadWriteLock lock) {
+			this.name = name;
+			this.extractor = extractor;
+			this.unique = unique;
+			this.position = position;
+			this.lock = lock;
+		}
+		
+		/**
+		 * Returns a record with the given key.
+		 * 
+		 * @param key the key searched for
+		 * @return the record with the key, the first one in insertion order when the
+		 *         index allows duplicates, or null if there is none
+		 */
+		public R get(S key) {
+			lock.readLock().lock();
+			try {
+				Entry<S, R> entry = tree.ceiling(new Entry<>(key, Long.MIN_VALUE, null));
+				return entry != null && entry.key.compareTo(key) == 0 ? entry.row.record : null;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		
+		/**
+		 * Returns the records with the given key, in insertion order.
+		 * 
+		 * @param key the key searched for
+		 * @return an ArrayList of the records with the key
+		 */
+		public ArrayList<R> getAll(S key) {
+			return range(key, key);
+		}
+		
+		/**
+		 * Returns the records whose keys are between lo and hi (inclusive), in
+		 * order of key, and records with equal keys in insertion order.
+		 * 
+		 * @param lo the smallest key of the range
+		 * @param hi the largest key of the range
+		 * @return an ArrayList of the records in the range
+		 */
+		public ArrayList<R> range(S lo, S hi) {
+			Entry<S, R> from = new Entry<>(lo, Long.MIN_VALUE, null);
+			Entry<S, R> to = new Entry<>(hi, Long.MAX_VALUE, null);
+			lock.readLock().lock();
+			try {
+				ArrayList<RBNode<Entry<S, R>>> nodes = tree.range(from, to);
+				ArrayList<R> records = new ArrayList<>(nodes.size());
+				for (RBNode<Entry<S, R>> node : nodes) {
+					records.add(node.getData().row.record);
+				}
+				return records;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		
+		/**
+		 * Returns the name of the index.
+		 * 
+		 * @return the name of the index
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * Returns true if no two records may have the same key in this index.
+		 * 
+		 * @return true if the keys of the index are unique
+		 */
+		public boolean isUnique() {
+			return unique;
+		}
+		
+		/**
+		 * Extracts the key of a record for this index.
+		 * 
+		 * @param record the record
+		 * @return the key of the record
+		 * @throws NullPointerException if the record has no key for this index
+		 */
+		private S keyOf(R record) {
+			S key = extractor.apply(record);
+			if (key == null) {
+				throw new NullPointerException("The record has no key for the index " + name + ".");
+			}
+			return key;
+		}
+		
+		/**
+		 * Returns the entry for a key and a row.
+		 * 
+		 * @param key the key of the row in this index
+		 * @param row the row
+		 * @return the entry that indexes the row under the key
+		 */
+		private Entry<S, R> entry(S key, Row<R> row) {
+			return new Entry<>(key, unique ? 0 : row.sequence, row);
+		}
+		
+		/**
+		 * Returns true if a unique index already holds the key for a row other than the given one.
+		 * 
+		 * @param key the key that is about to be added, extracted by this index
+		 * @param row the row the key belongs to, or null for a new record
+		 * @return true if adding the key would duplicate another record's key
+		 */
+		@SuppressWarnings("unchecked")
+		private boolean conflicts(Object key, Row<R> row) {
+			if (!unique) {
+				return false;
+			}
+			RBNode<Entry<S, R>> node = tree.search(new Entry<>((S) key, 0, null));
+			return node != null && node.getData().row != row;
+		}
+		
+		/**
+		 * Adds the entry of a row to the index.
+		 * 
+		 * @param key the key of the row, extracted by this index
+		 * @param row the row
+		 */
+		@SuppressWarnings("unchecked")
+		private void add(Object key, Row<R> row) {
+			Entry<S, R> entry = entry((S) key, row);
+			tree.insert(entry);
+			row.entries[position] = entry;
+		}
+		
+		/**
+		 * Moves the entry of a row to a new key, if the key has changed.
+		 * 
+		 * @param key the new key of the row, extracted by this index
+		 * @param row the row
+		 */
+		@SuppressWarnings("unchecked")
+		private void replace(Object key, Row<R> row) {
+			if (entryOf(row).key.compareTo((S) key) != 0) {
+				remove(row);
+				add(key, row);
+			}
+		}
+		
+		/**
+		 * Removes the entry of a row from the index.
+		 * 
+		 * @param row the row
+		 */
+		private void remove(Row<R> row) {
+			tree.delete(entryOf(row));
+		}
+		
+		/**
+		 * Returns the entry of this index in a row.
+		 * 
+		 * @param row the row
+		 * @return the entry of the row in this index
+		 */
+		@SuppressWarnings("unchecked")
+		private Entry<S, R> entryOf(Row<R> row) {
+			return (Entry<S, R>) row.entries[position];
+		}
+	}
+	
+	/**
+	 * Constructs an empty store with its primary index.
+	 * 
+	 * @param name the name of the primary index
+	 * @param primaryKey extracts the key that identifies a record
+	 */
+	public RecordStore(String name, Function<? super R, ? extends K> primaryKey) {
+		primary = new Index<>(name, primaryKey, true, 0, lock);
+		indexes.add(primary);
+	}
+	
+	/**
+	 * Adds a secondary index and fills it with the records already stored.
+	 * 
+	 * @param name the name of the index, not used by another index of the store
+	 * @param extractor extracts the key of the index from a record
+	 * @param unique true if no two records may have the same key
+	 * @return the index
+	 * @throws DuplicateItemException if the index is unique and two stored records have the same key; no index is added
+	 */
+	public <S extends Comparable<S>> Index<S, R> addIndex(String name, Function<? super R, ? extends S> extractor,
+			boolean unique) {
+		lock.writeLock().lock();
+		try {
+			if (getIndex(name) != null) {
+				throw new IllegalArgumentException("The store already has an index named " + name + ".");
+			}
+			Index<S, R> index = new Index<>(name, extractor, unique, indexes.size(), lock);
+			ArrayList<Entry<S, R>> entries = new ArrayList<>(size());
+			for (RBNode<Entry<K, R>> node : primary.tree.inorder()) {
+				Row<R> row = node.getData().row;
+				entries.add(index.entry(index.keyOf(row.record), row));
+			}
+			entries.sort(null);
+			for (int i = 1; i < entries.size(); i++) {
+				if (entries.get(i - 1).compareTo(entries.get(i)) == 0) {
+					throw new DuplicateItemException();
+				}
+			}
+			index.tree.buildFromSorted(entries.iterator(), entries.size());
+			for (Entry<S, R> entry : entries) {
+				Row<R> row = entry.row;
+				row.entries = Arrays.copyOf(row.entries, indexes.size() + 1);
+				row.entries[index.position] = entry;
+			}
+			indexes.add(index);
+			return index;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds a record to every index.
+	 * 
+	 * @param record the record that will be stored
+	 * @throws DuplicateItemException if a unique index already holds one of the record's keys; nothing is changed
+	 * @throws NullPointerException if the record has no key for an index; nothing is changed
+	 */
+	public void insert(R record) {
+		Objects.requireNonNull(record);
+		lock.writeLock().lock();
+		try {
+			Object[] keys = keysOf(record, null);
+			@SuppressWarnings("unchecked")
+			Entry<?, R>[] entries = (Entry<?, R>[]) new Entry<?, ?>[indexes.size()];
+			Row<R> row = new Row<>(record, nextSequence++, entries);
+			for (Index<?, R> index : indexes) {
+				index.add(keys[index.position], row);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Replaces the stored record that has the same primary key. Only the
+	 * indexes whose key has changed are updated; the others keep their
+	 * entries and see the new record through the shared row.
+	 * 
+	 * @param record the new version of the record
+	 * @return the record that was replaced
+	 * @throws NullPointerException if no stored record has the primary key; nothing is changed
+	 * @throws DuplicateItemException if a unique index holds one of the new keys for another record; nothing is changed
+	 */
+	public R update(R record) {
+		Objects.requireNonNull(record);
+		lock.writeLock().lock();
+		try {
+			Row<R> row = rowOf(primary.keyOf(record));
+			Object[] keys = keysOf(record, row);
+			for (Index<?, R> index : indexes) {
+				index.replace(keys[index.position], row);
+			}
+			R old = row.record;
+			row.record = record;
+			return old;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes the record with the given primary key from every index.
+	 * 
+	 * @param key the primary key of the record
+	 * @return the record that was removed
+	 * @throws NullPointerException if no stored record has the key
+	 */
+	public R delete(K key) {
+		lock.writeLock().lock();
+		try {
+			Row<R> row = rowOf(key);
+			for (Index<?, R> index : indexes) {
+				index.remove(row);
+			}
+			return row.record;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the record with the given primary key.
+	 * 
+	 * @param key the primary key searched for
+	 * @return the record with the key, or null if there is none
+	 */
+	public R get(K key) {
+		return primary.get(key);
+	}
+	
+	/**
+	 * Returns the primary index.
+	 * 
+	 * @return the index of the primary keys
+	 */
+	public Index<K, R> getPrimaryIndex() {
+		return primary;
+	}
+	
+	/**
+	 * Returns the index with the given name.
+	 * 
+	 * @param name the name of the index
+	 * @return the index, or null if the store has none by that name
+	 */
+	public Index<?, R> getIndex(String name) {
+		lock.readLock().lock();
+		try {
+			for (Index<?, R> index : indexes) {
+				if (index.name.equals(name)) {
+					return index;
+				}
+			}
+			return null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the number of records in the store.
+	 * 
+	 * @return the number of records in the store
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return primary.tree.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns true if the store holds no records.
+	 * 
+	 * @return true if the store is empty
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	/**
+	 * Extracts the key of every index from a record and checks the unique
+	 * indexes, before anything is changed.
+	 * 
+	 * @param record the record
+	 * @param row the row the record will replace, or null for a new record
+	 * @return the keys of the record by index position
+	 * @throws DuplicateItemException if a unique index holds one of the keys for another record
+	 */
+	private Object[] keysOf(R record, Row<R> row) {
+		Object[] keys = new Object[indexes.size()];
+		for (Index<?, R> index : indexes) {
+			keys[index.position] = index.keyOf(record);
+		}
+		for (Index<?, R> index : indexes) {
+			if (index.conflicts(keys[index.position], row)) {
+				throw new DuplicateItemException();
+			}
+		}
+		return keys;
+	}
+	
+	/**
+	 * Returns the row of the record with the given primary key.
+	 * 
+	 * @param key the primary key
+	 * @return the row of the record
+	 * @throws NullPointerException if no stored record has the key
+	 */
+	private Row<R> rowOf(K key) {
+		RBNode<Entry<K, R>> node = primary.tree.search(new Entry<>(key, 0, null));
+		if (node == null) {
+			throw new NullPointerException("The record cannot be found in the store.");
+		}
+		return node.getData().row;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,276 @@
+package rbtree;
+
+/**
+ * This class balances a RedBlackTree by the rules of a red-black tree: every
+ * node is red or black, a red node has no red child, and every path from a
+ * node down to NIL has the same number of black nodes. An insertion takes at
+ * most two rotations and a deletion at most three, but the recoloring may
+ * climb to the root. It is the strategy a tree uses unless it is given another.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class RedBlackBalancing<E extends Comparable<E>> implements BalancingStrategy<E> {
+	
+	@Override
+	public void inserted(RedBlackTree<E> tree, RBNode<E> node) {
+		insertionCleanup(tree, node); // Update tree to have the properties of a Red-Black Tree
+	}
+	
+	/**
+	 * Restores the properties of a red-black tree after a node is unlinked.
+	 * Removing a red node changes no black height. Otherwise a red child
+	 * turns black to stand in for it, and a black child, or NIL, becomes
+	 * double black.
+	 */
+	@Override
+	public void removed(RedBlackTree<E> tree, RBNode<E> node, RBNode<E> child) {
+		if (isRed(child)) { // Note that both node & child cannot be red
+			tree.setColor(child, "B");
+		}
+		else if (isBlack(node)) {
+			tree.setColor(child, "DB");
+			fixDoubleBlack(tree, child);
+		}
+	}
+	
+	/**
+	 * Returns twice the black height, less one. No path has two red nodes in
+	 * a row, so a path from the root to a leaf holds at most twice as many
+	 * nodes as the black height.
+	 */
+	@Override
+	public int heightBound(RedBlackTree<E> tree) {
+		return 2 * tree.blackHeight() - 1;
+	}
+	
+	/**
+	 * Fixes a red node whose parent may be red.
+	 * 
+	 * @param tree the tree that changed
+	 * @param node the red node that needs to be fixed
+	 */
+	private void insertionCleanup(RedBlackTree<E> tree, RBNode<E> node) {
+		
+		// Case 1: The root is red
+		if (tree.root.color.equals("R")) {
+			tree.setColor(tree.root, "B"); // Base case
+			tree.blackHeight++; // Every path gains the root as a black node
+		}
+		
+		// Case 2: The parent is black
+		else if (node.parent.color.equals("B")) {} // Do nothing
+		
+		else {
+			// Since cases 1 & 2 are skipped, the node is 
+			// guaranteed to have a parent, uncle, & grandparent
+			RBNode<E> parent = node.parent;
+			RBNode<E> uncle = tree.uncle(node);
+			RBNode<E> grandparent = tree.grandparent(node);
+			// Case 3: The parent and uncle are red
+			if (isRed(parent) && isRed(uncle)) {
+				tree.setColor(parent, "B"); 			// Change parent to black
+				tree.setColor(uncle, "B"); 			 	// Change uncle to black
+				tree.setColor(grandparent, "R"); 		// Change grandparent to red
+				insertionCleanup(tree, grandparent); 	// Recursively check grandparent for any violations
+			}
+			
+			// Case 4: The parent is red and the uncle is black
+			else if (parent.color.equals("R") && uncle.color.equals("B")) {
+				
+				// Case 4a: The node is a right child & the parent is a left child
+				if (tree.isRightChild(node) && tree.isLeftChild(parent)) {
+					tree.leftRotate(parent);
+					
+					// Swap the node and the parent. Go to case 5.
+					RBNode<E> temp = node;
+					node = parent;
+					parent = temp;
+				}
+				
+				// Case 4b: The node is a left child & the parent is a right child
+				else if (tree.isLeftChild(node) && tree.isRightChild(parent)) {
+					tree.rightRotate(parent);
+					
+					// Swap the node and the parent. Go to case 5.
+					RBNode<E> temp = node;
+					node = parent;
+					parent = temp;
+				}
+				
+				// Case 5a: The node and parent are left children
+				if (tree.isLeftChild(node) && tree.isLeftChild(parent)) {
+					tree.setColor(parent, "B");			// Change parent to black
+					tree.setColor(grandparent, "R");	// Change grandparent to red
+					tree.rightRotate(grandparent);	// Right rotate the grandparent
+				}
+				
+				// Case 5b: The node and parent are right children
+				else if (tree.isRightChild(node) && tree.isRightChild(parent)) {
+					tree.setColor(parent, "B");			// Change the parent to black
+					tree.setColor(grandparent, "R");	// Change the grandparent to red
+					tree.leftRotate(grandparent);	// Left rotate the grandparent
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Removes the double black node from the tree.
+	 * 
+	 * @param tree the tree that changed
+	 * @param node the double black node that needs to be fixed
+	 */
+	private void fixDoubleBlack(RedBlackTree<E> tree, RBNode<E> node) {
+		
+		// Case 1: The root is double black
+		if (node.equals(tree.root)) {
+			tree.setColor(node, "B"); // Base case
+			tree.blackHeight--; // Every path has lost a black node
+		}
+		
+		else {
+			RBNode<E> sibling = tree.sibling(node);
+			RBNode<E> parent = node.parent;
+			
+			// Case 2: The sibling is red
+			if (isRed(sibling)) {
+				
+				// Case 2a: The node is a right child
+				if (tree.isRightChild(node)) {
+					tree.setColor(sibling, "B"); 	// Change sibling to black
+					tree.setColor(parent, "R"); 	// Change parent to red
+					tree.rightRotate(parent); 	// Right rotate the parent
+				}
+				
+				// Case 2b: The node is a left child
+				else if (tree.isLeftChild(node)) {
+					tree.setColor(sibling, "B"); 	// Change sibling to black
+					tree.setColor(parent, "R"); 	// Change parent to red
+					tree.leftRotate(parent); 	// Left rotate the parent
+				}
+				fixDoubleBlack(tree, node); // Recursion
+			}
+			
+			// Case 3: The sibling has at least one red child
+			else if (hasRedChild(sibling)) {
+				RBNode<E> RC; // Red child
+				
+				// Case 3a: The sibling is a left child
+				if (tree.isLeftChild(sibling)) {
+					
+					// Case 3a.1: The right child of the sibling is red
+					if (isRed(sibling.right)) {
+						RC = sibling.right;
+						tree.leftRotate(sibling);		// Left rotate the sibling
+						tree.rightRotate(parent);		// Right rotate the parent
+						tree.setColor(RC, parent.color);	// Change RC to the color of parent
+						tree.setColor(sibling, "B");		// Change sibling to black
+						tree.setColor(parent, "B");			// Change parent to black
+						tree.setColor(node, "B");			// Change node to black
+					}
+					
+					// Case 3a.2: The left child of the sibling is red
+					else if (isRed(sibling.left)) {
+						RC = sibling.left;
+						tree.rightRotate(parent);			// Right rotate the parent
+						tree.setColor(sibling, parent.color);	// Change sibling to the color of parent
+						tree.setColor(RC, "B");					// Change RC to black
+						tree.setColor(parent, "B");				// Change parent to black
+						tree.setColor(node, "B");				// Change node to black
+					}
+				}
+				
+				// Case 3b: Sibling is a right child
+				else if (tree.isRightChild(sibling)) {
+					
+					// Case 3b.1: The left child of the sibling is red
+					if (isRed(sibling.left)) {
+						RC = sibling.left;
+						tree.rightRotate(sibling);		// Right rotate the sibling
+						tree.leftRotate(parent);			// Left rotate the parent
+						tree.setColor(RC, parent.color);	// Change RC to the color of parent
+						tree.setColor(sibling, "B");		// Change sibling to black
+						tree.setColor(parent, "B");			// Change parent to black
+						tree.setColor(node, "B");			// Change node to black
+					}
+					
+					// Case 3b.2: The right child of the sibling is red
+					else if (isRed(sibling.right)) {
+						RC = sibling.right;
+						tree.leftRotate(parent);				// Left rotate the parent
+						tree.setColor(sibling, parent.color);	// Change sibling to the color of parent
+						tree.setColor(RC, "B");					// Change RC to black
+						tree.setColor(parent, "B");				// Change parent to black
+						tree.setColor(node, "B");				// Change node to black
+					}
+				}
+			}
+			
+			// Case 4: The sibling and both of its children are black (or double black)
+			else if ((isBlack(sibling) && isBlack(sibling.left) && isBlack(sibling.right)) ||
+					 (isBlack(sibling) && isDoubleBlack(sibling.left) && isDoubleBlack(sibling.right))) {
+					 // 2nd condition is used when the double black node is NIL and the sibling's children are
+					 // NIL since changing NIL to double black changes all instances of NIL to double black
+				
+				// Case 4a: The parent of sibling is red
+				if (isRed(parent)) { 		// The sibling and node share the same parent
+					tree.setColor(sibling, "R");	// Change sibling to red
+					tree.setColor(parent, "B");		// Change parent to black
+					tree.setColor(node, "B");		// Change node to black
+				}
+				
+				// Case 4b: The parent of sibling is black
+				else if (isBlack(sibling.parent)) {
+					tree.setColor(sibling, "R");	// Change sibling to red
+					tree.setColor(parent, "DB");	// Change parent to double black
+					tree.setColor(node, "B");		// Change node to black
+					fixDoubleBlack(tree, parent);	// Recursion
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns true if the node is red.
+	 * 
+	 * @param node the node determined to be red or not
+	 * @return true if the node is red
+	 */
+	private boolean isRed(RBNode<E> node) {
+		return node.color.equals("R");
+	}
+	
+	/**
+	 * Returns true if the node is black.
+	 * 
+	 * @param node the node determined to be black or not
+	 * @return true if the node is black
+	 */
+	private boolean isBlack(RBNode<E> node) {
+		return node.color.equals("B");
+	}
+	
+	/**
+	 * Returns true if the node is double black.
+	 * 
+	 * @param node the node determined to be double black or not
+	 * @return true if the node is double black
+	 */
+	private boolean isDoubleBlack(RBNode<E> node) {
+		return node.color.equals("DB");
+	}
+	
+	/**
+	 * Returns true if the node has at least one red child.
+	 * 
+	 * @param node the node determined to have red children or not
+	 * @return true if the node has at least one red child
+	 */
+	private boolean hasRedChild(RBNode<E> node) {
+		if (isRed(node.left) || isRed(node.right)) {
+			return true;
+		}
+		return false;
+	}
+}
\ No newline at end of file
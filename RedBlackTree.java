@@ -1,25 +1,61 @@
 package rbtree;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * This class represents a Red-Black Tree made up of nodes linked together.
+ * The rules that keep it balanced are those of a red-black tree unless the
+ * tree is given another BalancingStrategy, such as AVL or WAVL.
  * 
  * @author Richard Shu
  * @date Oct 27, 2017
  */
 
-public class RedBlackTree<E extends Comparable<E>> {
+public class RedBlackTree<E extends Comparable<E>> implements Iterable<E> {
+	private static final int LANES = 8; // Descents a batched lookup runs at once
 	protected RBNode<E> root;
 	protected final RBNode<E> NIL = new RBNode<E>(null, "B");
+	private RBNodePool<E> pool; // Optional free list of recycled nodes
+	protected boolean augmented = false; // True when nodes cache information about their subtrees
+	private ArrayList<TreeListener<E>> listeners = new ArrayList<>();
+	private CountingBloomFilter<E> filter; // Optional filter that answers most misses without a descent
+	private ReadWriteLock filterLock; // The lock that lets the filter be rebuilt on a background thread, or null
+	private HotKeyCache<E> cache; // Optional cache that answers finds of hot keys without a descent
+	private int size = 0; // Number of nodes
+	private BalancingStrategy<E> balancing = new RedBlackBalancing<>();
+	int blackHeight = 0; // Black nodes on every path from the root to NIL, counting the root; kept by RedBlackBalancing
+	protected int modCount = 0; // Structural changes so far, checked by iterators to fail fast
+	private ArrayList<TreeSnapshot<E>> snapshots = new ArrayList<>(); // Open snapshots that record changes
 	
 	/**
 	 * Constructs an initially empty red-black tree.
 	 */
 	public RedBlackTree() {}
 	
+	/**
+	 * Constructs an initially empty tree kept balanced by the given strategy.
+	 * 
+	 * @param balancing the rules that keep the tree balanced
+	 */
+	public RedBlackTree(BalancingStrategy<E> balancing) {
+		if (balancing == null) {
+			throw new NullPointerException();
+		}
+		this.balancing = balancing;
+	}
+	
 	/**
 	 * Initializes a red-black tree with an array.
 	 * 
@@ -39,9 +75,7 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @param key the item that will be inserted into the tree
 	 */
 	public void insert(E key) {
-		RBNode<E> child = new RBNode<>(key, "R");
-		child.left = NIL; // Default left child is set to NIL
-		child.right = NIL; // Default right child is set to NIL
+		RBNode<E> child = createNode(key);
 		if (isEmpty()) {
 			root = child;
 		}
@@ -56,10 +90,461 @@ public class RedBlackTree<E extends Comparable<E>> {
 				}
 				child.parent = parent;
 			} catch (DuplicateItemException e) {
+				releaseNode(child);
 				throw new DuplicateItemException();
 			}
 		}
-		insertionCleanup(child); // Update tree to have the properties of a Red-Black Tree
+		afterRelink(child);
+		size++;
+		modCount++;
+		for (TreeSnapshot<E> snapshot : snapshots) {
+			snapshot.record(key, true);
+		}
+		if (cache != null) {
+			cache.invalidate(key); // Drops a cached miss
+		}
+		if (filter != null) {
+			filter.add(key);
+			if (filter.needsRebuild()) {
+				TreeSnapshot<E> keys = openSnapshot(filterLock); // The caller already holds the write lock
+				filter.rebuild(keys.iterator(), size, filterLock != null, keys::close);
+			}
+		}
+		updatePath(child);
+		if (!listeners.isEmpty()) {
+			for (TreeListener<E> listener : listeners) {
+				listener.nodeAdded(child);
+			}
+		}
+		balancing.inserted(this, child);
+		NIL.parent = null; // Rotations may have pointed the sentinel at a node
+		if (filter != null) {
+			filter.step();
+		}
+	}
+	
+	/**
+	 * Builds the tree from keys in strictly increasing order in O(n) time, 
+	 * without comparisons against the tree or rotations. The tree is perfectly 
+	 * balanced: every level is black except the deepest one when it is not 
+	 * full, which is red.
+	 * 
+	 * @param keys the keys in strictly increasing order
+	 * @param count the number of keys the iterator returns
+	 * @throws IllegalStateException if the tree is not empty
+	 * @throws IllegalArgumentException if the keys are not in strictly increasing order; the tree is left empty
+	 */
+	public void buildFromSorted(Iterator<? extends E> keys, int count) {
+		if (!isEmpty()) {
+			throw new IllegalStateException("The tree must be empty to be built from sorted keys.");
+		}
+		if (count == 0) {
+			return;
+		}
+		int redLevel = 0; // Depth of the deepest level, which is only full when count is 2^k - 1
+		for (int m = count - 1; m >= 0; m = m / 2 - 1) {
+			redLevel++;
+		}
+		ArrayList<E> previous = new ArrayList<>(1); // The last key built, to check the order
+		try {
+			root = buildSubtree(0, 0, count - 1, redLevel, keys, previous);
+		} catch (IllegalArgumentException e) {
+			root = null; // Drops whatever was built
+			throw e;
+		}
+		root.parent = null;
+		afterRelink(root);
+		size = count;
+		blackHeight = redLevel;
+		modCount++;
+		if (cache != null) {
+			cache.clear(); // Drops the misses cached while the tree was empty
+		}
+		if (filter != null || !listeners.isEmpty() || !snapshots.isEmpty()) {
+			for (RBNode<E> node : inorder()) {
+				if (filter != null) {
+					filter.add(node.getData());
+				}
+				for (TreeSnapshot<E> snapshot : snapshots) {
+					snapshot.record(node.getData(), true);
+				}
+				for (TreeListener<E> listener : listeners) {
+					listener.nodeAdded(node);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Builds a perfectly balanced subtree from the next keys of the iterator. 
+	 * This is a helper method for the buildFromSorted method.
+	 * 
+	 * @param level the depth of the subtree's root
+	 * @param lo the index of the first key in the subtree
+	 * @param hi the index of the last key in the subtree
+	 * @param redLevel the depth whose nodes are red
+	 * @param keys the keys in strictly increasing order
+	 * @param previous holds the key built before this subtree
+	 * @return the root of the subtree
+	 */
+	private RBNode<E> buildSubtree(int level, int lo, int hi, int redLevel, Iterator<? extends E> keys,
+			ArrayList<E> previous) {
+		int mid = (lo + hi) >>> 1;
+		RBNode<E> left = lo < mid ? buildSubtree(level + 1, lo, mid - 1, redLevel, keys, previous) : NIL;
+		if (!keys.hasNext()) {
+			throw new IllegalArgumentException("Fewer keys than the count.");
+		}
+		E key = keys.next();
+		if (!previous.isEmpty() && key.compareTo(previous.get(0)) <= 0) {
+			throw new IllegalArgumentException("The keys are not in strictly increasing order: " + key);
+		}
+		previous.clear();
+		previous.add(key);
+		RBNode<E> node = createNode(key);
+		if (level != redLevel) {
+			node.color = "B"; // The node is not in the tree yet, so no event is fired
+		}
+		node.left = left;
+		if (left != NIL) {
+			left.parent = node;
+			afterRelink(left);
+		}
+		if (mid < hi) {
+			node.right = buildSubtree(level + 1, mid + 1, hi, redLevel, keys, previous);
+			node.right.parent = node;
+			afterRelink(node.right);
+		}
+		node.rank = 1 + Math.max(node.left == NIL ? -1 : node.left.rank, node.right == NIL ? -1 : node.right.rank);
+		if (augmented) {
+			update(node);
+		}
+		return node;
+	}
+	
+	/**
+	 * Returns a red node holding the key whose children are set to NIL. 
+	 * The node is taken from the node pool when one is available.
+	 * 
+	 * @param key the item stored in the node
+	 * @return a red node holding the key
+	 */
+	private RBNode<E> createNode(E key) {
+		RBNode<E> node = null;
+		if (pool != null) {
+			node = pool.acquire();
+		}
+		if (node == null) {
+			node = newNode(key);
+		}
+		node.setData(key);
+		node.color = "R";
+		node.rank = 0;
+		node.left = NIL; // Default left child is set to NIL
+		node.right = NIL; // Default right child is set to NIL
+		node.parent = null;
+		initNode(node);
+		return node;
+	}
+	
+	/**
+	 * Allocates a new node. Subclasses that store extra 
+	 * information in their nodes override this method.
+	 * 
+	 * @param key the item stored in the node
+	 * @return a newly allocated node
+	 */
+	protected RBNode<E> newNode(E key) {
+		return new RBNode<>(key, "R");
+	}
+	
+	/**
+	 * Resets any extra information stored in a node before it is inserted. 
+	 * This is called for newly allocated nodes and for recycled nodes.
+	 * 
+	 * @param node the node that is about to be inserted
+	 */
+	protected void initNode(RBNode<E> node) {}
+	
+	/**
+	 * Hands a node that has been unlinked from the tree back to the node pool.
+	 * 
+	 * @param node the node that is no longer part of the tree
+	 */
+	private void releaseNode(RBNode<E> node) {
+		if (pool != null) {
+			pool.release(node);
+		}
+	}
+	
+	/**
+	 * Assigns the node pool used to recycle deleted nodes. 
+	 * Passing null turns node pooling off.
+	 * 
+	 * @param pool the node pool, or null
+	 */
+	public void setNodePool(RBNodePool<E> pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Returns the node pool used to recycle deleted nodes.
+	 * 
+	 * @return the node pool, or null if pooling is off
+	 */
+	public RBNodePool<E> getNodePool() {
+		return pool;
+	}
+	
+	/**
+	 * Turns the membership filter in front of find on or off. The filter lets 
+	 * lookups of absent keys skip the descent most of the time; it grows by 
+	 * itself as the tree does, counting the keys of the larger filter a few 
+	 * at a time after each change. The keys' hashCode must be consistent 
+	 * with equals.
+	 * 
+	 * @param enabled true to maintain a filter and false to drop it
+	 */
+	public void setFilterEnabled(boolean enabled) {
+		setFilterEnabled(enabled, null);
+	}
+	
+	/**
+	 * Turns the membership filter in front of find on or off for a tree 
+	 * shared between threads. Writers must hold the write lock of the given 
+	 * lock; the filter grows on a background thread that reads the keys 
+	 * through a snapshot taking the read lock.
+	 * 
+	 * @param enabled true to maintain a filter and false to drop it
+	 * @param lock the lock that guards the tree, or null if there is none
+	 */
+	public void setFilterEnabled(boolean enabled, ReadWriteLock lock) {
+		filterLock = lock;
+		if (!enabled) {
+			if (filter != null) {
+				filter.clear(); // Lets go of the snapshot of a rebuild in progress
+			}
+			filter = null;
+		}
+		else if (filter == null) {
+			ArrayList<E> keys = keys();
+			CountingBloomFilter<E> newFilter = new CountingBloomFilter<>(keys.size() * 2);
+			for (E key : keys) {
+				newFilter.add(key);
+			}
+			filter = newFilter;
+		}
+	}
+	
+	/**
+	 * Returns the membership filter, which also reports how well it works.
+	 * 
+	 * @return the membership filter, or null if it is off
+	 */
+	public CountingBloomFilter<E> getFilter() {
+		return filter;
+	}
+	
+	/**
+	 * Sets the number of keys whose nodes are cached for find. 
+	 * A size of zero turns the cache off.
+	 * 
+	 * @param size the largest number of keys in the cache
+	 */
+	public void setCacheSize(int size) {
+		cache = size > 0 ? new HotKeyCache<>(size) : null;
+	}
+	
+	/**
+	 * Returns the hot-key cache, which also reports its hit rate.
+	 * 
+	 * @return the hot-key cache, or null if it is off
+	 */
+	public HotKeyCache<E> getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Returns the keys of the tree in order.
+	 * 
+	 * @return the keys of the tree in order
+	 */
+	private ArrayList<E> keys() {
+		ArrayList<E> keys = new ArrayList<>();
+		for (RBNode<E> node : inorder()) {
+			keys.add(node.getData());
+		}
+		return keys;
+	}
+	
+	/**
+	 * Removes every node from the tree. When a node pool is set, 
+	 * all of the nodes are handed back to it in a single pass.
+	 */
+	public void clear() {
+		if (filter != null) {
+			filter.clear(); // First, so the snapshot of a rebuild in progress is closed before recording
+		}
+		if (!snapshots.isEmpty()) {
+			for (E key : keys()) {
+				for (TreeSnapshot<E> snapshot : snapshots) {
+					snapshot.record(key, false);
+				}
+			}
+		}
+		if (pool != null && !isEmpty()) {
+			LinkedStack<RBNode<E>> stack = new LinkedStack<>();
+			stack.push(root);
+			while (!stack.isEmpty()) {
+				RBNode<E> node = stack.pop();
+				if (node.left != NIL) {
+					stack.push(node.left);
+				}
+				if (node.right != NIL) {
+					stack.push(node.right);
+				}
+				pool.release(node);
+			}
+		}
+		root = null;
+		size = 0;
+		blackHeight = 0;
+		modCount++;
+		if (cache != null) {
+			cache.clear();
+		}
+		for (TreeListener<E> listener : listeners) {
+			listener.cleared();
+		}
+	}
+	
+	/**
+	 * Registers a listener that is told about every structural change to the tree.
+	 * 
+	 * @param listener the listener that will receive the events
+	 */
+	public void addTreeListener(TreeListener<E> listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Unregisters a listener.
+	 * 
+	 * @param listener the listener that will no longer receive events
+	 */
+	public void removeTreeListener(TreeListener<E> listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Returns an iterator over the keys in order. The iterator is fail-fast: 
+	 * if the tree is changed other than through the iterator's own remove 
+	 * method, the next call to next throws a ConcurrentModificationException 
+	 * instead of following references a rotation may have changed.
+	 * 
+	 * @return an iterator over the keys in order
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new KeyIterator();
+	}
+	
+	/**
+	 * Opens a snapshot of the keys as they are now. The tree may keep 
+	 * changing; the snapshot still iterates over the keys it had when it was 
+	 * opened. The snapshot must be closed when it is no longer needed, since 
+	 * every change made while it is open is recorded in it.
+	 * 
+	 * @return an open snapshot of the tree
+	 * @see TreeSnapshot
+	 */
+	public TreeSnapshot<E> snapshot() {
+		return snapshot(null);
+	}
+	
+	/**
+	 * Opens a snapshot of a tree shared between threads. Writers must hold 
+	 * the write lock of the given lock; the snapshot takes the read lock 
+	 * for short moments while it reads the tree.
+	 * 
+	 * @param lock the lock that guards the tree, or null if there is none
+	 * @return an open snapshot of the tree
+	 * @see TreeSnapshot
+	 */
+	public TreeSnapshot<E> snapshot(ReadWriteLock lock) {
+		if (lock != null) {
+			lock.writeLock().lock();
+		}
+		try {
+			return openSnapshot(lock);
+		} finally {
+			if (lock != null) {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Opens a snapshot without taking the lock, which the caller holds.
+	 * 
+	 * @param lock the lock that guards the tree, or null if there is none
+	 * @return an open snapshot of the tree
+	 */
+	private TreeSnapshot<E> openSnapshot(ReadWriteLock lock) {
+		TreeSnapshot<E> snapshot = new TreeSnapshot<>(this, lock, modCount);
+		snapshots.add(snapshot);
+		return snapshot;
+	}
+	
+	/**
+	 * Stops recording changes in a snapshot. Called by TreeSnapshot.close 
+	 * while it holds the write lock.
+	 * 
+	 * @param snapshot the snapshot that was closed
+	 */
+	void closeSnapshot(TreeSnapshot<E> snapshot) {
+		snapshots.remove(snapshot);
+	}
+	
+	/**
+	 * This nested class is the fail-fast iterator of the tree. It walks 
+	 * successor references and compares the modification count before every step.
+	 */
+	private class KeyIterator implements Iterator<E> {
+		private RBNode<E> next = firstNode();
+		private E lastReturned;
+		private int expectedModCount = modCount;
+		
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+		
+		@Override
+		public E next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = next.getData();
+			next = successor(next);
+			return lastReturned;
+		}
+		
+		@Override
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			delete(lastReturned);
+			next = ceilingNode(lastReturned, false); // The deletion may have moved the next key to another node
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
 	}
 	
 	/**
@@ -69,7 +554,7 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @param key the item that will be inserted into the tree
 	 * @return the node that the new node will attach to
 	 */
-	private RBNode<E> insertionPoint(E key) {
+	protected RBNode<E> insertionPoint(E key) {
 		RBNode<E> parent = root;
 		RBNode<E> current = root;
 		while (current != NIL) { // Stop traversing the tree when you get to NIL
@@ -88,70 +573,6 @@ public class RedBlackTree<E extends Comparable<E>> {
 		return parent;
 	}
 	
-	private void insertionCleanup(RBNode<E> node) {
-		
-		// Case 1: The root is red
-		if (root.color.equals("R")) {
-			root.color = "B"; // Base case
-		}
-		
-		// Case 2: The parent is black
-		else if (node.parent.color.equals("B")) {} // Do nothing
-		
-		else {
-			// Since cases 1 & 2 are skipped, the node is 
-			// guaranteed to have a parent, uncle, & grandparent
-			RBNode<E> parent = node.parent;
-			RBNode<E> uncle = uncle(node);
-			RBNode<E> grandparent = grandparent(node);
-			// Case 3: The parent and uncle are red
-			if (isRed(parent) && isRed(uncle)) {
-				parent.color = "B"; 			// Change parent to black
-				uncle.color = "B"; 			 	// Change uncle to black
-				grandparent.color = "R"; 		// Change grandparent to red
-				insertionCleanup(grandparent); 	// Recursively check grandparent for any violations
-			}
-			
-			// Case 4: The parent is red and the uncle is black
-			else if (parent.color.equals("R") && uncle.color.equals("B")) {
-				
-				// Case 4a: The node is a right child & the parent is a left child
-				if (isRightChild(node) && isLeftChild(parent)) {
-					leftRotate(parent);
-					
-					// Swap the node and the parent. Go to case 5.
-					RBNode<E> temp = node;
-					node = parent;
-					parent = temp;
-				}
-				
-				// Case 4b: The node is a left child & the parent is a right child
-				else if (isLeftChild(node) && isRightChild(parent)) {
-					rightRotate(parent);
-					
-					// Swap the node and the parent. Go to case 5.
-					RBNode<E> temp = node;
-					node = parent;
-					parent = temp;
-				}
-				
-				// Case 5a: The node and parent are left children
-				if (isLeftChild(node) && isLeftChild(parent)) {
-					parent.color = "B";			// Change parent to black
-					grandparent.color = "R";	// Change grandparent to red
-					rightRotate(grandparent);	// Right rotate the grandparent
-				}
-				
-				// Case 5b: The node and parent are right children
-				else if (isRightChild(node) && isRightChild(parent)) {
-					parent.color = "B";			// Change the parent to black
-					grandparent.color = "R";	// Change the grandparent to red
-					leftRotate(grandparent);	// Left rotate the grandparent
-				}
-			}
-		}
-	}
-	
 	/**
 	 * Takes a key and removes the node from the tree.
 	 * 
@@ -161,66 +582,112 @@ public class RedBlackTree<E extends Comparable<E>> {
 		if (isEmpty()) {
 			throw new EmptyTreeException();
 		}
+		RBNode<E> node;
 		try {
-			RBNode<E> node = nodeToDelete(key);
-			RBNode<E> parent = node.parent;
-			if (isLeaf(node)) { // Case 1: Node is a leaf
-				if (node.equals(root)) { // Root is the only node in the tree
-					root = null;
-				}
-				else {
-					if (isLeftChild(node)) {
-						parent.left = NIL;
-					}
-					else if (isRightChild(node)) {
-						parent.right = NIL;
-					}
-					NIL.parent = parent; // This step is necessary for the fixDoubleBlack method
-					if (node.color.equals("B")) {
-						NIL.color = "DB";
-						fixDoubleBlack(NIL);
-					}
-				}
+			node = nodeToDelete(key);
+		} catch (NullPointerException e) {
+			throw new NullPointerException("The item cannot be found in the tree.");
+		}
+		deleteNode(node);
+	}
+	
+	/**
+	 * Removes the given node from the tree. 
+	 * This is a helper method for the delete method.
+	 * 
+	 * @param node the node that will be deleted from the tree
+	 */
+	protected void deleteNode(RBNode<E> node) {
+		if (filter != null) {
+			filter.remove(node.getData());
+		}
+		if (cache != null) {
+			cache.invalidate(node.getData());
+		}
+		size--;
+		modCount++;
+		for (TreeSnapshot<E> snapshot : snapshots) {
+			snapshot.record(node.getData(), false); // Before removal, which may move data between nodes
+		}
+		removeNode(node);
+		NIL.parent = null; // Otherwise the sentinel keeps a node reachable after it leaves the tree
+		NIL.color = "B"; // The rebalancing of every case may have pointed or colored the sentinel
+		if (filter != null) {
+			filter.step();
+		}
+	}
+	
+	/**
+	 * Unlinks the given node and restores the properties of a red-black tree.
+	 * 
+	 * @param node the node that will be removed from the tree
+	 */
+	private void removeNode(RBNode<E> node) {
+		RBNode<E> parent = node.parent;
+		if (isLeaf(node)) { // Case 1: Node is a leaf
+			if (node.equals(root)) { // Root is the only node in the tree
+				root = null;
+				blackHeight = 0;
 			}
-			else if (numChildren(node) == 1) { // Case 2: Node has one child
-				RBNode<E> child;
-				if (node.left == NIL) {
-					child = node.right;
+			else {
+				if (isLeftChild(node)) {
+					parent.left = NIL;
 				}
-				else {
-					child = node.left;
-				}
-				if (node.equals(root)) {
-					root = child;
-				}
-				else if (isLeftChild(node)) {
-					parent.left = child;
+				else if (isRightChild(node)) {
+					parent.right = NIL;
 				}
-				else {
-					parent.right = child;
-				}
-				child.parent = parent; // Update parent reference
-				if (child.color.equals("R") || node.color.equals("R")) { // Note that both node & child cannot be red
-					child.color = "B";
-				}
-				else if (child.color.equals("B") && node.color.equals("B")) {
-					child.color = "DB";
-					fixDoubleBlack(child);
+				NIL.parent = parent; // The strategy finds the parent through the sentinel
+				updatePath(parent);
+				balancing.removed(this, node, NIL);
+			}
+			if (!listeners.isEmpty()) {
+				for (TreeListener<E> listener : listeners) {
+					listener.nodeRemoved(node);
 				}
 			}
-			else if (numChildren(node) == 2) { // Case 3: Node has two children
-				if (node.equals(root) && node.left == NIL) {
-					root = node.right;
-					root.color = "B";
+			releaseNode(node);
+		}
+		else if (numChildren(node) == 1) { // Case 2: Node has one child
+			RBNode<E> child;
+			if (node.left == NIL) {
+				child = node.right;
+			}
+			else {
+				child = node.left;
+			}
+			beforeRelink(child);
+			if (node.equals(root)) {
+				root = child;
+			}
+			else if (isLeftChild(node)) {
+				parent.left = child;
+			}
+			else {
+				parent.right = child;
+			}
+			child.parent = parent; // Update parent reference
+			afterRelink(child);
+			updatePath(parent);
+			balancing.removed(this, node, child);
+			if (!listeners.isEmpty()) {
+				for (TreeListener<E> listener : listeners) {
+					listener.nodeRemoved(node);
 				}
-				else {
-					E max = maxLeftSubtree(node);
-					delete(max); // Recursion
-					node.setData(max);
+			}
+			releaseNode(node);
+		}
+		else { // Case 3: Node has two children
+			RBNode<E> max = maxLeftSubtree(node);
+			if (cache != null) {
+				cache.invalidate(max.getData()); // The key moves to another node
+			}
+			moveData(max, node);
+			if (!listeners.isEmpty()) {
+				for (TreeListener<E> listener : listeners) {
+					listener.dataChanged(node);
 				}
 			}
-		} catch (NullPointerException e) {
-			throw new NullPointerException("The item cannot be found in the tree.");
+			removeNode(max); // Recursion: the max node has at most one child
 		}
 	}
 	
@@ -231,7 +698,7 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @param key the item that will be deleted from the tree
 	 * @return the node that will be deleted
 	 */
-	private RBNode<E> nodeToDelete(E key) {
+	protected RBNode<E> nodeToDelete(E key) {
 		RBNode<E> current = root;
 		while (current != NIL) {
 			if (key.equals(current.getData())) {
@@ -248,115 +715,55 @@ public class RedBlackTree<E extends Comparable<E>> {
 	}
 	
 	/**
-	 * Removes the double black node from the tree.
+	 * Copies the contents of one node into another when a node with two 
+	 * children is deleted. Subclasses that store extra information in 
+	 * their nodes override this method to move that information as well.
 	 * 
-	 * @param node the double black node that needs to be fixed
+	 * @param source the node whose contents are copied
+	 * @param target the node that receives the contents
 	 */
-	private void fixDoubleBlack(RBNode<E> node) {
-		
-		// Case 1: The root is double black
-		if (node.equals(root)) {
-			node.color = "B"; // Base case
-		}
-		
-		else {
-			RBNode<E> sibling = sibling(node);
-			RBNode<E> parent = node.parent;
-			
-			// Case 2: The sibling is red
-			if (isRed(sibling)) {
-				
-				// Case 2a: The node is a right child
-				if (isRightChild(node)) {
-					sibling.color = "B"; 	// Change sibling to black
-					parent.color = "R"; 	// Change parent to red
-					rightRotate(parent); 	// Right rotate the parent
-				}
-				
-				// Case 2b: The node is a left child
-				else if (isLeftChild(node)) {
-					sibling.color = "B"; 	// Change sibling to black
-					parent.color = "R"; 	// Change parent to red
-					leftRotate(parent); 	// Left rotate the parent
-				}
-				fixDoubleBlack(node); // Recursion
-			}
-			
-			// Case 3: The sibling has at least one red child
-			else if (hasRedChild(sibling)) {
-				RBNode<E> RC; // Red child
-				
-				// Case 3a: The sibling is a left child
-				if (isLeftChild(sibling)) {
-					
-					// Case 3a.1: The right child of the sibling is red
-					if (isRed(sibling.right)) {
-						RC = sibling.right;
-						leftRotate(sibling);		// Left rotate the sibling
-						rightRotate(parent);		// Right rotate the parent
-						RC.color = parent.color;	// Change RC to the color of parent
-						sibling.color = "B";		// Change sibling to black
-						parent.color = "B";			// Change parent to black
-						node.color = "B";			// Change node to black
-					}
-					
-					// Case 3a.2: The left child of the sibling is red
-					else if (isRed(sibling.left)) {
-						RC = sibling.left;
-						rightRotate(parent);			// Right rotate the parent
-						sibling.color = parent.color;	// Change sibling to the color of parent
-						RC.color = "B";					// Change RC to black
-						parent.color = "B";				// Change parent to black
-						node.color = "B";				// Change node to black
-					}
-				}
-				
-				// Case 3b: Sibling is a right child
-				else if (isRightChild(sibling)) {
-					
-					// Case 3b.1: The left child of the sibling is red
-					if (isRed(sibling.left)) {
-						RC = sibling.left;
-						rightRotate(sibling);		// Right rotate the sibling
-						leftRotate(parent);			// Left rotate the parent
-						RC.color = parent.color;	// Change RC to the color of parent
-						sibling.color = "B";		// Change sibling to black
-						parent.color = "B";			// Change parent to black
-						node.color = "B";			// Change node to black
-					}
-					
-					// Case 3b.2: The right child of the sibling is red
-					else if (isRed(sibling.right)) {
-						RC = sibling.right;
-						leftRotate(parent);				// Left rotate the parent
-						sibling.color = parent.color;	// Change sibling to the color of parent
-						RC.color = "B";					// Change RC to black
-						parent.color = "B";				// Change parent to black
-						node.color = "B";				// Change node to black
-					}
-				}
-			}
-			
-			// Case 4: The sibling and both of its children are black (or double black)
-			else if ((isBlack(sibling) && isBlack(sibling.left) && isBlack(sibling.right)) ||
-					 (isBlack(sibling) && isDoubleBlack(sibling.left) && isDoubleBlack(sibling.right))) {
-					 // 2nd condition is used when the double black node is NIL and the sibling's children are
-					 // NIL since changing NIL to double black changes all instances of NIL to double black
-				
-				// Case 4a: The parent of sibling is red
-				if (isRed(parent)) { 		// The sibling and node share the same parent
-					sibling.color = "R";	// Change sibling to red
-					parent.color = "B";		// Change parent to black
-					node.color = "B";		// Change node to black
-				}
-				
-				// Case 4b: The parent of sibling is black
-				else if (isBlack(sibling.parent)) {
-					sibling.color = "R";	// Change sibling to red
-					parent.color = "DB";	// Change parent to double black
-					node.color = "B";		// Change node to black
-					fixDoubleBlack(parent);	// Recursion
-				}
+	protected void moveData(RBNode<E> source, RBNode<E> target) {
+		target.setData(source.getData());
+	}
+	
+	/**
+	 * Recomputes the information a node caches about its subtree from 
+	 * the node and its children. Subclasses that augment the tree override 
+	 * this method; it is called bottom-up after every structural change.
+	 * 
+	 * @param node the node whose cached information is recomputed
+	 */
+	protected void update(RBNode<E> node) {}
+	
+	/**
+	 * Called before the parent of a node changes, while the old links are 
+	 * still intact. Subclasses whose nodes store information relative to 
+	 * their parent override this method to expand it.
+	 * 
+	 * @param node the node that is about to get a new parent
+	 */
+	protected void beforeRelink(RBNode<E> node) {}
+	
+	/**
+	 * Called after a node gets a new parent, or is linked into the tree for 
+	 * the first time. When several nodes are relinked at once, they are 
+	 * passed from the top down, so the new parent of each node has already 
+	 * been handled.
+	 * 
+	 * @param node the node whose parent has changed
+	 */
+	protected void afterRelink(RBNode<E> node) {}
+	
+	/**
+	 * Calls the update method on the given node and each of its ancestors.
+	 * 
+	 * @param node the lowest node whose subtree has changed
+	 */
+	protected void updatePath(RBNode<E> node) {
+		if (augmented) {
+			while (node != null) {
+				update(node);
+				node = node.parent;
 			}
 		}
 	}
@@ -368,12 +775,12 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @param node the node that will be deleted from the binary search tree
 	 * @return the maximum node on the left subtree of the given node
 	 */
-	private E maxLeftSubtree(RBNode<E> node) {
+	private RBNode<E> maxLeftSubtree(RBNode<E> node) {
 		RBNode<E> current = node.left;
 		while (current.right != NIL) {
 			current = current.right;
 		}
-		return current.getData();
+		return current;
 	}
 	
 	/**
@@ -383,10 +790,51 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @return true or false depending on if the key is found in the tree or not
 	 */
 	public boolean find(E key) {
+		return search(key) != null;
+	}
+	
+	/**
+	 * Returns true if the key of a node in the tree reads as present. 
+	 * Subclasses whose keys may read as absent before their nodes are 
+	 * unlinked, such as ExpiringTree, override this method so that code 
+	 * walking the nodes directly can skip them.
+	 * 
+	 * @param node a node of the tree
+	 * @return true if the node's key is in the tree
+	 */
+	protected boolean isLive(RBNode<E> node) {
+		return true;
+	}
+	
+	/**
+	 * Returns the node that holds the key.
+	 * 
+	 * @param key the item searched for in the tree
+	 * @return the node that holds the key, or null if the key is not in the tree
+	 */
+	protected RBNode<E> search(E key) {
+		if (isEmpty()) {
+			return null;
+		}
+		if (cache != null) {
+			RBNode<E> cached = cache.get(key);
+			if (cached == NIL) {
+				return null; // Cached miss
+			}
+			if (cached != null && key.equals(cached.getData())) {
+				return cached;
+			}
+		}
+		if (filter != null && !filter.mightContain(key)) {
+			return null; // Definitely not in the tree
+		}
 		RBNode<E> current = root;
 		while (current != NIL) {
 			if (key.equals(current.getData())) {
-				return true;
+				if (cache != null) {
+					cache.put(key, current);
+				}
+				return current;
 			}
 			else if (key.compareTo(current.getData()) < 0) {
 				current = current.left;
@@ -395,38 +843,272 @@ public class RedBlackTree<E extends Comparable<E>> {
 				current = current.right;
 			}
 		}
-		return false;
+		if (filter != null) {
+			filter.falsePositive();
+		}
+		if (cache != null) {
+			cache.put(key, NIL); // Absent keys can be hot too
+		}
+		return null;
+	}
+	
+	/**
+	 * Looks up a batch of keys, writing into out[i] whether keys[i] is in the tree.
+	 * 
+	 * @param keys the items searched for in the tree
+	 * @param out the array that receives the results, at least as long as keys
+	 * @return the number of keys found
+	 * @see #getAll(Comparable[])
+	 */
+	public int findAll(E[] keys, boolean[] out) {
+		if (out.length < keys.length) {
+			throw new IllegalArgumentException("The result array is shorter than the batch.");
+		}
+		RBNode<E>[] nodes = searchAll(keys);
+		int found = 0;
+		for (int i = 0; i < keys.length; i++) {
+			out[i] = nodes[i] != null;
+			if (out[i]) {
+				found++;
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Returns the nodes that hold a batch of keys, so the data stored with
+	 * each key can be read in one call.
+	 * 
+	 * @param keys the items searched for in the tree
+	 * @return an ArrayList whose i-th element is the node holding keys[i], or null if that key is not in the tree
+	 * @see #searchAll(Comparable[])
+	 */
+	public ArrayList<RBNode<E>> getAll(E[] keys) {
+		return new ArrayList<>(Arrays.asList(searchAll(keys)));
+	}
+	
+	/**
+	 * Returns the nodes that hold a batch of keys. Up to LANES descents run
+	 * at once, each moving one level per turn, and a lane that finishes
+	 * starts on the next key. A single descent waits on a cache miss at
+	 * nearly every level, since it cannot load a child before comparing
+	 * with its parent; the descents of different keys do not depend on each
+	 * other, so the processor can have a miss of every lane in flight at
+	 * the same time.
+	 * 
+	 * A tree with a filter or a cache looks the keys up one at a time, since
+	 * those answer single keys.
+	 * 
+	 * @param keys the items searched for in the tree
+	 * @return an array whose i-th element is the node holding keys[i], or null if that key is not in the tree
+	 */
+	@SuppressWarnings("unchecked")
+	protected RBNode<E>[] searchAll(E[] keys) {
+		RBNode<E>[] nodes = (RBNode<E>[]) new RBNode<?>[keys.length];
+		if (filter != null || cache != null) {
+			for (int i = 0; i < keys.length; i++) {
+				nodes[i] = search(keys[i]);
+			}
+			return nodes;
+		}
+		if (isEmpty()) {
+			return nodes;
+		}
+		RBNode<E>[] lanes = (RBNode<E>[]) new RBNode<?>[LANES]; // The node each lane is at, or null when idle
+		int[] positions = new int[LANES]; // The position in keys each lane is looking up
+		int next = 0;
+		int active = 0;
+		for (; active < LANES && next < keys.length; active++) {
+			lanes[active] = root;
+			positions[active] = next++;
+		}
+		while (active > 0) {
+			for (int lane = 0; lane < LANES; lane++) {
+				RBNode<E> current = lanes[lane];
+				if (current == null) {
+					continue;
+				}
+				int cmp = current == NIL ? 0 : keys[positions[lane]].compareTo(current.getData());
+				if (cmp < 0) {
+					lanes[lane] = current.left;
+				}
+				else if (cmp > 0) {
+					lanes[lane] = current.right;
+				}
+				else {
+					nodes[positions[lane]] = current == NIL ? null : current;
+					if (next < keys.length) {
+						lanes[lane] = root; // Start on the next key
+						positions[lane] = next++;
+					}
+					else {
+						lanes[lane] = null;
+						active--;
+					}
+				}
+			}
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Returns the smallest key in the tree that is greater than or equal to the given key.
+	 * 
+	 * @param key the key searched for
+	 * @return the smallest key not less than the given key, or null if there is none
+	 */
+	public E ceiling(E key) {
+		RBNode<E> node = ceilingNode(key, true);
+		return node == null ? null : node.getData();
+	}
+	
+	/**
+	 * Returns the smallest key in the tree that is strictly greater than the given key.
+	 * 
+	 * @param key the key searched for
+	 * @return the smallest key greater than the given key, or null if there is none
+	 */
+	public E higher(E key) {
+		RBNode<E> node = ceilingNode(key, false);
+		return node == null ? null : node.getData();
+	}
+	
+	/**
+	 * Returns the node with the smallest key greater than the given key, or 
+	 * greater than or equal to it when inclusive is true. The search descends 
+	 * from the root once and uses no extra memory.
+	 * 
+	 * @param key the key searched for
+	 * @param inclusive true if a node holding the key itself may be returned
+	 * @return the node found, or null if every key is smaller
+	 */
+	protected RBNode<E> ceilingNode(E key, boolean inclusive) {
+		RBNode<E> best = null;
+		RBNode<E> current = isEmpty() ? NIL : root;
+		while (current != NIL) {
+			int cmp = current.getData().compareTo(key);
+			if (cmp > 0 || (cmp == 0 && inclusive)) {
+				best = current;
+				current = current.left;
+			}
+			else {
+				current = current.right;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Returns the node with the smallest key.
+	 * 
+	 * @return the leftmost node, or null if the tree is empty
+	 */
+	protected RBNode<E> firstNode() {
+		if (isEmpty()) {
+			return null;
+		}
+		RBNode<E> current = root;
+		while (current.left != NIL) {
+			current = current.left;
+		}
+		return current;
+	}
+	
+	/**
+	 * Returns the node that follows the given node in order by walking down 
+	 * the right subtree or up the parent references.
+	 * 
+	 * @param node a node in the tree
+	 * @return the next node in order, or null if the node holds the largest key
+	 */
+	protected RBNode<E> successor(RBNode<E> node) {
+		if (node.right != NIL) {
+			RBNode<E> current = node.right;
+			while (current.left != NIL) {
+				current = current.left;
+			}
+			return current;
+		}
+		RBNode<E> current = node;
+		while (current.parent != null && current == current.parent.right) {
+			current = current.parent;
+		}
+		return current.parent;
 	}
 	
 	/**
-	 * Computes and returns the depth of the given node.
+	 * Computes and returns the depth of the given node by following its 
+	 * parent references, which takes O(log n) time.
 	 * 
 	 * @param node the node whose depth will be calculated
 	 * @return the depth of the given node
 	 */
 	public int depth(RBNode<E> node) {
-		if (!find(node.getData())) {
-			throw new NullPointerException("The node cannot be found in the tree.");
+		int depth = 0;
+		RBNode<E> current = node;
+		while (current != null && current != root) {
+			current = current.parent;
+			depth++;
 		}
-		if (node.equals(root)) { // Base case
-			return 0;
+		if (current == null || node == NIL) { // The path ended without reaching the root
+			throw new NullPointerException("The node cannot be found in the tree.");
 		}
-		return 1 + depth(node.parent); // Recursive case
+		return depth;
 	}
 	
 	/**
-	 * Computes and returns the height of the tree.
+	 * Computes and returns the height of the tree. This visits every node; 
+	 * heightBound gives an upper bound in constant time.
 	 * 
 	 * @param node the root of a tree whose height will be calculated
-	 * @return the height of the tree
+	 * @return the height of the tree, or -1 for an empty tree
 	 */
 	public int height(RBNode<E> node) {
-		if (node == null) {
+		if (node == null || node == NIL) {
 			return -1;
 		}
 		return 1 + Math.max(height(node.left), height(node.right));
 	}
 	
+	/**
+	 * Returns an upper bound on the height of the tree in constant time, 
+	 * as given by the balancing strategy.
+	 * 
+	 * @return an upper bound on the height of the tree, or -1 for an empty tree
+	 */
+	public int heightBound() {
+		return isEmpty() ? -1 : balancing.heightBound(this);
+	}
+	
+	/**
+	 * Returns the rules that keep the tree balanced.
+	 * 
+	 * @return the balancing strategy of the tree
+	 */
+	public BalancingStrategy<E> getBalancingStrategy() {
+		return balancing;
+	}
+	
+	/**
+	 * Returns the number of black nodes on every path from the root to NIL, 
+	 * counting the root. It is maintained by insert and delete when the tree 
+	 * is balanced as a red-black tree.
+	 * 
+	 * @return the black height of the tree, or 0 for an empty tree
+	 */
+	public int blackHeight() {
+		return blackHeight;
+	}
+	
+	/**
+	 * Returns the number of items in the tree in constant time.
+	 * 
+	 * @return the number of items in the tree
+	 */
+	public int size() {
+		return size;
+	}
+	
 	/**
 	 * Returns true or false if the tree is empty or not.
 	 * 
@@ -597,6 +1279,74 @@ public class RedBlackTree<E extends Comparable<E>> {
 		return list;
 	}
 	
+	/**
+	 * Returns an ArrayList of the nodes whose keys are between lo and hi (inclusive), 
+	 * in order. Subtrees outside the range are never visited.
+	 * 
+	 * @param lo the smallest key of the range
+	 * @param hi the largest key of the range
+	 * @return an ArrayList of the nodes in the range
+	 */
+	public ArrayList<RBNode<E>> range(E lo, E hi) {
+		ArrayList<RBNode<E>> list = new ArrayList<>();
+		if (!isEmpty()) {
+			LinkedStack<RBNode<E>> stack = new LinkedStack<>();
+			RBNode<E> current = root;
+			while (!stack.isEmpty() || current != NIL) {
+				if (current != NIL) {
+					if (current.getData().compareTo(lo) >= 0) {
+						stack.push(current);
+						current = current.left;
+					}
+					else {
+						current = current.right; // The node and its left subtree are smaller than lo
+					}
+				}
+				else {
+					current = stack.pop();
+					if (current.getData().compareTo(hi) > 0) {
+						break; // Every remaining node is larger than hi
+					}
+					list.add(current);
+					current = current.right;
+				}
+			}
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns a publisher of the keys between lo and hi (inclusive) that reads 
+	 * them from the tree only as subscribers request them. The keys are read 
+	 * and delivered on the common fork/join pool without a lock, so the tree 
+	 * must not change while a chunk is read; a tree that other threads change 
+	 * needs the overload that takes a lock.
+	 * 
+	 * @param lo the smallest key of the range
+	 * @param hi the largest key of the range
+	 * @return a publisher of the keys in the range
+	 * @see RangePublisher
+	 */
+	public Flow.Publisher<E> rangePublisher(E lo, E hi) {
+		return new RangePublisher<>(this, lo, hi);
+	}
+	
+	/**
+	 * Returns a publisher of the keys between lo and hi (inclusive) for a 
+	 * tree shared between threads. Writers must hold the write lock of the 
+	 * given lock; the publisher takes the read lock while it reads a chunk.
+	 * 
+	 * @param lo the smallest key of the range
+	 * @param hi the largest key of the range
+	 * @param lock the lock that guards the tree, or null if there is none
+	 * @param executor where keys are read and delivered to subscribers
+	 * @return a publisher of the keys in the range
+	 * @see RangePublisher
+	 */
+	public Flow.Publisher<E> rangePublisher(E lo, E hi, ReadWriteLock lock, Executor executor) {
+		return new RangePublisher<>(this, lo, hi, lock, executor);
+	}
+	
 	/**
 	 * Returns an ArrayList of nodes generated using breadthfirst traversal.
 	 * 
@@ -627,44 +1377,11 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * parent reference and is used for TESTING purposes only.
 	 */
 	public void printLeavePaths() {
-		ArrayList<RBNode<E>> leaves = leaves();
-		for (int i = 0; i < leaves.size(); i++) {
-			RBNode<E> node = leaves.get(i);
-			printPathToRoot(node);
-			System.out.println();
-		}
-	}
-	
-	/**
-	 * Returns an ArrayList containing the leaves of a tree. 
-	 * This is a helper method for the printLeavePaths method.
-	 * 
-	 * @return an ArrayList containing the leaves of a tree.
-	 */
-	private ArrayList<RBNode<E>> leaves() {
-		ArrayList<RBNode<E>> treeNodes = preorder(); // Can be any tree traversal
-		ArrayList<RBNode<E>> leaves = new ArrayList<>();
-		for (int i = 0; i < treeNodes.size(); i++) {
-			RBNode<E> node = treeNodes.get(i);
-			if (isLeaf(node)) {
-				leaves.add(node);
-			}
-		}
-		return leaves;
-	}
-	
-	/**
-	 * Prints the path from the given node to the root of the tree. 
-	 * This is a helper method for the printLeavePaths method.
-	 * 
-	 * @param node the node whose path is printed out
-	 */
-	private void printPathToRoot(RBNode<E> node) {
-		while (node.parent != null) {
-			System.out.print(node + " --> ");
-			node = node.parent;
+		try {
+			new TreeExporter<>(this).writeLeafPaths(new PrintWriter(System.out));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		System.out.print(node);
 	}
 	
 	/**
@@ -685,46 +1402,20 @@ public class RedBlackTree<E extends Comparable<E>> {
 	}
 	
 	/**
-	 * Returns true if the node is red.
+	 * Changes the color of a node and tells the listeners about it.
 	 * 
-	 * @param node the node determined to be red or not
-	 * @return true if the node is red
+	 * @param node the node whose color changes
+	 * @param color the new color: "R", "B", or "DB"
 	 */
-	private boolean isRed(RBNode<E> node) {
-		return node.color.equals("R");
-	}
-	
-	/**
-	 * Returns true if the node is black.
-	 * 
-	 * @param node the node determined to be black or not
-	 * @return true if the node is black
-	 */
-	private boolean isBlack(RBNode<E> node) {
-		return node.color.equals("B");
-	}
-	
-	/**
-	 * Returns true if the node is double black.
-	 * 
-	 * @param node the node determined to be double black or not
-	 * @return true if the node is double black
-	 */
-	private boolean isDoubleBlack(RBNode<E> node) {
-		return node.color.equals("DB");
-	}
-	
-	/**
-	 * Returns true if the node has at least one red child.
-	 * 
-	 * @param node the node determined to have red children or not
-	 * @return true if the node has at least one red child
-	 */
-	private boolean hasRedChild(RBNode<E> node) {
-		if (isRed(node.left) || isRed(node.right)) {
-			return true;
+	void setColor(RBNode<E> node, String color) {
+		if (!node.color.equals(color)) {
+			node.color = color;
+			if (node != NIL && !listeners.isEmpty()) {
+				for (TreeListener<E> listener : listeners) {
+					listener.recolored(node);
+				}
+			}
 		}
-		return false;
 	}
 	
 	/**
@@ -732,8 +1423,14 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * 
 	 * @param root the node used to rotate the tree
 	 */
-	private void leftRotate(RBNode<E> root) {
+	void leftRotate(RBNode<E> root) {
 		RBNode<E> pivot = root.right;
+		RBNode<E> inner = pivot.left; // The subtree that moves from the pivot to the root
+		beforeRelink(pivot);
+		beforeRelink(root);
+		if (inner != NIL) {
+			beforeRelink(inner);
+		}
 		pivot.parent = root.parent; // Update parent reference
 		
 		// SPECIAL CASE: The root of the entire tree is used as the root of the rotation
@@ -750,6 +1447,20 @@ public class RedBlackTree<E extends Comparable<E>> {
 		root.right.parent = root; // Update parent reference
 		pivot.left = root;
 		pivot.left.parent = pivot; // Update parent reference
+		afterRelink(pivot); // From the top down, so every new parent is relinked first
+		afterRelink(root);
+		if (inner != NIL) {
+			afterRelink(inner);
+		}
+		if (augmented) {
+			update(root); // The old root is now the child, so it is updated first
+			update(pivot);
+		}
+		if (!listeners.isEmpty()) {
+			for (TreeListener<E> listener : listeners) {
+				listener.rotated(pivot);
+			}
+		}
 	}
 	
 	/**
@@ -757,8 +1468,14 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * 
 	 * @param root the node used to rotate the tree
 	 */
-	private void rightRotate(RBNode<E> root) {
+	void rightRotate(RBNode<E> root) {
 		RBNode<E> pivot = root.left;
+		RBNode<E> inner = pivot.right; // The subtree that moves from the pivot to the root
+		beforeRelink(pivot);
+		beforeRelink(root);
+		if (inner != NIL) {
+			beforeRelink(inner);
+		}
 		pivot.parent = root.parent; // Update parent reference
 		
 		// SPECIAL CASE: The root of the entire tree is used as the root of the rotation
@@ -775,48 +1492,33 @@ public class RedBlackTree<E extends Comparable<E>> {
 		root.left.parent = root; // Update parent reference
 		pivot.right = root;
 		pivot.right.parent = pivot; // Update parent reference
+		afterRelink(pivot); // From the top down, so every new parent is relinked first
+		afterRelink(root);
+		if (inner != NIL) {
+			afterRelink(inner);
+		}
+		if (augmented) {
+			update(root); // The old root is now the child, so it is updated first
+			update(pivot);
+		}
+		if (!listeners.isEmpty()) {
+			for (TreeListener<E> listener : listeners) {
+				listener.rotated(pivot);
+			}
+		}
 	}
 	
 	/**
-	 * Uses the code given below to display the tree in the console.
+	 * Displays the tree in the console, with the layout by Laurent Demailly. 
+	 * The tree is written by a TreeExporter, which does not recurse.
 	 * 
 	 * @author Laurent Demailly
 	 */
 	public void printTree() {
-		if (!isEmpty()) {
-			if (this.root.right != null) {
-				this.printTree(this.root.right, true, "");
-			}
-			System.out.println(this.root);
-			if (this.root.left != null) {
-				this.printTree(this.root.left, false, "");
-			}
+		try {
+			new TreeExporter<>(this).writeText(new PrintWriter(System.out));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
-	
-	/**
-	 * Prints the binary search tree.
-	 * 
-	 * @author Laurent Demailly
-	 * @param node the node that will be printed
-	 * @param isRight 
-	 * @param indent the spacing between each value
-	 */
-	private void printTree(RBNode<E> node, boolean isRight, String indent) {
-	    if (node.right != null) {
-	        printTree(node.right, true, indent + (isRight ? "        " : " |      "));
-	    }
-	    System.out.print(indent);
-	    if (isRight) {
-	        System.out.print(" /");
-	    }
-	    else {
-	        System.out.print(" \\");
-	    }
-	    System.out.print("----- ");
-	    System.out.print(node + "\n");
-	    if (node.left != null) {
-	        printTree(node.left, false, indent + (isRight ? " |      " : "        "));
-	    }
-	}
 }
\ No newline at end of file
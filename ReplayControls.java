@@ -0,0 +1,278 @@
+package rbtree;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
+
+/**
+ * This class represents the controls that bulk-load a key file or an
+ * operation log into a tree and then step or scrub through its history.
+ * 
+ * Loading, parsing and long jumps run on a background task that applies
+ * the operations in chunks while holding the tree's monitor, so the FX thread
+ * never waits for more than one chunk. The canvas view is redrawn a few
+ * times per second while a task runs. Editing the tree by hand discards the
+ * history, since the recorded operations would no longer match the tree.
+ * 
+ * @author Richard Shu
+ * @see OperationLog
+ */
+public class ReplayControls<E extends Comparable<E>> extends HBox implements TreeListener<E> {
+	private static final int CHUNK = 10_000; // Operations applied each time the lock is taken
+	private static final int BACKGROUND_STEPS = 1_000; // Longer jumps run on a background task
+	private static final long REDRAW_INTERVAL = 250_000_000L; // Nanoseconds between redraws during a task
+	private RedBlackTree<E> tree;
+	private Function<String, E> parser;
+	private Label status;
+	private RBTCanvasView<E> canvasView;
+	private Consumer<Boolean> busy;
+	private OperationLog<E> log = new OperationLog<>();
+	private Button btnLoad = new Button("Load File");
+	private Button btnBack = new Button("<");
+	private Button btnForward = new Button(">");
+	private Slider slider = new Slider(0, 0, 0);
+	private ProgressBar progress = new ProgressBar(0);
+	private volatile boolean replaying = false; // True while these controls change the tree
+	private boolean updatingSlider = false;
+	
+	/**
+	 * Default constructor.
+	 * 
+	 * @param tree the tree the operations are applied to
+	 * @param parser the function that turns the text of a key into a key
+	 * @param status the label that shows messages
+	 * @param canvasView the view that is redrawn while a background task runs
+	 * @param busy called with true before a background task starts and with false after it ends
+	 */
+	public ReplayControls(RedBlackTree<E> tree, Function<String, E> parser, Label status,
+			RBTCanvasView<E> canvasView, Consumer<Boolean> busy) {
+		this.tree = tree;
+		this.parser = parser;
+		this.status = status;
+		this.canvasView = canvasView;
+		this.busy = busy;
+		getChildren().addAll(btnLoad, btnBack, slider, btnForward, progress);
+		setAlignment(Pos.CENTER);
+		tree.addTreeListener(this);
+		updateControls();
+		
+		btnLoad.setOnAction(event -> load());
+		btnBack.setOnAction(event -> seek(log.position() - 1));
+		btnForward.setOnAction(event -> seek(log.position() + 1));
+		slider.valueChangingProperty().addListener((observable, wasChanging, changing) -> {
+			if (!changing) {
+				seek((int) slider.getValue());
+			}
+		});
+		slider.valueProperty().addListener((observable, oldValue, newValue) -> {
+			if (!updatingSlider && !slider.isValueChanging()) {
+				seek(newValue.intValue()); // The track was clicked
+			}
+		});
+	}
+	
+	/**
+	 * Asks for a file, then reads it and applies every operation on a background task.
+	 */
+	private void load() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Load keys or an operation log");
+		File file = chooser.showOpenDialog(getScene().getWindow());
+		if (file == null) {
+			return;
+		}
+		Path path = file.toPath();
+		Task<OperationLog<E>> task = new Task<OperationLog<E>>() {
+			@Override
+			protected OperationLog<E> call() throws Exception {
+				long total = Math.max(1, Files.size(path));
+				updateMessage("Reading " + path.getFileName());
+				OperationLog<E> newLog = OperationLog.read(path, parser, bytes -> updateProgress(bytes, total));
+				updateMessage("Applying " + newLog.size() + " operations");
+				replay(newLog, newLog.size(), this::updateProgress);
+				return newLog;
+			}
+		};
+		task.setOnSucceeded(event -> {
+			log = task.getValue();
+			finish(log.size() + " operations loaded from " + path.getFileName());
+		});
+		task.setOnFailed(event -> {
+			log.clear(); // Part of the file may have been applied
+			finish("Could not load " + path.getFileName() + ": " + task.getException().getMessage());
+		});
+		start(task);
+	}
+	
+	/**
+	 * Moves the history to the target position. Short jumps run on the FX thread
+	 * and long jumps run on a background task.
+	 * 
+	 * @param target the number of operations that should be applied
+	 */
+	private void seek(int target) {
+		target = Math.max(0, Math.min(target, log.size()));
+		if (target == log.position()) {
+			return;
+		}
+		if (Math.abs(target - log.position()) < BACKGROUND_STEPS) {
+			replaying = true;
+			try {
+				synchronized (tree) {
+					log.seek(tree, target);
+				}
+			} finally {
+				replaying = false;
+			}
+			updateControls();
+			return;
+		}
+		int goal = target;
+		OperationLog<E> current = log;
+		Task<Void> task = new Task<Void>() {
+			@Override
+			protected Void call() {
+				updateMessage("Replaying to operation " + goal);
+				replay(current, goal, this::updateProgress);
+				return null;
+			}
+		};
+		task.setOnSucceeded(event -> finish("Replayed to operation " + goal));
+		task.setOnFailed(event -> finish("Replay failed: " + task.getException().getMessage()));
+		start(task);
+	}
+	
+	/**
+	 * Applies or undoes operations in chunks until the log reaches the target.
+	 * This runs on a background task.
+	 * 
+	 * @param log the log being replayed
+	 * @param target the position to move to
+	 * @param progress receives the work done so far and the total work
+	 */
+	private void replay(OperationLog<E> log, int target, ProgressListener progress) {
+		int start = log.position();
+		long total = Math.max(1, Math.abs(target - start));
+		long lastRedraw = System.nanoTime();
+		replaying = true;
+		try {
+			while (log.position() != target) {
+				int next = log.position() < target ? Math.min(target, log.position() + CHUNK)
+						: Math.max(target, log.position() - CHUNK);
+				synchronized (tree) {
+					log.seek(tree, next);
+				}
+				progress.update(Math.abs(log.position() - start), total);
+				if (System.nanoTime() - lastRedraw > REDRAW_INTERVAL) {
+					lastRedraw = System.nanoTime();
+					Platform.runLater(canvasView::displayTree);
+					Thread.sleep(5); // Gives the layout thread a chance to take the lock
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			replaying = false;
+		}
+	}
+	
+	/**
+	 * This functional interface receives the progress of a background task.
+	 */
+	private interface ProgressListener {
+		void update(long done, long total);
+	}
+	
+	/**
+	 * Disables the controls and runs a task on a background thread.
+	 * 
+	 * @param task the task that will run
+	 */
+	private void start(Task<?> task) {
+		busy.accept(true);
+		canvasView.detach(); // Redraws are throttled by the task instead
+		setControlsDisabled(true);
+		progress.progressProperty().bind(task.progressProperty());
+		status.textProperty().bind(task.messageProperty());
+		Thread thread = new Thread(task, "rbtree-replay");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Enables the controls again after a background task.
+	 * 
+	 * @param message the message shown in the status label
+	 */
+	private void finish(String message) {
+		progress.progressProperty().unbind();
+		status.textProperty().unbind();
+		status.setText(message);
+		setControlsDisabled(false);
+		updateControls();
+		canvasView.attach();
+		busy.accept(false);
+	}
+	
+	/**
+	 * Enables or disables every control.
+	 * 
+	 * @param disabled true to disable the controls
+	 */
+	private void setControlsDisabled(boolean disabled) {
+		btnLoad.setDisable(disabled);
+		btnBack.setDisable(disabled);
+		btnForward.setDisable(disabled);
+		slider.setDisable(disabled);
+	}
+	
+	/**
+	 * Moves the slider and the progress bar to the current position in the log.
+	 */
+	private void updateControls() {
+		updatingSlider = true;
+		slider.setMax(log.size());
+		slider.setValue(log.position());
+		updatingSlider = false;
+		progress.setProgress(log.size() == 0 ? 0 : (double) log.position() / log.size());
+		btnBack.setDisable(log.position() == 0);
+		btnForward.setDisable(log.position() == log.size());
+	}
+	
+	/**
+	 * Discards the history when the tree is edited by hand.
+	 */
+	private void treeEdited() {
+		if (!replaying && log.size() > 0) {
+			log.clear();
+			updateControls();
+		}
+	}
+	
+	@Override
+	public void nodeAdded(RBNode<E> node) {
+		treeEdited();
+	}
+	
+	@Override
+	public void nodeRemoved(RBNode<E> node) {
+		treeEdited();
+	}
+	
+	@Override
+	public void cleared() {
+		treeEdited();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,350 @@
+package rbtree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class computes the union, intersection and difference of the keys of
+ * two trees as a new tree, without calling find once per key.
+ * 
+ * The keys of the smaller tree are copied into a sorted array. The larger
+ * tree is then walked from its root, and at every node the array is split
+ * by binary search around the node's key, as in a join-based split. A
+ * subtree whose slice of the array is empty is either skipped or copied
+ * whole, so intersections and differences only visit
+ * O(m log(n/m + 1)) nodes of the larger tree, where m is the size of the
+ * smaller one. The splits near the root are forked on the common fork/join
+ * pool. The keys of the result come out in order and the result is built
+ * with buildFromSorted in time linear in its size.
+ * 
+ * The results are plain RedBlackTrees; counts, aggregates and other node
+ * information of the inputs are not carried over. Nodes whose keys read as
+ * absent, such as the expired keys of an ExpiringTree, are skipped. Neither
+ * input may change while an operation runs.
+ * 
+ * @author Richard Shu
+ */
+public class SetAlgebra {
+	private static final int SEQUENTIAL_WORK = 1 << 12; // Keys below which a split is not forked
+	private static final int FORK_DEPTH = 32 - Integer.numberOfLeadingZeros(ForkJoinPool.getCommonPoolParallelism()) + 3;
+	
+	// What an operation keeps: the tree's keys found in the array, those not found,
+	// whole subtrees whose slice is empty and whole slices that reach NIL.
+	private static final int UNION = 0;
+	private static final int INTERSECTION = 1;
+	private static final int TREE_MINUS_ARRAY = 2;
+	private static final int ARRAY_MINUS_TREE = 3;
+	
+	private SetAlgebra() {}
+	
+	/**
+	 * Returns a new tree holding the keys that are in either tree.
+	 * 
+	 * @param a the first tree
+	 * @param b the second tree
+	 * @return the union of the keys of the trees
+	 */
+	public static <E extends Comparable<E>> RedBlackTree<E> union(RedBlackTree<E> a, RedBlackTree<E> b) {
+		return a.size() >= b.size() ? combine(a, b, UNION) : combine(b, a, UNION);
+	}
+	
+	/**
+	 * Returns a new tree holding the keys that are in both trees.
+	 * 
+	 * @param a the first tree
+	 * @param b the second tree
+	 * @return the intersection of the keys of the trees
+	 */
+	public static <E extends Comparable<E>> RedBlackTree<E> intersection(RedBlackTree<E> a, RedBlackTree<E> b) {
+		return a.size() >= b.size() ? combine(a, b, INTERSECTION) : combine(b, a, INTERSECTION);
+	}
+	
+	/**
+	 * Returns a new tree holding the keys that are in the first tree but not
+	 * in the second.
+	 * 
+	 * @param a the tree whose keys are kept
+	 * @param b the tree whose keys are taken away
+	 * @return the difference of the keys of the trees
+	 */
+	public static <E extends Comparable<E>> RedBlackTree<E> difference(RedBlackTree<E> a, RedBlackTree<E> b) {
+		return a.size() >= b.size() ? combine(a, b, TREE_MINUS_ARRAY) : combine(b, a, ARRAY_MINUS_TREE);
+	}
+	
+	/**
+	 * Walks the larger tree against the keys of the smaller one and builds the result.
+	 * 
+	 * @param large the tree that is walked
+	 * @param small the tree whose keys are copied into an array
+	 * @param op what the operation keeps
+	 * @return the result of the operation
+	 */
+	private static <E extends Comparable<E>> RedBlackTree<E> combine(RedBlackTree<E> large, RedBlackTree<E> small,
+			int op) {
+		ArrayList<E> list = new ArrayList<>(small.size()); // The size may count keys the iterator skips
+		for (E key : small) {
+			list.add(key);
+		}
+		@SuppressWarnings("unchecked")
+		E[] keys = (E[]) list.toArray(new Comparable<?>[list.size()]);
+		RedBlackTree<E> result = new RedBlackTree<>();
+		if (large.isEmpty() && keys.length == 0) {
+			return result;
+		}
+		Split<E> task = new Split<>(large, large.isEmpty() ? large.NIL : large.root, keys, 0, keys.length, op, 0);
+		Piece<E> pieces = ForkJoinPool.commonPool().invoke(task);
+		result.buildFromSorted(pieces.iterator(), pieces.count);
+		return result;
+	}
+	
+	/**
+	 * This nested class is a run of result keys in order. A piece either
+	 * holds keys itself or joins the pieces to its left and right, so the
+	 * results of forked tasks are concatenated without copying.
+	 */
+	private static class Piece<E> implements Iterable<E> {
+		private final ArrayList<E> keys;
+		private final Piece<E> left;
+		private final Piece<E> right;
+		private final int count;
+		
+		private Piece(ArrayList<E> keys) {
+			this.keys = keys;
+			this.left = null;
+			this.right = null;
+			this.count = keys.size();
+		}
+		
+		private Piece(Piece<E> left, Piece<E> right) {
+			this.keys = null;
+			this.left = left;
+			this.right = right;
+			this.count = left.count + right.count;
+		}
+		
+		/**
+		 * Returns an iterator over the keys of the leaf pieces from left to right.
+		 * 
+		 * @return an iterator over the keys of the piece
+		 */
+		@Override
+		public Iterator<E> iterator() {
+			LinkedStack<Piece<E>> stack = new LinkedStack<>();
+			stack.push(this);
+			return new Iterator<E>() {
+				private Iterator<E> current = advance();
+				
+				private Iterator<E> advance() {
+					while (!stack.isEmpty()) {
+						Piece<E> piece = stack.pop();
+						if (piece.keys != null) {
+							if (!piece.keys.isEmpty()) {
+								return piece.keys.iterator();
+							}
+						}
+						else {
+							stack.push(piece.right);
+							stack.push(piece.left);
+						}
+					}
+					return null;
+				}
+				
+				@Override
+				public boolean hasNext() {
+					return current != null;
+				}
+				
+				@Override
+				public E next() {
+					if (current == null) {
+						throw new NoSuchElementException();
+					}
+					E key = current.next();
+					if (!current.hasNext()) {
+						current = advance();
+					}
+					return key;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * This nested class combines a subtree of the larger tree with a slice of
+	 * the sorted keys of the smaller one, forking the two halves of a split
+	 * while there is enough work and the subtree is near the root.
+	 */
+	private static class Split<E extends Comparable<E>> extends RecursiveTask<Piece<E>> {
+		private static final long serialVersionUID = 1L;
+		private final RedBlackTree<E> tree;
+		private final RBNode<E> node;
+		private final E[] keys;
+		private final int lo;
+		private final int hi;
+		private final int op;
+		private final int depth;
+		
+		private Split(RedBlackTree<E> tree, RBNode<E> node, E[] keys, int lo, int hi, int op, int depth) {
+			this.tree = tree;
+			this.node = node;
+			this.keys = keys;
+			this.lo = lo;
+			this.hi = hi;
+			this.op = op;
+			this.depth = depth;
+		}
+		
+		@Override
+		protected Piece<E> compute() {
+			long work = hi - lo; // The subtree's size is estimated from its depth when it may be copied
+			if (op == UNION || op == TREE_MINUS_ARRAY) {
+				work += tree.size() >> Math.min(depth, 31);
+			}
+			if (node == tree.NIL || depth >= FORK_DEPTH || work < SEQUENTIAL_WORK) {
+				ArrayList<E> out = new ArrayList<>();
+				combine(tree, node, keys, lo, hi, op, out);
+				return new Piece<>(out);
+			}
+			int index = search(keys, lo, hi, node.getData());
+			boolean found = index >= 0;
+			int split = found ? index : -index - 1;
+			Split<E> left = new Split<>(tree, node.left, keys, lo, split, op, depth + 1);
+			Split<E> right = new Split<>(tree, node.right, keys, found ? split + 1 : split, hi, op, depth + 1);
+			left.fork();
+			Piece<E> rightPiece = right.compute();
+			Piece<E> leftPiece = left.join();
+			ArrayList<E> middle = new ArrayList<>(1);
+			keep(tree, node, keys, index, op, middle);
+			return new Piece<>(new Piece<>(leftPiece, new Piece<>(middle)), rightPiece);
+		}
+	}
+	
+	/**
+	 * Appends the result of combining a subtree with a slice of the keys, in
+	 * order. This is the sequential part of a Split.
+	 * 
+	 * @param tree the larger tree
+	 * @param node the root of the subtree
+	 * @param keys the sorted keys of the smaller tree
+	 * @param lo the index of the first key of the slice
+	 * @param hi the index after the last key of the slice
+	 * @param op what the operation keeps
+	 * @param out where the keys of the result are appended
+	 */
+	private static <E extends Comparable<E>> void combine(RedBlackTree<E> tree, RBNode<E> node, E[] keys, int lo,
+			int hi, int op, ArrayList<E> out) {
+		if (node == tree.NIL) {
+			if (op == UNION || op == ARRAY_MINUS_TREE) {
+				for (int i = lo; i < hi; i++) {
+					out.add(keys[i]);
+				}
+			}
+			return;
+		}
+		if (lo == hi) {
+			if (op == UNION || op == TREE_MINUS_ARRAY) {
+				copy(tree, node, out);
+			}
+			return; // Nothing below can be in the intersection
+		}
+		int index = search(keys, lo, hi, node.getData());
+		boolean found = index >= 0;
+		int split = found ? index : -index - 1;
+		combine(tree, node.left, keys, lo, split, op, out);
+		keep(tree, node, keys, index, op, out);
+		combine(tree, node.right, keys, found ? split + 1 : split, hi, op, out);
+	}
+	
+	/**
+	 * Appends the key of a node of the larger tree if the result keeps it. A
+	 * node whose key reads as absent counts as missing from the tree, so
+	 * only a matching key of the smaller tree may be kept in its place.
+	 * 
+	 * @param tree the larger tree
+	 * @param node the node
+	 * @param keys the sorted keys of the smaller tree
+	 * @param index the index of the node's key in the keys, or a negative number if it is not there
+	 * @param op what the operation keeps
+	 * @param out where the key is appended
+	 */
+	private static <E extends Comparable<E>> void keep(RedBlackTree<E> tree, RBNode<E> node, E[] keys, int index,
+			int op, ArrayList<E> out) {
+		if (tree.isLive(node)) {
+			if (keepsNode(op, index >= 0)) {
+				out.add(node.getData());
+			}
+		}
+		else if (index >= 0 && (op == UNION || op == ARRAY_MINUS_TREE)) {
+			out.add(keys[index]);
+		}
+	}
+	
+	/**
+	 * Returns true if the result keeps the key of a node of the larger tree.
+	 * 
+	 * @param op what the operation keeps
+	 * @param found whether the key is also in the smaller tree
+	 * @return true if the node's key is in the result
+	 */
+	private static boolean keepsNode(int op, boolean found) {
+		switch (op) {
+		case UNION:
+			return true;
+		case INTERSECTION:
+			return found;
+		case TREE_MINUS_ARRAY:
+			return !found;
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * Appends the keys of a subtree that read as present in order.
+	 * 
+	 * @param tree the tree the subtree belongs to
+	 * @param node the root of the subtree
+	 * @param out where the keys are appended
+	 */
+	private static <E extends Comparable<E>> void copy(RedBlackTree<E> tree, RBNode<E> node, ArrayList<E> out) {
+		if (node != tree.NIL) {
+			copy(tree, node.left, out);
+			if (tree.isLive(node)) {
+				out.add(node.getData());
+			}
+			copy(tree, node.right, out);
+		}
+	}
+	
+	/**
+	 * Searches a slice of sorted keys like Arrays.binarySearch.
+	 * 
+	 * @param keys the sorted keys
+	 * @param lo the index of the first key of the slice
+	 * @param hi the index after the last key of the slice
+	 * @param key the key searched for
+	 * @return the index of the key, or (-(insertion point) - 1) if it is not in the slice
+	 */
+	private static <E extends Comparable<E>> int search(E[] keys, int lo, int hi, E key) {
+		int low = lo;
+		int high = hi - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = keys[mid].compareTo(key);
+			if (cmp < 0) {
+				low = mid + 1;
+			}
+			else if (cmp > 0) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+}
\ No newline at end of file
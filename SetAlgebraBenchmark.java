@@ -0,0 +1,114 @@
+package rbtree;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures union, intersection and difference of two trees with SetAlgebra
+ * against iterating one tree and calling find on the other.
+ * 
+ * Usage: SetAlgebraBenchmark [size of a [size of b]]
+ * 
+ * @author Richard Shu
+ */
+public class SetAlgebraBenchmark {
+	public static void main(String[] args) {
+		int sizeA = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int sizeB = args.length > 1 ? Integer.parseInt(args[1]) : sizeA;
+		RedBlackTree<Integer> a = randomTree(sizeA, new Random(1));
+		RedBlackTree<Integer> b = randomTree(sizeB, new Random(2));
+		
+		System.out.println("---------- Set algebra benchmark ----------");
+		System.out.printf("|a| = %,d, |b| = %,d, %d threads%n", a.size(), b.size(),
+				Runtime.getRuntime().availableProcessors());
+		System.out.printf("%-14s %12s %12s %12s%n", "Operation", "keys", "join ms", "find ms");
+		for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+			boolean print = round == 2;
+			report("union", print, () -> SetAlgebra.union(a, b), () -> naive(a, b, 0));
+			report("intersection", print, () -> SetAlgebra.intersection(a, b), () -> naive(a, b, 1));
+			report("difference", print, () -> SetAlgebra.difference(a, b), () -> naive(a, b, 2));
+		}
+	}
+	
+	/**
+	 * Times both ways of computing an operation and checks that they agree.
+	 * 
+	 * @param name the name printed in the report
+	 * @param print whether or not the result is printed
+	 * @param join computes the operation with SetAlgebra
+	 * @param naive computes the operation with find
+	 */
+	private static void report(String name, boolean print, Supplier<RedBlackTree<Integer>> join,
+			Supplier<RedBlackTree<Integer>> naive) {
+		long start = System.nanoTime();
+		RedBlackTree<Integer> fast = join.get();
+		long joinTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		RedBlackTree<Integer> slow = naive.get();
+		long naiveTime = System.nanoTime() - start;
+		if (fast.size() != slow.size()) {
+			throw new IllegalStateException(name + " gave " + fast.size() + " keys instead of " + slow.size());
+		}
+		if (print) {
+			System.out.printf("%-14s %,12d %12d %12d%n", name, fast.size(), joinTime / 1_000_000, naiveTime / 1_000_000);
+		}
+	}
+	
+	/**
+	 * Computes an operation by iterating over the trees and calling find.
+	 * 
+	 * @param a the first tree
+	 * @param b the second tree
+	 * @param op 0 for union, 1 for intersection and 2 for difference
+	 * @return the result of the operation
+	 */
+	private static RedBlackTree<Integer> naive(RedBlackTree<Integer> a, RedBlackTree<Integer> b, int op) {
+		RedBlackTree<Integer> result = new RedBlackTree<>();
+		for (Integer key : a) {
+			boolean inB = b.find(key);
+			if (op == 0 || (op == 1 && inB) || (op == 2 && !inB)) {
+				result.insert(key);
+			}
+		}
+		if (op == 0) {
+			for (Integer key : b) {
+				if (!a.find(key)) {
+					result.insert(key);
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Builds a tree of distinct random keys from twice the size's range, so
+	 * that about half of the keys of two such trees overlap.
+	 * 
+	 * @param size the number of keys
+	 * @param random the source of the keys
+	 * @return a tree of random keys
+	 */
+	private static RedBlackTree<Integer> randomTree(int size, Random random) {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		int range = size * 2;
+		boolean[] taken = new boolean[range];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			int key = random.nextInt(range);
+			if (!taken[key]) {
+				taken[key] = true;
+				count++;
+			}
+		}
+		int[] sorted = new int[count];
+		count = 0;
+		for (int key = 0; key < range; key++) {
+			if (taken[key]) {
+				sorted[count++] = key;
+			}
+		}
+		tree.buildFromSorted(Arrays.stream(sorted).boxed().iterator(), sorted.length);
+		return tree;
+	}
+}
\ No newline at end of file
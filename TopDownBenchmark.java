@@ -0,0 +1,127 @@
+package rbtree;
+
+import java.util.Random;
+
+/**
+ * Compares RedBlackTree, which fixes up from the bottom through parent
+ * links, with TopDownRedBlackTree, which rebalances on the way down and has
+ * no parent links: the heap retained per entry, and the time per insert,
+ * find and delete of random keys.
+ * 
+ * Usage: TopDownBenchmark [number of keys]
+ * 
+ * @author Richard Shu
+ */
+public class TopDownBenchmark {
+	/**
+	 * This interface runs the operations of one kind of tree.
+	 */
+	private interface Tree {
+		void insert(Integer key);
+		
+		boolean find(Integer key);
+		
+		void delete(Integer key);
+	}
+	
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		Integer[] keys = new Integer[count]; // Boxed up front so boxing is not measured
+		for (int i = 0; i < count; i++) {
+			keys[i] = i;
+		}
+		for (int i = count - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Integer swap = keys[i];
+			keys[i] = keys[j];
+			keys[j] = swap;
+		}
+		
+		System.out.println("---------- Top-down tree benchmark ----------");
+		System.out.printf("%,d random keys%n", count);
+		System.out.printf("%-20s %12s %12s %12s %12s%n", "Tree", "bytes/key", "insert ns", "find ns", "delete ns");
+		for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+			boolean print = round == 2;
+			RedBlackTree<Integer> bottomUp = new RedBlackTree<>();
+			run("RedBlackTree", new Tree() {
+				public void insert(Integer key) {
+					bottomUp.insert(key);
+				}
+				public boolean find(Integer key) {
+					return bottomUp.find(key);
+				}
+				public void delete(Integer key) {
+					bottomUp.delete(key);
+				}
+			}, keys, print);
+			TopDownRedBlackTree<Integer> topDown = new TopDownRedBlackTree<>();
+			run("TopDownRedBlackTree", new Tree() {
+				public void insert(Integer key) {
+					topDown.insert(key);
+				}
+				public boolean find(Integer key) {
+					return topDown.find(key);
+				}
+				public void delete(Integer key) {
+					topDown.delete(key);
+				}
+			}, keys, print);
+		}
+	}
+	
+	/**
+	 * Inserts the keys, measures the heap the tree retains, looks every key
+	 * up and deletes every key.
+	 * 
+	 * @param name the name printed in the report
+	 * @param tree the operations on the tree, which keep it reachable while the heap is measured
+	 * @param keys the keys in random order
+	 * @param print whether or not the result is printed
+	 */
+	private static void run(String name, Tree tree, Integer[] keys, boolean print) {
+		long before = usedHeap();
+		long start = System.nanoTime();
+		for (Integer key : keys) {
+			tree.insert(key);
+		}
+		long insertTime = System.nanoTime() - start;
+		long bytes = usedHeap() - before;
+		start = System.nanoTime();
+		int found = 0;
+		for (Integer key : keys) {
+			if (tree.find(key)) {
+				found++;
+			}
+		}
+		long findTime = System.nanoTime() - start;
+		if (found != keys.length) {
+			throw new IllegalStateException(name + " found " + found + " of " + keys.length + " keys");
+		}
+		start = System.nanoTime();
+		for (Integer key : keys) {
+			tree.delete(key);
+		}
+		long deleteTime = System.nanoTime() - start;
+		if (print) {
+			System.out.printf("%-20s %12.1f %12.0f %12.0f %12.0f%n", name, (double) bytes / keys.length,
+					(double) insertTime / keys.length, (double) findTime / keys.length,
+					(double) deleteTime / keys.length);
+		}
+	}
+	
+	/**
+	 * Returns the heap in use after collecting garbage.
+	 * 
+	 * @return the smallest number of used bytes seen over several collections
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,433 @@
+package rbtree;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents a Red-Black Tree whose nodes have no parent links.
+ * Insert and delete restore the properties of a red-black tree on the way
+ * down, in the style of Guibas and Sedgewick: insert splits every node with
+ * two red children before passing it, and delete pushes a red node ahead of
+ * itself, so the node that is finally added or removed never needs a fixup
+ * that climbs back up. Each operation is a single pass from the root that
+ * keeps only the last four nodes of its path, and a node holds only its
+ * data, its two children and its color.
+ * 
+ * Iterators walk the tree with an explicit stack bounded by the height of a
+ * red-black tree, 2 log2(n + 1), so no traversal recurses. The tree has no
+ * listeners, augmentation or node pool; it is the lean counterpart of
+ * RedBlackTree for sets that are only inserted into, deleted from and read.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ * @see RedBlackTree
+ */
+public class TopDownRedBlackTree<E extends Comparable<E>> implements Iterable<E> {
+	private Node<E> root;
+	private int size = 0;
+	private int modCount = 0; // Structural changes so far, checked by iterators to fail fast
+	
+	/**
+	 * This nested class represents a node without a parent link.
+	 */
+	static class Node<E> {
+		E data;
+		Node<E> left;
+		Node<E> right;
+		boolean red = true;
+		
+		Node(E data) {
+			this.data = data;
+		}
+		
+		/**
+		 * Returns the child on the given side.
+		 * 
+		 * @param right true for the right child, false for the left
+		 * @return the child, or null
+		 */
+		Node<E> child(boolean right) {
+			return right ? this.right : left;
+		}
+		
+		/**
+		 * Replaces the child on the given side.
+		 * 
+		 * @param right true for the right child, false for the left
+		 * @param child the new child, or null
+		 */
+		void setChild(boolean right, Node<E> child) {
+			if (right) {
+				this.right = child;
+			}
+			else {
+				left = child;
+			}
+		}
+	}
+	
+	/**
+	 * Constructs an initially empty tree.
+	 */
+	public TopDownRedBlackTree() {}
+	
+	/**
+	 * Initializes a tree with an array.
+	 * 
+	 * @param array an array of data values used to initialize the tree
+	 */
+	public TopDownRedBlackTree(E[] array) {
+		for (int i = 0; i < array.length; i++) {
+			insert(array[i]);
+		}
+	}
+	
+	/**
+	 * Adds a new value to the tree in one pass from the root. On the way down
+	 * every node with two red children is recolored red with black children,
+	 * and a red node with a red parent that this creates is fixed at once by
+	 * a rotation at its grandparent, so the new red leaf always ends up under
+	 * a black parent or is fixed the same way.
+	 * 
+	 * @param key the item that will be inserted into the tree
+	 * @throws DuplicateItemException if the key is already in the tree; the tree stays balanced
+	 */
+	public void insert(E key) {
+		if (key == null) {
+			throw new NullPointerException();
+		}
+		if (root == null) {
+			root = new Node<>(key);
+			root.red = false;
+			size++;
+			modCount++;
+			return;
+		}
+		Node<E> head = new Node<>(null); // False root above the real root
+		head.right = root;
+		Node<E> great = head; // Great-grandparent
+		Node<E> grandparent = null;
+		Node<E> parent = null;
+		Node<E> current = root;
+		boolean dir = false; // Side of current under parent
+		boolean last = false; // Side of parent under grandparent
+		boolean inserted = false;
+		while (true) {
+			if (current == null) {
+				current = new Node<>(key);
+				parent.setChild(dir, current);
+				inserted = true;
+			}
+			else if (isRed(current.left) && isRed(current.right)) {
+				current.red = true; // Color flip
+				current.left.red = false;
+				current.right.red = false;
+			}
+			if (isRed(current) && isRed(parent)) { // Two reds in a row
+				boolean side = great.right == grandparent;
+				if (current == parent.child(last)) {
+					great.setChild(side, rotate(grandparent, !last));
+				}
+				else {
+					great.setChild(side, rotateTwice(grandparent, !last));
+				}
+			}
+			int cmp = key.compareTo(current.data);
+			if (cmp == 0) {
+				break;
+			}
+			last = dir;
+			dir = cmp > 0;
+			if (grandparent != null) {
+				great = grandparent;
+			}
+			grandparent = parent;
+			parent = current;
+			current = current.child(dir);
+		}
+		root = head.right;
+		root.red = false;
+		modCount++; // Even for a duplicate, since the pass may have recolored and rotated nodes
+		if (!inserted) {
+			throw new DuplicateItemException(); // The recoloring on the way down kept the tree valid
+		}
+		size++;
+	}
+	
+	/**
+	 * Removes a value from the tree in one pass from the root. On the way
+	 * down the current node is made red, by a color flip or a rotation at its
+	 * parent, before the search moves past it, so the node finally unlinked,
+	 * the in-order predecessor of the key or the key's own node, is a red
+	 * node with at most one child. The key is copied into the node that held
+	 * it from that node.
+	 * 
+	 * @param key the item that will be deleted from the tree
+	 * @throws EmptyTreeException if the tree is empty
+	 * @throws NullPointerException if the key is not in the tree; the tree stays balanced
+	 */
+	public void delete(E key) {
+		if (root == null) {
+			throw new EmptyTreeException();
+		}
+		Node<E> head = new Node<>(null); // False root above the real root
+		head.right = root;
+		Node<E> grandparent = null;
+		Node<E> parent = null;
+		Node<E> current = head;
+		Node<E> found = null;
+		boolean dir = true;
+		while (current.child(dir) != null) {
+			boolean last = dir;
+			grandparent = parent;
+			parent = current;
+			current = current.child(dir);
+			int cmp = key.compareTo(current.data);
+			dir = cmp > 0;
+			if (cmp == 0) {
+				found = current;
+				dir = false; // Continue to the in-order predecessor, the largest node of the left subtree
+			}
+			if (!isRed(current) && !isRed(current.child(dir))) { // Push a red node down
+				if (isRed(current.child(!dir))) {
+					Node<E> top = rotate(current, dir);
+					parent.setChild(last, top);
+					parent = top;
+				}
+				else {
+					Node<E> sibling = parent.child(!last);
+					if (sibling != null) {
+						if (!isRed(sibling.child(!last)) && !isRed(sibling.child(last))) {
+							parent.red = false; // Color flip
+							sibling.red = true;
+							current.red = true;
+						}
+						else {
+							boolean side = grandparent.right == parent;
+							if (isRed(sibling.child(last))) {
+								grandparent.setChild(side, rotateTwice(parent, last));
+							}
+							else {
+								grandparent.setChild(side, rotate(parent, last));
+							}
+							Node<E> top = grandparent.child(side);
+							current.red = true; // Make the coloring right
+							top.red = true;
+							top.left.red = false;
+							top.right.red = false;
+						}
+					}
+				}
+			}
+		}
+		modCount++; // Even for a missing key, since the pass may have recolored and rotated nodes
+		if (found != null) {
+			found.data = current.data;
+			parent.setChild(parent.right == current, current.left == null ? current.right : current.left);
+			size--;
+		}
+		root = head.right;
+		if (root != null) {
+			root.red = false;
+		}
+		if (found == null) {
+			throw new NullPointerException("The item cannot be found in the tree.");
+		}
+	}
+	
+	/**
+	 * Returns true or false depending on if the key is found in the tree or not.
+	 * 
+	 * @param key the item searched for in the tree
+	 * @return true or false depending on if the key is found in the tree or not
+	 */
+	public boolean find(E key) {
+		Node<E> current = root;
+		while (current != null) {
+			int cmp = key.compareTo(current.data);
+			if (cmp == 0) {
+				return true;
+			}
+			current = cmp < 0 ? current.left : current.right;
+		}
+		return false;
+	}
+	
+	/**
+	 * Removes every node from the tree.
+	 */
+	public void clear() {
+		root = null;
+		size = 0;
+		modCount++;
+	}
+	
+	/**
+	 * Returns the number of items in the tree in constant time.
+	 * 
+	 * @return the number of items in the tree
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns true if the tree is empty.
+	 * 
+	 * @return true if the tree is empty
+	 */
+	public boolean isEmpty() {
+		return root == null;
+	}
+	
+	/**
+	 * Returns the largest height a red-black tree with as many nodes can
+	 * have, 2 log2(n + 1), which bounds the stack of an iterator.
+	 * 
+	 * @return an upper bound on the height of the tree, counted in nodes
+	 */
+	public int heightBound() {
+		return 2 * (32 - Integer.numberOfLeadingZeros(size)); // 2 * ceil(log2(size + 1))
+	}
+	
+	/**
+	 * Returns a fail-fast iterator over the keys in order. It supports removal.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new KeyIterator();
+	}
+	
+	/**
+	 * This nested class walks the tree in order with a stack of the nodes
+	 * whose left subtrees are being visited. The stack is an array sized by
+	 * heightBound, since there are no parent links to climb.
+	 */
+	private class KeyIterator implements Iterator<E> {
+		private Node<E>[] stack = newStack();
+		private int top = 0; // Number of nodes on the stack
+		private E lastReturned;
+		private int expectedModCount = modCount;
+		
+		KeyIterator() {
+			pushLeft(root);
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return top > 0;
+		}
+		
+		@Override
+		public E next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (top == 0) {
+				throw new NoSuchElementException();
+			}
+			Node<E> node = stack[--top];
+			pushLeft(node.right);
+			lastReturned = node.data;
+			return lastReturned;
+		}
+		
+		@Override
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			delete(lastReturned);
+			stack = newStack(); // The deletion rotated the tree, so the path is found again
+			top = 0;
+			seekHigher(lastReturned);
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+		
+		/**
+		 * Pushes a node and its chain of left children.
+		 * 
+		 * @param node the node at the top of the chain, or null
+		 */
+		private void pushLeft(Node<E> node) {
+			while (node != null) {
+				stack[top++] = node;
+				node = node.left;
+			}
+		}
+		
+		/**
+		 * Fills the stack so that the next key returned is the smallest one
+		 * greater than the given key.
+		 * 
+		 * @param key the key the iteration continues after
+		 */
+		private void seekHigher(E key) {
+			Node<E> node = root;
+			while (node != null) {
+				if (key.compareTo(node.data) < 0) {
+					stack[top++] = node;
+					node = node.left;
+				}
+				else {
+					node = node.right;
+				}
+			}
+		}
+		
+		/**
+		 * Allocates a stack deep enough for the current tree.
+		 * 
+		 * @return an empty stack
+		 */
+		@SuppressWarnings("unchecked")
+		private Node<E>[] newStack() {
+			return (Node<E>[]) new Node<?>[heightBound() + 1];
+		}
+	}
+	
+	/**
+	 * Rotates the subtree rooted at the node toward the given side. The node
+	 * turns red and the child that takes its place turns black.
+	 * 
+	 * @param node the root of the rotation
+	 * @param right true to rotate right, false to rotate left
+	 * @return the new root of the subtree
+	 */
+	private static <E> Node<E> rotate(Node<E> node, boolean right) {
+		Node<E> pivot = node.child(!right);
+		node.setChild(!right, pivot.child(right));
+		pivot.setChild(right, node);
+		node.red = true;
+		pivot.red = false;
+		return pivot;
+	}
+	
+	/**
+	 * Rotates the child on the far side of the given side away from it, then
+	 * rotates the subtree rooted at the node toward the given side.
+	 * 
+	 * @param node the root of the rotation
+	 * @param right true to end with a right rotation, false to end with a left one
+	 * @return the new root of the subtree
+	 */
+	private static <E> Node<E> rotateTwice(Node<E> node, boolean right) {
+		node.setChild(!right, rotate(node.child(!right), !right));
+		return rotate(node, right);
+	}
+	
+	/**
+	 * Returns true if the node is red. NIL, represented by null, is black.
+	 * 
+	 * @param node the node determined to be red or not
+	 * @return true if the node is red
+	 */
+	private static boolean isRed(Node<?> node) {
+		return node != null && node.red;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+package rbtree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * This class represents a connection to a TreeServer. Single operations
+ * send one request and wait for its response. A pipeline queues any number
+ * of finds, inserts and deletes and sends them back to back, reading the
+ * responses in windows so neither side ever blocks on a full socket buffer.
+ * 
+ * A client is not thread-safe; each thread opens its own connection.
+ * 
+ * @author Richard Shu
+ * @see TreeProtocol
+ * @see TreeServer
+ */
+public class TreeClient implements AutoCloseable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int WINDOW = 1024; // Requests in flight before responses are read
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	
+	/**
+	 * Connects to a server on this host.
+	 * 
+	 * @param port the port of the server
+	 * @throws IOException if the connection cannot be made
+	 */
+	public TreeClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+	}
+	
+	/**
+	 * Returns true if the key is in the tree.
+	 * 
+	 * @param key the item searched for in the tree
+	 * @return true if the key is in the tree
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	public boolean find(int key) throws IOException {
+		return single(TreeProtocol.FIND, key);
+	}
+	
+	/**
+	 * Inserts the key unless it is already in the tree.
+	 * 
+	 * @param key the item that will be inserted into the tree
+	 * @return true if the key was inserted and false if it was already there
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	public boolean insert(int key) throws IOException {
+		return single(TreeProtocol.INSERT, key);
+	}
+	
+	/**
+	 * Deletes the key if it is in the tree.
+	 * 
+	 * @param key the item that will be deleted from the tree
+	 * @return true if the key was deleted and false if it was not there
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	public boolean delete(int key) throws IOException {
+		return single(TreeProtocol.DELETE, key);
+	}
+	
+	/**
+	 * Returns the keys between lo and hi, inclusive, in order.
+	 * 
+	 * @param lo the smallest key returned
+	 * @param hi the largest key returned
+	 * @param limit the largest number of keys returned
+	 * @return the keys in the range
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	public int[] range(int lo, int hi, int limit) throws IOException {
+		out.writeByte(TreeProtocol.RANGE);
+		out.writeInt(lo);
+		out.writeInt(hi);
+		out.writeInt(limit);
+		out.flush();
+		readStatus();
+		int[] keys = new int[in.readInt()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = in.readInt();
+		}
+		return keys;
+	}
+	
+	/**
+	 * Returns the number of keys in the tree.
+	 * 
+	 * @return the number of keys in the tree
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	public int size() throws IOException {
+		out.writeByte(TreeProtocol.SIZE);
+		out.flush();
+		readStatus();
+		return in.readInt();
+	}
+	
+	/**
+	 * Applies the operations as one batch. The server applies a batch
+	 * under a single acquisition of its write lock, so no other write
+	 * is seen in the middle of it.
+	 * 
+	 * @param ops FIND, INSERT or DELETE for each operation
+	 * @param keys the key of each operation
+	 * @return the result of each operation
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	public boolean[] batch(byte[] ops, int[] keys) throws IOException {
+		if (ops.length != keys.length || ops.length > TreeProtocol.MAX_BATCH) {
+			throw new IllegalArgumentException("A batch needs one key per operation and at most "
+					+ TreeProtocol.MAX_BATCH + " operations.");
+		}
+		out.writeByte(TreeProtocol.BATCH);
+		out.writeInt(ops.length);
+		for (int i = 0; i < ops.length; i++) {
+			out.writeByte(ops[i]);
+			out.writeInt(keys[i]);
+		}
+		out.flush();
+		readStatus();
+		boolean[] result = new boolean[in.readInt()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = in.readBoolean();
+		}
+		return result;
+	}
+	
+	/**
+	 * Sends the operations as separate pipelined requests and returns
+	 * their results. Unlike a batch, other clients' writes may be applied
+	 * between them.
+	 * 
+	 * @param ops FIND, INSERT or DELETE for each operation
+	 * @param keys the key of each operation
+	 * @return the result of each operation
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	public boolean[] pipeline(byte[] ops, int[] keys) throws IOException {
+		boolean[] result = new boolean[ops.length];
+		int sent = 0;
+		int received = 0;
+		while (received < ops.length) {
+			while (sent < ops.length && sent - received < WINDOW) {
+				out.writeByte(ops[sent]);
+				out.writeInt(keys[sent]);
+				sent++;
+			}
+			out.flush();
+			int end = Math.min(sent, received + WINDOW / 2); // Keeps the next window flowing while reading
+			if (sent == ops.length) {
+				end = sent;
+			}
+			while (received < end) {
+				readStatus();
+				result[received++] = in.readBoolean();
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Sends one request with a key and returns its boolean result.
+	 * 
+	 * @param op the opcode of the request
+	 * @param key the key of the request
+	 * @return the result of the request
+	 * @throws IOException if the connection fails or the server reports an error
+	 */
+	private boolean single(byte op, int key) throws IOException {
+		out.writeByte(op);
+		out.writeInt(key);
+		out.flush();
+		readStatus();
+		return in.readBoolean();
+	}
+	
+	/**
+	 * Reads the status of a response and throws if it is an error.
+	 * 
+	 * @throws IOException if the server reports an error
+	 */
+	private void readStatus() throws IOException {
+		byte status = in.readByte();
+		if (status == TreeProtocol.ERROR) {
+			throw new IOException("Server error: " + in.readUTF());
+		}
+		if (status != TreeProtocol.OK) {
+			throw new IOException("Unexpected status " + status);
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,335 @@
+package rbtree;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class writes a tree as ASCII art, Graphviz DOT or JSON, or writes the
+ * path from every leaf to the root. Every format is produced by an iterative
+ * traversal that keeps only the current path in memory, so trees of any size
+ * can be exported without deep recursion or a String per node. Output goes
+ * straight to a Writer or a channel.
+ * 
+ * Nodes deeper than the depth limit are left out. A node whose children were
+ * left out is marked with "..." in the text formats and with a "truncated"
+ * member in JSON.
+ * 
+ * The tree must not change while it is exported.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class TreeExporter<E extends Comparable<E>> {
+	private static final String GAP = "        ";
+	private static final String BAR = " |      ";
+	private RedBlackTree<E> tree;
+	private int maxDepth = Integer.MAX_VALUE;
+	
+	/**
+	 * This nested class is the explicit stack of a traversal. Each entry holds 
+	 * a node and two numbers whose meaning depends on the traversal.
+	 */
+	private static class Frames<E extends Comparable<E>> {
+		@SuppressWarnings("unchecked")
+		private RBNode<E>[] nodes = (RBNode<E>[]) new RBNode<?>[64];
+		private int[] states = new int[64];
+		private int[] ids = new int[64];
+		private int size = 0;
+		
+		private void push(RBNode<E> node, int state, int id) {
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+				states = Arrays.copyOf(states, size * 2);
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			nodes[size] = node;
+			states[size] = state;
+			ids[size] = id;
+			size++;
+		}
+	}
+	
+	/**
+	 * Constructs an exporter for the given tree.
+	 * 
+	 * @param tree the tree that will be exported
+	 */
+	public TreeExporter(RedBlackTree<E> tree) {
+		this.tree = tree;
+	}
+	
+	/**
+	 * Limits the export to the nodes at most the given depth below the root.
+	 * 
+	 * @param maxDepth the deepest level exported, where the root is at depth 0
+	 * @return this exporter
+	 */
+	public TreeExporter<E> setMaxDepth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("The depth limit cannot be negative.");
+		}
+		this.maxDepth = maxDepth;
+		return this;
+	}
+	
+	/**
+	 * Writes the tree sideways as ASCII art, with the right subtree above each
+	 * node and the left subtree below it. NIL children are written as leaves.
+	 * 
+	 * @param out where the tree is written
+	 * @throws IOException if the writer fails
+	 */
+	public void writeText(Writer out) throws IOException {
+		if (tree.isEmpty()) {
+			return;
+		}
+		// A reverse in-order walk along the path from the root. State 0 means the right subtree 
+		// is next, 1 the node itself and 2 the left subtree; the id is 1 for a right child.
+		Frames<E> path = new Frames<>();
+		path.push(tree.root, 0, 0);
+		while (path.size > 0) {
+			int depth = path.size - 1;
+			RBNode<E> node = path.nodes[depth];
+			int state = path.states[depth];
+			if (state == 0) {
+				path.states[depth] = 1;
+				if (node.right != null && depth < maxDepth) {
+					path.push(node.right, 0, 1);
+				}
+			}
+			else if (state == 1) {
+				path.states[depth] = 2;
+				writeIndent(out, path, depth);
+				out.write(String.valueOf(node));
+				if (depth == maxDepth && node != tree.NIL && (node.left != tree.NIL || node.right != tree.NIL)) {
+					out.write(" ...");
+				}
+				out.write('\n');
+				if (node.left != null && depth < maxDepth) {
+					path.push(node.left, 0, 0);
+				}
+			}
+			else {
+				path.size--;
+			}
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Writes the indent and branch of a line of ASCII art. Each ancestor adds
+	 * a bar when the path turns at it and a gap when it goes straight on.
+	 * 
+	 * @param out where the tree is written
+	 * @param path the path to the node being written
+	 * @param depth the depth of the node being written
+	 * @throws IOException if the writer fails
+	 */
+	private void writeIndent(Writer out, Frames<E> path, int depth) throws IOException {
+		if (depth == 0) {
+			return;
+		}
+		for (int i = 1; i < depth; i++) {
+			out.write(isRight(path, i) == isRight(path, i + 1) ? GAP : BAR);
+		}
+		out.write(isRight(path, depth) ? " /----- " : " \\----- ");
+	}
+	
+	/**
+	 * Returns true if the node at the given depth of the path is a right child.
+	 * 
+	 * @param path the path from the root
+	 * @param depth the depth of the node, at least 1
+	 * @return true if the node is the right child of the node above it
+	 */
+	private boolean isRight(Frames<E> path, int depth) {
+		return path.ids[depth] == 1; // NIL may be both children, so the node alone does not tell
+	}
+	
+	/**
+	 * Writes the tree as a Graphviz digraph. NIL leaves are left out.
+	 * 
+	 * @param out where the tree is written
+	 * @throws IOException if the writer fails
+	 */
+	public void writeDot(Writer out) throws IOException {
+		out.write("digraph RedBlackTree {\n");
+		out.write("\tnode [shape=circle, style=filled, fontcolor=white];\n");
+		if (!tree.isEmpty()) {
+			// A preorder walk. The state is the depth and the id is the parent's id.
+			int nextId = 0;
+			Frames<E> stack = new Frames<>();
+			stack.push(tree.root, 0, -1);
+			while (stack.size > 0) {
+				stack.size--;
+				RBNode<E> node = stack.nodes[stack.size];
+				int depth = stack.states[stack.size];
+				int parentId = stack.ids[stack.size];
+				int id = nextId++;
+				out.write("\tn" + id + " [label=\"" + escape(String.valueOf(node.getData())) + "\", fillcolor="
+						+ (node.color.equals("R") ? "red" : "black") + "];\n");
+				if (parentId >= 0) {
+					out.write("\tn" + parentId + " -> n" + id + ";\n");
+				}
+				if (node.left == tree.NIL && node.right == tree.NIL) {
+					continue;
+				}
+				if (depth == maxDepth) {
+					out.write("\tn" + id + "t [label=\"...\", shape=plaintext, style=\"\", fontcolor=black];\n");
+					out.write("\tn" + id + " -> n" + id + "t [style=dashed];\n");
+					continue;
+				}
+				if (node.right != tree.NIL) { // Pushed first so the left child is written first
+					stack.push(node.right, depth + 1, id);
+				}
+				if (node.left != tree.NIL) {
+					stack.push(node.left, depth + 1, id);
+				}
+			}
+		}
+		out.write("}\n");
+		out.flush();
+	}
+	
+	/**
+	 * Writes the tree as nested JSON objects with "key", "color", "left" and
+	 * "right" members. NIL children are written as null. Keys that are numbers
+	 * are written as numbers and other keys as strings.
+	 * 
+	 * @param out where the tree is written
+	 * @throws IOException if the writer fails
+	 */
+	public void writeJson(Writer out) throws IOException {
+		if (tree.isEmpty()) {
+			out.write("null\n");
+			out.flush();
+			return;
+		}
+		// A walk along the path from the root. State 0 means the node is opened next, 
+		// 1 that the right member is next and 2 that the object is closed next.
+		Frames<E> path = new Frames<>();
+		path.push(tree.root, 0, 0);
+		while (path.size > 0) {
+			int depth = path.size - 1;
+			RBNode<E> node = path.nodes[depth];
+			int state = path.states[depth];
+			if (state == 0) {
+				E key = node.getData();
+				out.write("{\"key\":");
+				out.write(key instanceof Number ? key.toString() : "\"" + escape(String.valueOf(key)) + "\"");
+				out.write(",\"color\":\"" + node.color + "\"");
+				path.states[depth] = 1;
+				if (depth == maxDepth) {
+					if (node.left != tree.NIL || node.right != tree.NIL) {
+						out.write(",\"truncated\":true");
+					}
+					out.write('}');
+					path.size--;
+					continue;
+				}
+				out.write(",\"left\":");
+				if (node.left == tree.NIL) {
+					out.write("null");
+				}
+				else {
+					path.push(node.left, 0, 0);
+				}
+			}
+			else if (state == 1) {
+				path.states[depth] = 2;
+				out.write(",\"right\":");
+				if (node.right == tree.NIL) {
+					out.write("null");
+				}
+				else {
+					path.push(node.right, 0, 0);
+				}
+			}
+			else {
+				out.write('}');
+				path.size--;
+			}
+		}
+		out.write('\n');
+		out.flush();
+	}
+	
+	/**
+	 * Writes the path from every leaf to the root, one leaf per line, from
+	 * the leftmost leaf to the rightmost. Leaves below the depth limit are
+	 * left out.
+	 * 
+	 * @param out where the paths are written
+	 * @throws IOException if the writer fails
+	 */
+	public void writeLeafPaths(Writer out) throws IOException {
+		if (tree.isEmpty()) {
+			return;
+		}
+		Frames<E> stack = new Frames<>(); // A preorder walk; the state is the depth
+		stack.push(tree.root, 0, 0);
+		while (stack.size > 0) {
+			RBNode<E> node = stack.nodes[--stack.size];
+			int depth = stack.states[stack.size];
+			if (node.left == tree.NIL && node.right == tree.NIL) {
+				for (RBNode<E> current = node; current.parent != null; current = current.parent) {
+					out.write(current + " --> ");
+				}
+				out.write(tree.root + "\n");
+			}
+			else if (depth < maxDepth) {
+				if (node.right != tree.NIL) {
+					stack.push(node.right, depth + 1, 0);
+				}
+				if (node.left != tree.NIL) {
+					stack.push(node.left, depth + 1, 0);
+				}
+			}
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Returns a writer that encodes UTF-8 into the channel. The writer is
+	 * buffered, and every export flushes it; closing it closes the channel.
+	 * 
+	 * @param channel where the output goes
+	 * @return a writer for the export methods
+	 */
+	public static Writer writer(WritableByteChannel channel) {
+		return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Escapes backslashes, quotes and control characters for DOT and JSON strings.
+	 * 
+	 * @param text the text that will be quoted
+	 * @return the escaped text
+	 */
+	private static String escape(String text) {
+		StringBuilder escaped = null;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\' || c < ' ') {
+				if (escaped == null) {
+					escaped = new StringBuilder(text.substring(0, i));
+				}
+				if (c == '"' || c == '\\') {
+					escaped.append('\\').append(c);
+				}
+				else {
+					escaped.append(String.format("\\u%04x", (int) c));
+				}
+			}
+			else if (escaped != null) {
+				escaped.append(c);
+			}
+		}
+		return escaped == null ? text : escaped.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package rbtree;
+
+/**
+ * This interface represents a listener that is told about every structural 
+ * change made to a RedBlackTree, so that a view of the tree can be patched 
+ * instead of rebuilt. The events are delivered on the thread that changes 
+ * the tree, while the change is being made, so a listener must not change the tree.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ * @see RedBlackTree#addTreeListener(TreeListener)
+ */
+public interface TreeListener<E extends Comparable<E>> {
+	
+	/**
+	 * Called when a node has been linked into the tree, before the tree is rebalanced.
+	 * 
+	 * @param node the node that was added
+	 */
+	default void nodeAdded(RBNode<E> node) {}
+	
+	/**
+	 * Called when a node has been unlinked from the tree. The node's 
+	 * parent reference still points to its last parent.
+	 * 
+	 * @param node the node that was removed
+	 */
+	default void nodeRemoved(RBNode<E> node) {}
+	
+	/**
+	 * Called when the color of a node has changed.
+	 * 
+	 * @param node the node that was recolored
+	 */
+	default void recolored(RBNode<E> node) {}
+	
+	/**
+	 * Called after a rotation. Only the subtree rooted at the given node has changed shape.
+	 * 
+	 * @param node the node at the top of the rotated subtree
+	 */
+	default void rotated(RBNode<E> node) {}
+	
+	/**
+	 * Called when the data value of a node has been replaced while 
+	 * deleting a node with two children.
+	 * 
+	 * @param node the node whose data value changed
+	 */
+	default void dataChanged(RBNode<E> node) {}
+	
+	/**
+	 * Called when every node has been removed from the tree at once.
+	 */
+	default void cleared() {}
+}
\ No newline at end of file
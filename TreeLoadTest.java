@@ -0,0 +1,145 @@
+package rbtree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Runs a load test against a TreeServer. Every client thread opens its own
+ * connection and sends pipelines of finds, inserts and deletes for a fixed
+ * time; the latency of every pipeline round trip is recorded in a
+ * LatencyHistogram. Without a port, a server with a prefilled tree is
+ * started in this process on a free port.
+ * 
+ * Usage: TreeLoadTest [--port n] [--clients n] [--duration s] [--depth n]
+ * [--keys n] [--writes percent] [--distribution name]
+ * 
+ * @author Richard Shu
+ * @see TreeServer
+ */
+public class TreeLoadTest {
+	public static void main(String[] args) throws Exception {
+		int port = 0;
+		int clients = 4;
+		int seconds = 10;
+		int depth = 16; // Requests per pipeline; 1 sends one request at a time
+		int keyRange = 1_000_000;
+		int writes = 10; // Percentage of inserts and deletes
+		String distribution = "uniform";
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--port":
+				port = Integer.parseInt(args[i + 1]);
+				break;
+			case "--clients":
+				clients = Integer.parseInt(args[i + 1]);
+				break;
+			case "--duration":
+				seconds = Integer.parseInt(args[i + 1]);
+				break;
+			case "--depth":
+				depth = Integer.parseInt(args[i + 1]);
+				break;
+			case "--keys":
+				keyRange = Integer.parseInt(args[i + 1]);
+				break;
+			case "--writes":
+				writes = Integer.parseInt(args[i + 1]);
+				break;
+			case "--distribution":
+				distribution = args[i + 1];
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		
+		TreeServer server = null;
+		if (port == 0) {
+			RedBlackTree<Integer> tree = new RedBlackTree<>();
+			ArrayList<Integer> keys = new ArrayList<>();
+			for (int key = 0; key < keyRange; key += 2) {
+				keys.add(key); // Half of the keys are present
+			}
+			tree.buildFromSorted(keys.iterator(), keys.size());
+			server = new TreeServer(tree, 0);
+			port = server.getPort();
+		}
+		System.out.printf("clients=%d duration=%ds depth=%d keys=%d writes=%d%% distribution=%s port=%d%n",
+				clients, seconds, depth, keyRange, writes, distribution, port);
+		
+		long end = System.nanoTime() + seconds * 1_000_000_000L;
+		LatencyHistogram[] histograms = new LatencyHistogram[clients];
+		long[] operations = new long[clients];
+		ArrayList<Thread> threads = new ArrayList<>();
+		IOException[] failure = new IOException[1];
+		for (int c = 0; c < clients; c++) {
+			int client = c;
+			int finalPort = port;
+			int finalDepth = depth;
+			int finalWrites = writes;
+			WorkloadDriver.KeyGenerator generator = WorkloadDriver.generator(distribution, keyRange, 42 + client);
+			histograms[client] = new LatencyHistogram();
+			Thread thread = new Thread(() -> {
+				SplittableRandom random = new SplittableRandom(client);
+				byte[] ops = new byte[finalDepth];
+				int[] keys = new int[finalDepth];
+				try (TreeClient connection = new TreeClient(finalPort)) {
+					while (System.nanoTime() < end) {
+						for (int i = 0; i < finalDepth; i++) {
+							int pick = random.nextInt(100);
+							ops[i] = pick >= finalWrites ? TreeProtocol.FIND
+									: pick % 2 == 0 ? TreeProtocol.INSERT : TreeProtocol.DELETE;
+							keys[i] = generator.next();
+						}
+						long start = System.nanoTime();
+						if (finalDepth == 1) {
+							switch (ops[0]) {
+							case TreeProtocol.FIND:
+								connection.find(keys[0]);
+								break;
+							case TreeProtocol.INSERT:
+								connection.insert(keys[0]);
+								break;
+							default:
+								connection.delete(keys[0]);
+							}
+						}
+						else {
+							connection.pipeline(ops, keys);
+						}
+						histograms[client].record(System.nanoTime() - start);
+						operations[client] += finalDepth;
+					}
+				} catch (IOException e) {
+					failure[0] = e;
+				}
+			}, "load-client-" + client);
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		
+		LatencyHistogram all = new LatencyHistogram();
+		long total = 0;
+		for (int c = 0; c < clients; c++) {
+			all.merge(histograms[c]);
+			total += operations[c];
+		}
+		System.out.printf("%,d operations, %,.0f ops/s%n", total, total / (double) seconds);
+		System.out.printf("round trip of %d requests (us): mean %.1f, p50 %.1f, p99 %.1f, p999 %.1f, max %.1f%n",
+				depth, all.mean() / 1000, all.percentile(50) / 1000.0, all.percentile(99) / 1000.0,
+				all.percentile(99.9) / 1000.0, all.max() / 1000.0);
+		if (server != null) {
+			try (TreeClient connection = new TreeClient(port)) {
+				System.out.println("final size=" + connection.size());
+			}
+			server.close();
+		}
+	}
+}
\ No newline at end of file
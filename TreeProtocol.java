@@ -0,0 +1,40 @@
+package rbtree;
+
+/**
+ * This class holds the constants of the binary protocol spoken by TreeServer
+ * and TreeClient. All numbers are big-endian and keys are 32-bit integers.
+ * 
+ * A request is an opcode byte followed by its arguments:
+ * <pre>
+ * FIND   key             response: status, found (byte 0 or 1)
+ * INSERT key             response: status, inserted (byte 0 or 1)
+ * DELETE key             response: status, deleted (byte 0 or 1)
+ * RANGE  lo hi limit     response: status, count, count keys in order
+ * BATCH  count, count * (FIND|INSERT|DELETE key)
+ *                        response: status, count, count result bytes
+ * SIZE                   response: status, size
+ * </pre>
+ * The status is OK, or ERROR followed by a modified UTF-8 message, in which
+ * case nothing else follows. Responses come back in the order the requests
+ * were sent, so a client may send many requests before reading any response.
+ * 
+ * @author Richard Shu
+ * @see TreeServer
+ * @see TreeClient
+ */
+public final class TreeProtocol {
+	public static final byte FIND = 1;
+	public static final byte INSERT = 2;
+	public static final byte DELETE = 3;
+	public static final byte RANGE = 4;
+	public static final byte BATCH = 5;
+	public static final byte SIZE = 6;
+	
+	public static final byte OK = 0;
+	public static final byte ERROR = 1;
+	
+	public static final int MAX_BATCH = 1 << 16; // Operations in one batch request
+	public static final int MAX_RANGE = 1 << 20; // Keys returned by one range request
+	
+	private TreeProtocol() {}
+}
\ No newline at end of file
@@ -0,0 +1,415 @@
+package rbtree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class serves a RedBlackTree of Integer keys to other processes on
+ * the same host over TCP, using the protocol described in TreeProtocol.
+ * The server only listens on the loopback address.
+ * 
+ * Each connection is handled by its own thread, which is a virtual thread
+ * when the JVM supports them and a platform thread otherwise. Finds and
+ * range scans run on the connection's thread under the read lock. Inserts,
+ * deletes and batches are put on a queue that a single writer thread
+ * drains, applying everything it finds on the queue under one acquisition
+ * of the write lock. A connection keeps reading requests while more are
+ * buffered and only flushes its responses when the input runs dry, so
+ * pipelined requests are answered with few writes.
+ * 
+ * @author Richard Shu
+ * @see TreeProtocol
+ * @see TreeClient
+ */
+public class TreeServer implements AutoCloseable {
+	private static final int QUEUE_CAPACITY = 1 << 16;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private final RedBlackTree<Integer> tree;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final BlockingQueue<Write> writes = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final ServerSocket serverSocket;
+	private final ThreadFactory connectionThreads;
+	private final Thread writer;
+	private final Thread acceptor;
+	private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+	private volatile boolean running = true;
+	
+	/**
+	 * This nested class is a write waiting for the writer thread. A batch
+	 * holds several operations that are applied together.
+	 */
+	private static class Write {
+		private final byte[] ops;
+		private final int[] keys;
+		private final CompletableFuture<boolean[]> result = new CompletableFuture<>();
+		
+		private Write(byte[] ops, int[] keys) {
+			this.ops = ops;
+			this.keys = keys;
+		}
+	}
+	
+	/**
+	 * Starts a server for the given tree. The tree must not be used by
+	 * anything else while the server runs.
+	 * 
+	 * @param tree the tree that will be served
+	 * @param port the port to listen on, or 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public TreeServer(RedBlackTree<Integer> tree, int port) throws IOException {
+		this.tree = tree;
+		serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+		connectionThreads = connectionThreads();
+		writer = new Thread(this::writeLoop, "tree-writer");
+		writer.setDaemon(true);
+		writer.start();
+		acceptor = new Thread(this::acceptLoop, "tree-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	/**
+	 * Returns the port the server listens on.
+	 * 
+	 * @return the local port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	/**
+	 * Returns a factory of virtual threads, or of daemon platform threads on
+	 * a JVM without virtual threads. Reflection keeps the class compiling
+	 * and running on older releases.
+	 * 
+	 * @return the factory of connection threads
+	 */
+	static ThreadFactory connectionThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = Class.forName("java.lang.Thread$Builder").getMethod("name", String.class, long.class)
+					.invoke(builder, "tree-connection-", 0L);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			return runnable -> {
+				Thread thread = new Thread(runnable, "tree-connection");
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+	}
+	
+	/**
+	 * Accepts connections until the server is closed.
+	 */
+	private void acceptLoop() {
+		while (running) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+				connectionThreads.newThread(() -> serve(socket)).start();
+			} catch (IOException e) {
+				if (running) {
+					System.err.println("Accept failed: " + e.getMessage());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Answers the requests of one connection until the client disconnects.
+	 * 
+	 * @param socket the connection
+	 */
+	private void serve(Socket socket) {
+		try (Socket s = socket;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), BUFFER_SIZE));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), BUFFER_SIZE))) {
+			while (true) {
+				int op = in.read();
+				if (op < 0) {
+					break; // The client closed the connection
+				}
+				try {
+					handle((byte) op, in, out);
+				} catch (IllegalArgumentException | IllegalStateException e) {
+					out.writeByte(TreeProtocol.ERROR);
+					out.writeUTF(String.valueOf(e.getMessage()));
+				}
+				if (in.available() == 0) {
+					out.flush(); // No more pipelined requests are waiting
+				}
+			}
+		} catch (EOFException | SocketException e) {
+			// The client went away in the middle of a request
+		} catch (IOException e) {
+			if (running) {
+				System.err.println("Connection failed: " + e.getMessage());
+			}
+		} finally {
+			sockets.remove(socket);
+		}
+	}
+	
+	/**
+	 * Reads the arguments of one request and writes its response.
+	 * 
+	 * @param op the opcode of the request
+	 * @param in the input of the connection
+	 * @param out the output of the connection
+	 * @throws IOException if the connection fails
+	 */
+	private void handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+		switch (op) {
+		case TreeProtocol.FIND: {
+			int key = in.readInt();
+			boolean found;
+			lock.readLock().lock();
+			try {
+				found = tree.find(key);
+			} finally {
+				lock.readLock().unlock();
+			}
+			out.writeByte(TreeProtocol.OK);
+			out.writeBoolean(found);
+			break;
+		}
+		case TreeProtocol.INSERT:
+		case TreeProtocol.DELETE: {
+			boolean[] result = write(new byte[] {op}, new int[] {in.readInt()});
+			out.writeByte(TreeProtocol.OK);
+			out.writeBoolean(result[0]);
+			break;
+		}
+		case TreeProtocol.RANGE: {
+			int lo = in.readInt();
+			int hi = in.readInt();
+			int limit = in.readInt();
+			if (limit < 0) {
+				throw new IllegalArgumentException("The limit cannot be negative.");
+			}
+			limit = Math.min(limit, TreeProtocol.MAX_RANGE);
+			int[] keys = new int[Math.min(limit, 1024)];
+			int count = 0;
+			lock.readLock().lock();
+			try { // Walks only as far as the limit, so the read lock is held for O(log n + limit)
+				RBNode<Integer> node = tree.ceilingNode(lo, true);
+				while (node != null && count < limit && node.getData() <= hi) {
+					if (count == keys.length) {
+						keys = Arrays.copyOf(keys, Math.min(limit, count * 2));
+					}
+					keys[count++] = node.getData();
+					node = tree.successor(node);
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			out.writeByte(TreeProtocol.OK);
+			out.writeInt(count);
+			for (int i = 0; i < count; i++) {
+				out.writeInt(keys[i]);
+			}
+			break;
+		}
+		case TreeProtocol.BATCH: {
+			int count = in.readInt();
+			if (count < 0 || count > TreeProtocol.MAX_BATCH) {
+				throw new IOException("Bad batch size " + count); // The stream cannot be resynchronized
+			}
+			byte[] ops = new byte[count];
+			int[] keys = new int[count];
+			for (int i = 0; i < count; i++) {
+				ops[i] = in.readByte();
+				keys[i] = in.readInt();
+				if (ops[i] != TreeProtocol.FIND && ops[i] != TreeProtocol.INSERT && ops[i] != TreeProtocol.DELETE) {
+					throw new IOException("Bad operation " + ops[i] + " in batch");
+				}
+			}
+			boolean[] result = write(ops, keys);
+			out.writeByte(TreeProtocol.OK);
+			out.writeInt(count);
+			for (boolean b : result) {
+				out.writeBoolean(b);
+			}
+			break;
+		}
+		case TreeProtocol.SIZE: {
+			int size;
+			lock.readLock().lock();
+			try {
+				size = tree.size();
+			} finally {
+				lock.readLock().unlock();
+			}
+			out.writeByte(TreeProtocol.OK);
+			out.writeInt(size);
+			break;
+		}
+		default:
+			throw new IOException("Unknown operation " + op); // The stream cannot be resynchronized
+		}
+	}
+	
+	/**
+	 * Hands operations to the writer thread and waits for their results.
+	 * 
+	 * @param ops the operations
+	 * @param keys the key of each operation
+	 * @return the result of each operation
+	 * @throws IllegalStateException if applying the operations failed
+	 * @throws IOException if the server is closing
+	 */
+	private boolean[] write(byte[] ops, int[] keys) throws IOException {
+		Write write = new Write(ops, keys);
+		try {
+			writes.put(write);
+			if (!running) { // The writer may have drained the queue for the last time already
+				write.result.completeExceptionally(new IOException("The server is closing"));
+			}
+			return write.result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the writer");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw new IllegalStateException("The write failed: " + e.getCause(), e.getCause());
+			}
+			throw new IOException("The writer failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Applies queued writes in groups until the server is closed. The
+	 * results are completed after the write lock is released. A write that
+	 * throws a RuntimeException fails on its own and the loop goes on. An
+	 * Error fails the rest of the group and closes the server, since the
+	 * tree may have been left half changed.
+	 */
+	private void writeLoop() {
+		ArrayList<Write> group = new ArrayList<>();
+		Error fatal = null;
+		while (running && fatal == null) {
+			try {
+				group.add(writes.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			writes.drainTo(group);
+			boolean[][] results = new boolean[group.size()][];
+			Throwable[] failures = new Throwable[group.size()];
+			lock.writeLock().lock();
+			try {
+				for (int i = 0; i < group.size() && fatal == null; i++) {
+					try {
+						results[i] = apply(group.get(i));
+					} catch (RuntimeException e) {
+						failures[i] = e;
+					} catch (Error e) {
+						failures[i] = e;
+						fatal = e;
+					}
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+			for (int i = 0; i < group.size(); i++) {
+				if (results[i] != null) {
+					group.get(i).result.complete(results[i]);
+				}
+				else {
+					group.get(i).result.completeExceptionally(failures[i] != null ? failures[i]
+							: new IOException("The server is closing"));
+				}
+			}
+			group.clear();
+		}
+		if (fatal != null) {
+			System.err.println("Writer failed: " + fatal);
+			try {
+				close();
+			} catch (IOException e) {
+				System.err.println("Close failed: " + e.getMessage());
+			}
+		}
+		for (Write write : writes) {
+			write.result.completeExceptionally(new IOException("The server is closing"));
+		}
+	}
+	
+	/**
+	 * Applies the operations of one write to the tree.
+	 * 
+	 * @param write the queued write
+	 * @return the result of each operation
+	 */
+	private boolean[] apply(Write write) {
+		boolean[] result = new boolean[write.ops.length];
+		for (int i = 0; i < result.length; i++) {
+			Integer key = write.keys[i];
+			boolean present = tree.find(key);
+			if (write.ops[i] == TreeProtocol.INSERT && !present) {
+				tree.insert(key);
+				result[i] = true;
+			}
+			else if (write.ops[i] == TreeProtocol.DELETE && present) {
+				tree.delete(key);
+				result[i] = true;
+			}
+			else {
+				result[i] = write.ops[i] == TreeProtocol.FIND && present;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Stops accepting connections, closes the open ones and stops the writer.
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverSocket.close();
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		writer.interrupt();
+	}
+	
+	/**
+	 * Starts a server: TreeServer [port [key file]]. The key file is loaded
+	 * with KeyFileLoader before the server starts listening.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7474;
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		if (args.length > 1) {
+			long start = System.nanoTime();
+			int keys = KeyFileLoader.loadIntegers(Paths.get(args[1]), tree);
+			System.out.printf("Loaded %d keys in %d ms%n", keys, (System.nanoTime() - start) / 1_000_000);
+		}
+		TreeServer server = new TreeServer(tree, port);
+		System.out.println("Serving " + tree.size() + " keys on localhost:" + server.getPort());
+		server.acceptor.join();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+package rbtree;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * This class represents a stable view of the keys a RedBlackTree held when
+ * the snapshot was opened, its epoch. The tree keeps changing underneath:
+ * while the snapshot is open, the tree records in it every key inserted or
+ * deleted since the epoch, and a key changed back and forth is recorded at
+ * most once. The view is the live tree without the inserted keys, plus the
+ * deleted ones, so the cost of a snapshot grows with the number of changes
+ * made while it is open, not with the size of the tree.
+ * 
+ * Iterators read the tree in chunks. Each chunk is read under the read lock,
+ * if there is one, by one descent to the last key returned followed by
+ * successor references, so a long scan only blocks writers for the length
+ * of a chunk and never sees a rotation half done.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ * @see RedBlackTree#snapshot(ReadWriteLock)
+ */
+public class TreeSnapshot<E extends Comparable<E>> implements Iterable<E>, AutoCloseable {
+	private static final int CHUNK = 64; // Keys read from the tree per descent
+	private final RedBlackTree<E> tree;
+	private final ReadWriteLock lock;
+	private final int epoch;
+	private final RedBlackTree<E> inserted = new RedBlackTree<>(); // Keys not in the tree at the epoch
+	private final RedBlackTree<E> deleted = new RedBlackTree<>(); // Keys in the tree at the epoch
+	private volatile boolean closed = false;
+	
+	/**
+	 * Constructs an open snapshot. Called by RedBlackTree.snapshot.
+	 * 
+	 * @param tree the tree whose keys are viewed
+	 * @param lock the lock that guards the tree, or null if there is none
+	 * @param epoch the modification count of the tree when the snapshot is opened
+	 */
+	TreeSnapshot(RedBlackTree<E> tree, ReadWriteLock lock, int epoch) {
+		this.tree = tree;
+		this.lock = lock;
+		this.epoch = epoch;
+	}
+	
+	/**
+	 * Records a change made to the tree. Called by the tree while it changes.
+	 * 
+	 * @param key the key that was inserted or deleted
+	 * @param insert true for an insertion and false for a deletion
+	 */
+	void record(E key, boolean insert) {
+		if (insert) {
+			if (deleted.find(key)) {
+				deleted.delete(key); // Deleted and inserted again, so back to how it was
+			}
+			else {
+				inserted.insert(key);
+			}
+		}
+		else {
+			if (inserted.find(key)) {
+				inserted.delete(key);
+			}
+			else {
+				deleted.insert(key);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the modification count of the tree when the snapshot was opened.
+	 * 
+	 * @return the epoch of the snapshot
+	 */
+	public int getEpoch() {
+		return epoch;
+	}
+	
+	/**
+	 * Returns the number of keys in the snapshot.
+	 * 
+	 * @return the number of keys the tree held at the epoch
+	 */
+	public int size() {
+		checkOpen();
+		lockRead();
+		try {
+			return tree.size() - inserted.size() + deleted.size();
+		} finally {
+			unlockRead();
+		}
+	}
+	
+	/**
+	 * Returns the number of changes recorded since the epoch.
+	 * 
+	 * @return the number of keys whose presence differs from the epoch
+	 */
+	public int changes() {
+		lockRead();
+		try {
+			return inserted.size() + deleted.size();
+		} finally {
+			unlockRead();
+		}
+	}
+	
+	/**
+	 * Returns an iterator over the keys of the snapshot in order. The
+	 * iterator may be used while the tree changes, but not after the
+	 * snapshot is closed.
+	 * 
+	 * @return an iterator over the keys the tree held at the epoch
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		checkOpen();
+		return new SnapshotIterator();
+	}
+	
+	/**
+	 * Stops recording changes and frees the recorded ones.
+	 */
+	@Override
+	public void close() {
+		if (lock != null) {
+			lock.writeLock().lock();
+		}
+		try {
+			if (!closed) {
+				closed = true;
+				tree.closeSnapshot(this);
+				inserted.clear();
+				deleted.clear();
+			}
+		} finally {
+			if (lock != null) {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Throws if the snapshot is closed.
+	 */
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("The snapshot is closed.");
+		}
+	}
+	
+	/**
+	 * Takes the read lock, if there is a lock.
+	 */
+	private void lockRead() {
+		if (lock != null) {
+			lock.readLock().lock();
+		}
+	}
+	
+	/**
+	 * Releases the read lock, if there is a lock.
+	 */
+	private void unlockRead() {
+		if (lock != null) {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * This nested class iterates over the snapshot a chunk at a time,
+	 * merging the live keys that were not inserted since the epoch with the
+	 * keys deleted since then.
+	 */
+	private class SnapshotIterator implements Iterator<E> {
+		@SuppressWarnings("unchecked")
+		private final E[] chunk = (E[]) new Comparable<?>[CHUNK];
+		private int count = 0;
+		private int index = 0;
+		private E last; // The last key read, or null before the first chunk
+		private boolean exhausted = false;
+		
+		@Override
+		public boolean hasNext() {
+			if (index == count && !exhausted) {
+				fill();
+			}
+			return index < count;
+		}
+		
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E key = chunk[index];
+			chunk[index++] = null;
+			return key;
+		}
+		
+		/**
+		 * Reads the next chunk of keys after the last one read.
+		 */
+		private void fill() {
+			checkOpen();
+			lockRead();
+			try {
+				checkOpen(); // Closing may have raced with taking the lock
+				RBNode<E> live = last == null ? tree.firstNode() : tree.ceilingNode(last, false);
+				RBNode<E> gone = last == null ? deleted.firstNode() : deleted.ceilingNode(last, false);
+				count = 0;
+				index = 0;
+				while (count < CHUNK) {
+					while (live != null && inserted.find(live.getData())) {
+						live = tree.successor(live); // Not in the tree at the epoch
+					}
+					if (live == null && gone == null) {
+						break;
+					}
+					if (gone == null || (live != null && live.getData().compareTo(gone.getData()) < 0)) {
+						chunk[count++] = live.getData();
+						live = tree.successor(live);
+					}
+					else {
+						chunk[count++] = gone.getData();
+						gone = deleted.successor(gone);
+					}
+				}
+				exhausted = count < CHUNK;
+				if (count > 0) {
+					last = chunk[count - 1];
+				}
+			} finally {
+				unlockRead();
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package rbtree;
+
+/**
+ * This class balances a RedBlackTree as a weak AVL tree, as described by
+ * Haeupler, Sen and Tarjan. Every node has a rank, kept in the node with NIL
+ * at -1; the rank of a node exceeds that of each child by one or two, and a
+ * leaf has rank 0. Built by insertions alone, a WAVL tree is an AVL tree;
+ * deletions only loosen it toward a red-black tree, so it is never higher
+ * than 2 log n. Either operation takes at most two rotations, and the rank
+ * changes above the rotations take O(1) amortized time.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of data stored in the tree
+ */
+public class WAVLBalancing<E extends Comparable<E>> implements BalancingStrategy<E> {
+	
+	/**
+	 * Promotes ancestors while the new rank of a child equals its parent's,
+	 * and rotates once or twice where promoting would break the rank rule.
+	 */
+	@Override
+	public void inserted(RedBlackTree<E> tree, RBNode<E> node) {
+		RBNode<E> child = node;
+		RBNode<E> parent = node.parent;
+		while (parent != null && parent.rank == child.rank) { // The child is a 0-child
+			boolean left = child == parent.left;
+			RBNode<E> sibling = left ? parent.right : parent.left;
+			if (parent.rank - rank(tree, sibling) == 1) {
+				parent.rank++; // Promote and move up
+				child = parent;
+				parent = parent.parent;
+				continue;
+			}
+			RBNode<E> inner = left ? child.right : child.left; // The grandchild that moves across
+			if (child.rank - rank(tree, inner) == 2) {
+				rotateUp(tree, child);
+				parent.rank--;
+			}
+			else {
+				rotateUp(tree, inner);
+				rotateUp(tree, inner);
+				inner.rank++;
+				child.rank--;
+				parent.rank--;
+			}
+			break;
+		}
+	}
+	
+	/**
+	 * Demotes ancestors while a child is three ranks below its parent, and
+	 * rotates once or twice where demoting would break the rank rule.
+	 */
+	@Override
+	public void removed(RedBlackTree<E> tree, RBNode<E> node, RBNode<E> child) {
+		RBNode<E> parent = child.parent;
+		if (parent == null) {
+			return;
+		}
+		if (parent.left == tree.NIL && parent.right == tree.NIL && parent.rank == 1) {
+			parent.rank = 0; // A leaf must have rank 0
+			child = parent;
+			parent = parent.parent;
+		}
+		while (parent != null && parent.rank - rank(tree, child) == 3) {
+			RBNode<E> sibling = child == parent.left ? parent.right : parent.left;
+			if (parent.rank - rank(tree, sibling) == 2) {
+				parent.rank--; // Demote and move up
+			}
+			else if (sibling.rank - rank(tree, sibling.left) == 2 && sibling.rank - rank(tree, sibling.right) == 2) {
+				parent.rank--; // Demote both and move up
+				sibling.rank--;
+			}
+			else {
+				boolean left = sibling == parent.left;
+				RBNode<E> outer = left ? sibling.left : sibling.right;
+				RBNode<E> inner = left ? sibling.right : sibling.left;
+				if (sibling.rank - rank(tree, outer) == 1) {
+					rotateUp(tree, sibling);
+					sibling.rank++;
+					parent.rank--;
+					if (parent.left == tree.NIL && parent.right == tree.NIL) {
+						parent.rank--; // A leaf must have rank 0
+					}
+				}
+				else {
+					rotateUp(tree, inner);
+					rotateUp(tree, inner);
+					inner.rank += 2;
+					sibling.rank--;
+					parent.rank -= 2;
+				}
+				break;
+			}
+			child = parent;
+			parent = parent.parent;
+		}
+	}
+	
+	/**
+	 * Returns the rank of the root, which is at least the height of the tree.
+	 */
+	@Override
+	public int heightBound(RedBlackTree<E> tree) {
+		return tree.root.rank;
+	}
+	
+	/**
+	 * Rotates a node above its parent.
+	 * 
+	 * @param tree the tree that changed
+	 * @param node the node that moves up
+	 */
+	private void rotateUp(RedBlackTree<E> tree, RBNode<E> node) {
+		if (node == node.parent.left) {
+			tree.rightRotate(node.parent);
+		}
+		else {
+			tree.leftRotate(node.parent);
+		}
+	}
+	
+	/**
+	 * Returns the rank of a node.
+	 * 
+	 * @param tree the tree
+	 * @param node a node, or NIL
+	 * @return the rank of the node, or -1 for NIL
+	 */
+	private int rank(RedBlackTree<E> tree, RBNode<E> node) {
+		return node == tree.NIL ? -1 : node.rank;
+	}
+}
\ No newline at end of file
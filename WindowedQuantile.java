@@ -0,0 +1,214 @@
+package rbtree;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * This class computes quantiles, such as a rolling median or p99, over the
+ * most recent values of a stream. The window holds at most a given number
+ * of values, values younger than a given age, or both; older values are
+ * evicted as new ones arrive.
+ * 
+ * The values in the window are kept in a MultisetTree, which counts
+ * duplicates and caches the number of values in every subtree, and in a
+ * ring buffer in arrival order that tells which value to evict next. Adding,
+ * evicting and answering a quantile each take O(log n) time.
+ * 
+ * Timestamps are in any unit the caller likes, as long as they never go
+ * backwards and the maximum age is in the same unit. The add method
+ * without a timestamp uses System.nanoTime. A window is not thread-safe.
+ * 
+ * @author Richard Shu
+ * @param <E> the type of the values
+ */
+public class WindowedQuantile<E extends Comparable<E>> {
+	private final MultisetTree<E> tree = new MultisetTree<>();
+	private final int maxCount;
+	private final long maxAge;
+	private Object[] values = new Object[16]; // Ring buffer of the window in arrival order
+	private long[] times = new long[16];
+	private int head = 0; // Index of the oldest value
+	private int count = 0;
+	
+	/**
+	 * Constructs a window bounded by count, by age or by both.
+	 * 
+	 * @param maxCount the largest number of values kept, or Integer.MAX_VALUE for no limit
+	 * @param maxAge the age at which a value is evicted, or Long.MAX_VALUE for no limit
+	 */
+	public WindowedQuantile(int maxCount, long maxAge) {
+		if (maxCount <= 0 || maxAge <= 0) {
+			throw new IllegalArgumentException("The window must hold at least one value.");
+		}
+		this.maxCount = maxCount;
+		this.maxAge = maxAge;
+	}
+	
+	/**
+	 * Returns a window of the last n values.
+	 * 
+	 * @param n the number of values kept
+	 * @return an empty window
+	 */
+	public static <E extends Comparable<E>> WindowedQuantile<E> ofCount(int n) {
+		return new WindowedQuantile<>(n, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Returns a window of the values added with System.nanoTime timestamps
+	 * during the last duration.
+	 * 
+	 * @param duration how long a value stays in the window
+	 * @return an empty window
+	 */
+	public static <E extends Comparable<E>> WindowedQuantile<E> ofDuration(Duration duration) {
+		return new WindowedQuantile<>(Integer.MAX_VALUE, duration.toNanos());
+	}
+	
+	/**
+	 * Adds a value stamped with System.nanoTime.
+	 * 
+	 * @param value the value that will be added
+	 */
+	public void add(E value) {
+		add(value, System.nanoTime());
+	}
+	
+	/**
+	 * Adds a value, then evicts the values that are too old or too many.
+	 * 
+	 * @param value the value that will be added
+	 * @param time the timestamp of the value, no earlier than the previous one
+	 */
+	public void add(E value, long time) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		if (count > 0 && time < times[(head + count - 1) % times.length]) {
+			throw new IllegalArgumentException("Timestamps cannot go backwards.");
+		}
+		if (count == values.length) {
+			grow();
+		}
+		int tail = (head + count) % values.length;
+		values[tail] = value;
+		times[tail] = time;
+		count++;
+		tree.insert(value);
+		while (count > maxCount) {
+			evict();
+		}
+		expire(time);
+	}
+	
+	/**
+	 * Evicts the values that are at least the maximum age old at the given time.
+	 * 
+	 * @param now the current time
+	 * @return the number of values evicted
+	 */
+	public int expire(long now) {
+		if (maxAge == Long.MAX_VALUE) {
+			return 0;
+		}
+		int evicted = 0;
+		while (count > 0 && now - times[head] >= maxAge) {
+			evict();
+			evicted++;
+		}
+		return evicted;
+	}
+	
+	/**
+	 * Evicts the oldest value.
+	 * 
+	 * @return the value that was evicted
+	 * @throws EmptyTreeException if the window is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E evict() {
+		if (count == 0) {
+			throw new EmptyTreeException();
+		}
+		E value = (E) values[head];
+		values[head] = null;
+		head = (head + 1) % values.length;
+		count--;
+		tree.delete(value);
+		return value;
+	}
+	
+	/**
+	 * Returns the value at the given quantile of the window by the nearest-rank
+	 * method: the smallest value that at least a fraction q of the window is
+	 * less than or equal to.
+	 * 
+	 * @param q the quantile, between 0 and 1
+	 * @return the value at the quantile
+	 * @throws EmptyTreeException if the window is empty
+	 */
+	public E quantile(double q) {
+		if (q < 0 || q > 1 || Double.isNaN(q)) {
+			throw new IllegalArgumentException("The quantile must be between 0 and 1.");
+		}
+		if (count == 0) {
+			throw new EmptyTreeException();
+		}
+		long rank = (long) Math.ceil(q * count) - 1;
+		return tree.select(Math.max(rank, 0));
+	}
+	
+	/**
+	 * Returns the median of the window, the lower one when the window holds
+	 * an even number of values.
+	 * 
+	 * @return the median of the window
+	 */
+	public E median() {
+		return quantile(0.5);
+	}
+	
+	/**
+	 * Returns the fraction of the window that is less than the value.
+	 * 
+	 * @param value the value whose rank is computed
+	 * @return the fraction of the window below the value, or 0 if the window is empty
+	 */
+	public double rank(E value) {
+		return count == 0 ? 0 : (double) tree.rank(value) / count;
+	}
+	
+	/**
+	 * Returns the number of values in the window.
+	 * 
+	 * @return the number of values in the window
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Evicts every value.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		head = 0;
+		count = 0;
+		tree.clear();
+	}
+	
+	/**
+	 * Doubles the ring buffer, moving the oldest value to the front.
+	 */
+	private void grow() {
+		Object[] newValues = new Object[values.length * 2];
+		long[] newTimes = new long[values.length * 2];
+		for (int i = 0; i < count; i++) {
+			newValues[i] = values[(head + i) % values.length];
+			newTimes[i] = times[(head + i) % values.length];
+		}
+		values = newValues;
+		times = newTimes;
+		head = 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package rbtree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the time per event of keeping a rolling median and p99 over a
+ * count-based window with WindowedQuantile, against copying and sorting the
+ * window after every event.
+ * 
+ * @author Richard Shu
+ */
+public class WindowedQuantileBenchmark {
+	private static final int EVENTS = 1_000_000;
+	private static final int SORTED_EVENTS = 2_000; // Sorting every window is too slow for more
+	private static final int[] WINDOWS = {1_000, 10_000, 100_000};
+	
+	public static void main(String[] args) {
+		Integer[] stream = new Integer[EVENTS];
+		Random random = new Random(42);
+		for (int i = 0; i < stream.length; i++) {
+			stream[i] = (int) Math.abs(random.nextGaussian() * 1000); // Latencies with many duplicates
+		}
+		
+		System.out.println("---------- Windowed quantile benchmark ----------");
+		System.out.printf("%-10s %15s %15s %10s%n", "Window", "tree ns/event", "sort ns/event", "speedup");
+		for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+			for (int window : WINDOWS) {
+				double tree = tree(stream, window);
+				double sort = sort(stream, window);
+				if (round == 1) {
+					System.out.printf("%-10d %15.0f %15.0f %9.0fx%n", window, tree, sort, sort / tree);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Streams the values through a WindowedQuantile.
+	 * 
+	 * @param stream the values
+	 * @param window the number of values in the window
+	 * @return the time per event in nanoseconds
+	 */
+	private static double tree(Integer[] stream, int window) {
+		WindowedQuantile<Integer> quantiles = WindowedQuantile.ofCount(window);
+		long checksum = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < stream.length; i++) {
+			quantiles.add(stream[i], i);
+			checksum += quantiles.median() + quantiles.quantile(0.99);
+		}
+		long elapsed = System.nanoTime() - start;
+		if (checksum == 42) {
+			System.out.println(); // Keeps the loop from being optimized away
+		}
+		return (double) elapsed / stream.length;
+	}
+	
+	/**
+	 * Streams the values through a queue and sorts a copy of the window after every event.
+	 * 
+	 * @param stream the values
+	 * @param window the number of values in the window
+	 * @return the time per event in nanoseconds
+	 */
+	private static double sort(Integer[] stream, int window) {
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		int events = Math.min(stream.length, window + SORTED_EVENTS);
+		for (int i = 0; i < window; i++) {
+			queue.add(stream[i]); // Filled up front so every measured event sorts a full window
+		}
+		long checksum = 0;
+		long start = System.nanoTime();
+		for (int i = window; i < events; i++) {
+			queue.add(stream[i]);
+			queue.poll();
+			int[] sorted = new int[queue.size()];
+			int j = 0;
+			for (int value : queue) {
+				sorted[j++] = value;
+			}
+			Arrays.sort(sorted);
+			checksum += sorted[(int) Math.ceil(0.5 * sorted.length) - 1] + sorted[(int) Math.ceil(0.99 * sorted.length) - 1];
+		}
+		long elapsed = System.nanoTime() - start;
+		if (checksum == 42) {
+			System.out.println();
+		}
+		return (double) elapsed / (events - window);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,454 @@
+package rbtree;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class represents a headless load generator for RedBlackTree.
+ * Worker threads run a mix of find, insert, delete and range scan
+ * operations on a shared tree of Integer keys for a fixed duration and
+ * record the latency of every operation in a LatencyHistogram.
+ * 
+ * The tree is not thread-safe, so finds and range scans hold the read
+ * lock of a ReentrantReadWriteLock and insertions and deletions hold its
+ * write lock. The results therefore include the cost of that lock.
+ * 
+ * @author Richard Shu
+ * @see Main
+ */
+public class WorkloadDriver {
+	public static final int FIND = 0;
+	public static final int INSERT = 1;
+	public static final int DELETE = 2;
+	public static final int RANGE = 3;
+	private static final String[] NAMES = {"find", "insert", "delete", "range"};
+	
+	/**
+	 * This interface represents a source of keys between 0 (inclusive) and the key range (exclusive).
+	 * Each worker thread has its own generator.
+	 */
+	public interface KeyGenerator {
+		int next();
+	}
+	
+	private int threads = 1;
+	private long durationMillis = 10_000;
+	private long warmupMillis = 2_000;
+	private int keyRange = 1_000_000;
+	private int rangeWidth = 100; // Number of keys covered by a range scan
+	private int[] mix = {70, 10, 10, 10}; // Percentages of find, insert, delete and range scan
+	private String distribution = "uniform";
+	private long seed = 42;
+	private boolean filter = false;
+	private int cacheSize = 0;
+	
+	/**
+	 * Constructs a driver with the default settings.
+	 */
+	public WorkloadDriver() {}
+	
+	/**
+	 * Sets the number of worker threads.
+	 * 
+	 * @param threads the number of worker threads
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("There must be at least one thread.");
+		}
+		this.threads = threads;
+	}
+	
+	/**
+	 * Sets how long the measured part of the run lasts.
+	 * 
+	 * @param durationMillis the duration in milliseconds
+	 */
+	public void setDuration(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+	
+	/**
+	 * Sets how long the workload runs before measuring starts.
+	 * 
+	 * @param warmupMillis the warmup in milliseconds
+	 */
+	public void setWarmup(long warmupMillis) {
+		this.warmupMillis = warmupMillis;
+	}
+	
+	/**
+	 * Sets the number of distinct keys. Half of them are inserted before the run.
+	 * 
+	 * @param keyRange the number of distinct keys
+	 */
+	public void setKeyRange(int keyRange) {
+		if (keyRange < 2) {
+			throw new IllegalArgumentException("The key range must hold at least two keys.");
+		}
+		this.keyRange = keyRange;
+	}
+	
+	/**
+	 * Sets the number of keys covered by a range scan.
+	 * 
+	 * @param rangeWidth the number of keys covered by a range scan
+	 */
+	public void setRangeWidth(int rangeWidth) {
+		this.rangeWidth = rangeWidth;
+	}
+	
+	/**
+	 * Sets the operation mix from a string such as "find=70,insert=10,delete=10,range=10".
+	 * Operations that are left out get a weight of zero.
+	 * 
+	 * @param text the operation mix
+	 */
+	public void setMix(String text) {
+		int[] weights = new int[NAMES.length];
+		for (String part : text.split(",")) {
+			String[] pair = part.split("=");
+			int op = operation(pair[0].trim());
+			weights[op] = Integer.parseInt(pair[1].trim());
+		}
+		int total = 0;
+		for (int weight : weights) {
+			total += weight;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException("The operation mix is empty.");
+		}
+		mix = weights;
+	}
+	
+	/**
+	 * Sets the key distribution: uniform, zipf, sequential or zigzag.
+	 * 
+	 * @param distribution the name of the key distribution
+	 */
+	public void setDistribution(String distribution) {
+		generator(distribution, 2, 0); // Fails on an unknown name
+		this.distribution = distribution;
+	}
+	
+	/**
+	 * Sets the seed of the random number generators.
+	 * 
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Turns the tree's membership filter on or off.
+	 * 
+	 * @param filter true to check the filter before descending on a find
+	 */
+	public void setFilter(boolean filter) {
+		this.filter = filter;
+	}
+	
+	/**
+	 * Sets the size of the tree's hot-key cache.
+	 * 
+	 * @param cacheSize the number of keys cached, or 0 for no cache
+	 */
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+	
+	/**
+	 * Returns the operation with the given name.
+	 * 
+	 * @param name find, insert, delete or range
+	 * @return the index of the operation
+	 */
+	private static int operation(String name) {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unknown operation: " + name);
+	}
+	
+	/**
+	 * Creates a key generator.
+	 * 
+	 * @param name uniform, zipf, sequential or zigzag
+	 * @param range the number of distinct keys
+	 * @param seed the seed of the generator
+	 * @return the key generator
+	 */
+	public static KeyGenerator generator(String name, int range, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		switch (name) {
+		case "uniform":
+			return () -> random.nextInt(range);
+		case "zipf":
+			return new ZipfGenerator(range, 0.99, random);
+		case "sequential":
+			int[] next = {random.nextInt(range)};
+			return () -> {
+				int key = next[0];
+				next[0] = key + 1 == range ? 0 : key + 1;
+				return key;
+			};
+		case "zigzag": // 0, n-1, 1, n-2, ... which alternates between the two ends of the tree
+			long[] step = {0};
+			return () -> {
+				long i = step[0]++ % range;
+				return (int) (i % 2 == 0 ? i / 2 : range - 1 - i / 2);
+			};
+		default:
+			throw new IllegalArgumentException("Unknown key distribution: " + name);
+		}
+	}
+	
+	/**
+	 * This nested class generates keys following a Zipfian distribution, where the
+	 * key of rank k is picked with a probability proportional to 1 / k^theta.
+	 * It uses the method of Gray et al., "Quickly Generating Billion-Record Synthetic Databases".
+	 */
+	private static class ZipfGenerator implements KeyGenerator {
+		private final int range;
+		private final double theta;
+		private final double zetaN;
+		private final double alpha;
+		private final double eta;
+		private final SplittableRandom random;
+		
+		/**
+		 * Constructs a generator over the given number of keys.
+		 * 
+		 * @param range the number of distinct keys
+		 * @param theta the skew, between 0 and 1
+		 * @param random the source of random numbers
+		 */
+		private ZipfGenerator(int range, double theta, SplittableRandom random) {
+			this.range = range;
+			this.theta = theta;
+			this.random = random;
+			double zeta2 = 1 + Math.pow(0.5, theta);
+			double zeta = 0;
+			for (int i = 1; i <= range; i++) {
+				zeta += 1 / Math.pow(i, theta);
+			}
+			zetaN = zeta;
+			alpha = 1 / (1 - theta);
+			eta = (1 - Math.pow(2.0 / range, 1 - theta)) / (1 - zeta2 / zetaN);
+		}
+		
+		@Override
+		public int next() {
+			double u = random.nextDouble();
+			double uz = u * zetaN;
+			if (uz < 1) {
+				return 0;
+			}
+			if (uz < 1 + Math.pow(0.5, theta)) {
+				return 1;
+			}
+			return (int) Math.min(range - 1, (long) (range * Math.pow(eta * u - eta + 1, alpha)));
+		}
+	}
+	
+	/**
+	 * This nested class holds the histograms of one worker thread.
+	 */
+	private static class Worker implements Runnable {
+		private final WorkloadDriver driver;
+		private final RedBlackTree<Integer> tree;
+		private final ReentrantReadWriteLock lock;
+		private final KeyGenerator keys;
+		private final SplittableRandom random;
+		private final long warmupEnd;
+		private final long end;
+		private final LatencyHistogram[] histograms = new LatencyHistogram[NAMES.length];
+		private final AtomicLong rangeKeys;
+		
+		/**
+		 * Constructs a worker.
+		 * 
+		 * @param driver the settings of the run
+		 * @param tree the shared tree
+		 * @param lock the lock that guards the tree
+		 * @param seed the seed of the worker's random number generators
+		 * @param warmupEnd the time at which measuring starts
+		 * @param end the time at which the run ends
+		 * @param rangeKeys counts the keys returned by range scans
+		 */
+		private Worker(WorkloadDriver driver, RedBlackTree<Integer> tree, ReentrantReadWriteLock lock,
+				long seed, long warmupEnd, long end, AtomicLong rangeKeys) {
+			this.driver = driver;
+			this.tree = tree;
+			this.lock = lock;
+			this.keys = generator(driver.distribution, driver.keyRange, seed);
+			this.random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+			this.warmupEnd = warmupEnd;
+			this.end = end;
+			this.rangeKeys = rangeKeys;
+			for (int i = 0; i < histograms.length; i++) {
+				histograms[i] = new LatencyHistogram();
+			}
+		}
+		
+		@Override
+		public void run() {
+			int[] mix = driver.mix;
+			int total = 0;
+			for (int weight : mix) {
+				total += weight;
+			}
+			long scanned = 0;
+			long now = System.nanoTime();
+			while (now < end) {
+				int pick = random.nextInt(total);
+				int op = 0;
+				while (pick >= mix[op]) {
+					pick -= mix[op];
+					op++;
+				}
+				Integer key = keys.next();
+				long start = now;
+				switch (op) {
+				case FIND:
+					lock.readLock().lock();
+					try {
+						tree.find(key);
+					} finally {
+						lock.readLock().unlock();
+					}
+					break;
+				case INSERT:
+					lock.writeLock().lock();
+					try {
+						if (!tree.find(key)) {
+							tree.insert(key);
+						}
+					} finally {
+						lock.writeLock().unlock();
+					}
+					break;
+				case DELETE:
+					lock.writeLock().lock();
+					try {
+						if (tree.find(key)) {
+							tree.delete(key);
+						}
+					} finally {
+						lock.writeLock().unlock();
+					}
+					break;
+				default:
+					lock.readLock().lock();
+					try {
+						scanned += tree.range(key, key + driver.rangeWidth - 1).size();
+					} finally {
+						lock.readLock().unlock();
+					}
+				}
+				now = System.nanoTime();
+				if (start >= warmupEnd) {
+					histograms[op].record(now - start);
+				}
+			}
+			rangeKeys.addAndGet(scanned);
+		}
+	}
+	
+	/**
+	 * Fills the tree, runs the workload and prints the report.
+	 * 
+	 * @throws InterruptedException if the thread is interrupted while waiting for the workers
+	 */
+	public void run() throws InterruptedException {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int key = 0; key < keyRange; key++) {
+			if (random.nextBoolean()) {
+				tree.insert(key);
+			}
+		}
+		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		tree.setFilterEnabled(filter, lock);
+		tree.setCacheSize(cacheSize);
+		System.out.printf("threads=%d duration=%dms warmup=%dms keys=%d distribution=%s mix=%s%n",
+				threads, durationMillis, warmupMillis, keyRange, distribution, mixText());
+		
+		AtomicLong rangeKeys = new AtomicLong();
+		long warmupEnd = System.nanoTime() + warmupMillis * 1_000_000;
+		long end = warmupEnd + durationMillis * 1_000_000;
+		ArrayList<Worker> workers = new ArrayList<>();
+		ArrayList<Thread> running = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			Worker worker = new Worker(this, tree, lock, seed + 31 * (i + 1), warmupEnd, end, rangeKeys);
+			Thread thread = new Thread(worker, "worker-" + i);
+			workers.add(worker);
+			running.add(thread);
+			thread.start();
+		}
+		for (Thread thread : running) {
+			thread.join();
+		}
+		
+		// Merge the histograms of every worker
+		LatencyHistogram[] merged = new LatencyHistogram[NAMES.length];
+		LatencyHistogram all = new LatencyHistogram();
+		for (int op = 0; op < NAMES.length; op++) {
+			merged[op] = new LatencyHistogram();
+			for (Worker worker : workers) {
+				merged[op].merge(worker.histograms[op]);
+			}
+			all.merge(merged[op]);
+		}
+		
+		double seconds = durationMillis / 1000.0;
+		System.out.printf("%-8s %12s %12s %10s %10s %10s %10s %10s%n",
+				"op", "count", "ops/s", "mean(ns)", "p50(ns)", "p99(ns)", "p999(ns)", "max(ns)");
+		for (int op = 0; op < NAMES.length; op++) {
+			print(NAMES[op], merged[op], seconds);
+		}
+		print("all", all, seconds);
+		System.out.printf("final size=%d, black height=%d, keys returned by range scans=%d%n", tree.size(),
+				tree.blackHeight(), rangeKeys.get());
+		if (filter) {
+			System.out.println("filter: " + tree.getFilter());
+		}
+		if (cacheSize > 0) {
+			System.out.println("cache: " + tree.getCache());
+		}
+	}
+	
+	/**
+	 * Prints one line of the report.
+	 * 
+	 * @param name the name of the operation
+	 * @param histogram the latencies of the operation
+	 * @param seconds the length of the measured run
+	 */
+	private static void print(String name, LatencyHistogram histogram, double seconds) {
+		System.out.printf("%-8s %12d %12.0f %10.0f %10d %10d %10d %10d%n", name, histogram.count(),
+				histogram.count() / seconds, histogram.mean(), histogram.percentile(50),
+				histogram.percentile(99), histogram.percentile(99.9), histogram.max());
+	}
+	
+	/**
+	 * Returns the operation mix in the same form setMix accepts.
+	 * 
+	 * @return the operation mix
+	 */
+	private String mixText() {
+		StringBuilder text = new StringBuilder();
+		for (int op = 0; op < NAMES.length; op++) {
+			if (op > 0) {
+				text.append(',');
+			}
+			text.append(NAMES[op]).append('=').append(mix[op]);
+		}
+		return text.toString();
+	}
+}
\ No newline at end of file